@@ -0,0 +1,207 @@
+package com.hotmail.maximglukhov.naturalnumbersgrid;
+
+import android.support.annotation.IntRange;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>Structured tracing of grid events into a fixed-size lock-free ring buffer.</p>
+ * <p>Every event is a type and two numeric arguments, stamped with time and thread. Recording claims a slot with
+ * a single atomic increment and writes a few longs, with no allocation and no string formatting. Oldest events
+ * are overwritten once buffer is full. Events are formatted only when dumped (see {@link #dump(Appendable)}).</p>
+ * <p>Call sites are gated by level constants, e.g. {@code if (EventTrace.DEBUG) EventTrace.get().record(...)}.
+ * Levels are compile-time constants, so gated calls are compiled out entirely below {@link #LEVEL}.</p>
+ */
+public class EventTrace {
+
+    /**
+     * <p>Trace levels.</p>
+     */
+    public static final int LEVEL_VERBOSE = 0;
+    public static final int LEVEL_DEBUG = 1;
+    public static final int LEVEL_OFF = 2;
+
+    /**
+     * <p>Lowest traced level. Events of lower levels are compiled out.</p>
+     */
+    public static final int LEVEL = LEVEL_DEBUG;
+
+    /**
+     * <p>Gates for call sites of every level.</p>
+     */
+    public static final boolean VERBOSE = LEVEL <= LEVEL_VERBOSE;
+    public static final boolean DEBUG = LEVEL <= LEVEL_DEBUG;
+
+    /**
+     * <p>Event types, with their arguments.</p>
+     */
+    /* Batch started: first number, amount of numbers. */
+    public static final int BATCH_START = 1;
+    /* Batch generated: first number, amount of numbers. */
+    public static final int BATCH_END = 2;
+    /* Batch cancelled and dropped: first number, amount of numbers. */
+    public static final int BATCH_CANCELLED = 3;
+    /* Batch delivered to grid: first number, epoch. */
+    public static final int BATCH_DELIVERED = 4;
+    /* Cells inserted into adapter: position, amount of cells. */
+    public static final int INSERT = 5;
+    /* Block rejected by adapter as not adjacent: first number, amount of numbers. */
+    public static final int INSERT_REJECTED = 6;
+    /* Cells removed from adapter: position, amount of cells. */
+    public static final int REMOVE = 7;
+    /* Prefetch distance crossed scrolling down: last visible position, item count. */
+    public static final int THRESHOLD_DOWN = 8;
+    /* Prefetch distance crossed scrolling up: first visible position, item count. */
+    public static final int THRESHOLD_UP = 9;
+    /* Grid scrolled: dy, item count. */
+    public static final int SCROLL = 10;
+    /* Pending cells filled with generated ones: first number, amount of filled cells. */
+    public static final int FILL = 11;
+    /* Frame of delivered cells applied to grid: amount of deliveries, item count. */
+    public static final int FRAME = 12;
+    /* Grid measured: estimated cells, total cells. */
+    public static final int MEASURE = 13;
+    /* Cell long pressed: number, adapter position. */
+    public static final int LONG_PRESS = 14;
+
+    private static final String[] EVENT_NAMES = {
+            "?", "BATCH_START", "BATCH_END", "BATCH_CANCELLED", "BATCH_DELIVERED", "INSERT", "INSERT_REJECTED",
+            "REMOVE", "THRESHOLD_DOWN", "THRESHOLD_UP", "SCROLL", "FILL", "FRAME",
+            "MEASURE", "LONG_PRESS"
+    };
+
+    /*
+     * Defines default amount of events kept by shared trace.
+     */
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    /*
+     * Defines layout of every slot: sequence stamp, time, type and thread, first and second argument.
+     */
+    private static final int SLOT_STAMP = 0;
+    private static final int SLOT_TIME = 1;
+    private static final int SLOT_TYPE = 2;
+    private static final int SLOT_ARG1 = 3;
+    private static final int SLOT_ARG2 = 4;
+    private static final int SLOT_SIZE = 5;
+
+    /*
+     * Defines bits of thread id stored along with type.
+     */
+    private static final int TYPE_BITS = 16;
+
+    /*
+     * Shared trace.
+     */
+    private static final EventTrace sTrace = new EventTrace(DEFAULT_CAPACITY);
+
+    /*
+     * Event slots, and mask for wrapping sequence numbers to slots (capacity is a power of two).
+     */
+    private final AtomicLongArray mSlots;
+    private final int mMask;
+
+    /*
+     * Sequence number of next event.
+     */
+    private final AtomicLong mCursor = new AtomicLong();
+
+    /**
+     * <p>Constructor for trace.</p>
+     * @param capacity amount of events to keep, rounded up to a power of two.
+     */
+    public EventTrace(@IntRange(from = 1, to = 1 << 24) int capacity) {
+        int slots = capacity <= 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        mMask   = slots - 1;
+        mSlots  = new AtomicLongArray(slots * SLOT_SIZE);
+
+        // No slot holds an event yet.
+        for (int i = 0; i < slots; i++)
+            mSlots.set(i * SLOT_SIZE + SLOT_STAMP, -1);
+    }
+
+    /**
+     * <p>Gets shared trace.</p>
+     * @return shared trace.
+     */
+    public static EventTrace get() {
+        return sTrace;
+    }
+
+    /**
+     * <p>Records an event. Called from any thread.</p>
+     * @param type event type.
+     * @param arg1 first argument.
+     * @param arg2 second argument.
+     */
+    public void record(int type, long arg1, long arg2) {
+        long sequence = mCursor.getAndIncrement();
+        int base = (int) (sequence & mMask) * SLOT_SIZE;
+
+        // Invalidate slot while writing, readers skip it meanwhile.
+        mSlots.set(base + SLOT_STAMP, -1);
+        mSlots.set(base + SLOT_TIME, System.nanoTime());
+        mSlots.set(base + SLOT_TYPE, (Thread.currentThread().getId() << TYPE_BITS) | type);
+        mSlots.set(base + SLOT_ARG1, arg1);
+        mSlots.set(base + SLOT_ARG2, arg2);
+        mSlots.set(base + SLOT_STAMP, sequence);
+    }
+
+    /**
+     * <p>Gets amount of events recorded so far, including overwritten ones.</p>
+     * @return amount of events.
+     */
+    public long getEventCount() {
+        return mCursor.get();
+    }
+
+    /**
+     * <p>Writes kept events, oldest first, one line per event:
+     * <br>{@code <sequence> <time in microseconds> <thread id> <event> <first argument> <second argument>}</p>
+     * <p>Events overwritten while dumping are skipped.</p>
+     * @param out output to write to.
+     * @return amount of written events.
+     * @throws IOException if writing fails.
+     */
+    public int dump(Appendable out) throws IOException {
+        long end = mCursor.get();
+        long start = Math.max(0, end - (mMask + 1));
+        int written = 0;
+
+        for (long sequence = start; sequence < end; sequence++) {
+            int base = (int) (sequence & mMask) * SLOT_SIZE;
+            if (mSlots.get(base + SLOT_STAMP) != sequence)
+                continue;
+
+            long time = mSlots.get(base + SLOT_TIME);
+            long type = mSlots.get(base + SLOT_TYPE);
+            long arg1 = mSlots.get(base + SLOT_ARG1);
+            long arg2 = mSlots.get(base + SLOT_ARG2);
+
+            // Slot was overwritten while reading.
+            if (mSlots.get(base + SLOT_STAMP) != sequence)
+                continue;
+
+            out.append(Long.toString(sequence)).append(' ')
+                    .append(Long.toString(time / 1000)).append(' ')
+                    .append(Long.toString(type >>> TYPE_BITS)).append(' ')
+                    .append(getEventName((int) (type & ((1 << TYPE_BITS) - 1)))).append(' ')
+                    .append(Long.toString(arg1)).append(' ')
+                    .append(Long.toString(arg2)).append('\n');
+            written++;
+        }
+
+        return written;
+    }
+
+    /**
+     * <p>Gets name of given event type.</p>
+     * @param type event type.
+     * @return event name.
+     */
+    public static String getEventName(int type) {
+        return type > 0 && type < EVENT_NAMES.length ? EVENT_NAMES[type] : EVENT_NAMES[0] + type;
+    }
+}
@@ -150,18 +150,16 @@ public class FactorsPopupBox {
 
     /**
      * <p>Shows popup box on screen for given number.
-     * <br>Calculates factors and checks primality for given number.</p>
+     * <br>Calculates factors (using {@link Factorizer}) and checks primality for given number.</p>
      * @param location location on screen to show box.
      * @param number number to show factors for.
      */
     public void show(PointF location, long number) {
-        Set<Long> factors = null;
-        boolean isPrime = Utils.isPrime(number);
-        // Check if factors should be calculated.
-        if (!isPrime)
-            factors = Utils.factorize(number);
+        NumberCell cell = new NumberCell(number);
+        cell.updatePrimality();
+        cell.factorize();
 
-        show(location, number, factors, isPrime);
+        show(location, cell);
     }
 
     /**
@@ -0,0 +1,185 @@
+package com.hotmail.maximglukhov.naturalnumbersgrid;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.support.v4.os.TraceCompat;
+import android.view.Choreographer;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * <p>Hands results from a background thread to UI thread, once per frame.</p>
+ * <p>Deliveries are queued in a {@link SpscQueue} by a single producer thread, and drained all at once on UI
+ * thread on next frame (with {@link Choreographer}, or a {@link Handler} on API levels before 16). At most one
+ * frame is scheduled at a time, however many deliveries are queued meanwhile.</p>
+ * <p>Every drain is bracketed by {@link FrameListener} callbacks, so everything delivered in a frame can be
+ * applied as a single transaction (e.g. a single adapter update).</p>
+ */
+public class FrameDeliveryChannel {
+
+    /*
+     * Defines trace section name for draining a frame.
+     */
+    private static final String SECTION_DRAIN = "FrameDeliveryChannel.drain";
+
+    /**
+     * <p>Interface definition for callbacks to be invoked around every drained frame, on UI thread.</p>
+     */
+    public interface FrameListener {
+        /**
+         * <p>Called before running deliveries of a frame.</p>
+         */
+        void onFrameStart();
+
+        /**
+         * <p>Called after running deliveries of a frame.</p>
+         * @param deliveryCount amount of deliveries run in frame.
+         */
+        void onFrameEnd(int deliveryCount);
+    }
+
+    /*
+     * Pending deliveries, offered by producer thread and polled by UI thread.
+     */
+    private final SpscQueue<Runnable> mDeliveries = new SpscQueue<>();
+
+    /*
+     * Whether a frame is already scheduled.
+     */
+    private final AtomicBoolean mIsScheduled = new AtomicBoolean();
+
+    /*
+     * Schedules drains on UI thread.
+     */
+    private final FrameScheduler mScheduler;
+
+    /*
+     * Listener for frames, or null.
+     */
+    private FrameListener mFrameListener;
+
+    /**
+     * <p>Constructor for channel. Must be called on UI thread.</p>
+     * @param uiHandler UI Handler, used for draining before {@link Choreographer} is available.
+     */
+    public FrameDeliveryChannel(Handler uiHandler) {
+        Runnable drain = new Runnable() {
+            @Override
+            public void run() {
+                drain();
+            }
+        };
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN)
+            mScheduler = new ChoreographerFrameScheduler(drain);
+        else
+            mScheduler = new HandlerFrameScheduler(uiHandler, drain);
+    }
+
+    /**
+     * <p>Queues delivery to run on UI thread on next frame. Called from producer thread only.</p>
+     * @param delivery delivery to run.
+     */
+    public void post(Runnable delivery) {
+        mDeliveries.offer(delivery);
+        requestFrame();
+    }
+
+    /**
+     * <p>Requests a frame to be drained, even if nothing is delivered (e.g. for applying changes made on UI thread
+     * along with next deliveries). Called from any thread.</p>
+     */
+    public void requestFrame() {
+        if (mIsScheduled.compareAndSet(false, true))
+            mScheduler.schedule();
+    }
+
+    /**
+     * <p>Sets listener for frames.</p>
+     * @param listener listener, or null.
+     */
+    public void setFrameListener(FrameListener listener) {
+        mFrameListener = listener;
+    }
+
+    /*
+     * Helper method to run all pending deliveries. Runs on UI thread, once per frame.
+     */
+    private void drain() {
+        // Deliveries queued from now on schedule another frame.
+        mIsScheduled.set(false);
+
+        TraceCompat.beginSection(SECTION_DRAIN);
+        try {
+            FrameListener listener = mFrameListener;
+            if (listener != null)
+                listener.onFrameStart();
+
+            int deliveryCount = 0;
+            Runnable delivery;
+            while ((delivery = mDeliveries.poll()) != null) {
+                delivery.run();
+                deliveryCount++;
+            }
+
+            if (listener != null)
+                listener.onFrameEnd(deliveryCount);
+        } finally {
+            TraceCompat.endSection();
+        }
+    }
+
+    /*
+     * Schedules a drain on UI thread.
+     */
+    private interface FrameScheduler {
+        void schedule();
+    }
+
+    /*
+     * Drains on next vertical sync.
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private static class ChoreographerFrameScheduler implements FrameScheduler {
+
+        /*
+         * UI thread's choreographer, which accepts callbacks from any thread.
+         */
+        private final Choreographer mChoreographer = Choreographer.getInstance();
+        private final Choreographer.FrameCallback mFrameCallback;
+
+        ChoreographerFrameScheduler(final Runnable drain) {
+            mFrameCallback = new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    drain.run();
+                }
+            };
+        }
+
+        @Override
+        public void schedule() {
+            mChoreographer.postFrameCallback(mFrameCallback);
+        }
+    }
+
+    /*
+     * Drains as soon as UI thread's looper gets to it.
+     */
+    private static class HandlerFrameScheduler implements FrameScheduler {
+
+        private final Handler mHandler;
+        private final Runnable mDrain;
+
+        HandlerFrameScheduler(Handler handler, Runnable drain) {
+            mHandler    = handler;
+            mDrain      = drain;
+        }
+
+        @Override
+        public void schedule() {
+            mHandler.post(mDrain);
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.hotmail.maximglukhov.naturalnumbersgrid;
+
+import android.support.annotation.IntRange;
+
+import java.util.ArrayList;
+
+/**
+ * <p>Thread safe queue of pending generation requests, each a window of consecutive numbers.</p>
+ * <p>Requests extending the grid in either direction are independent, each with its own window. A request
+ * overlapping a pending one of the same epoch is coalesced into it, so no number is queued twice.</p>
+ * <p>Requests are taken nearest-first: the one closest to the focus (see {@link #setFocus(long)}, usually the
+ * viewport) is taken first, ties are taken in order of arrival. Given the same requests and focus, requests
+ * are always taken in the same order.</p>
+ */
+public class GenerationRequestQueue {
+
+    /**
+     * <p>Maximum amount of numbers in a coalesced request. Larger unions are kept as separate requests.</p>
+     */
+    public static final int MAX_COALESCED_COUNT = 1 << 20;
+
+    /*
+     * Pending requests, in order of arrival.
+     */
+    private final ArrayList<Request> mRequests = new ArrayList<>();
+
+    /*
+     * Number requests are prioritized by distance from.
+     */
+    private long mFocus;
+
+    /*
+     * Sequence number of next request.
+     */
+    private long mNextSequence;
+
+    /**
+     * <p>Queues a request for given window, coalescing it with overlapping pending requests.</p>
+     * @param low first number in window.
+     * @param count amount of numbers in window.
+     * @param positive generation direction the window was requested in - increase (true) or decrease (false).
+     * @param epoch generation epoch of request.
+     * @return queued request covering window (either new, or the pending request it was coalesced into).
+     */
+    public synchronized Request offer(@IntRange(from = 0) long low, @IntRange(from = 1) int count,
+                                      boolean positive, int epoch) {
+        Request request = new Request(low, count, positive, epoch, mNextSequence++, System.nanoTime());
+
+        // Merge with every pending request it overlaps, a merged request may bridge several.
+        for (int i = 0; i < mRequests.size(); i++) {
+            Request pending = mRequests.get(i);
+            Request merged = pending.coalesce(request);
+            if (merged == null)
+                continue;
+
+            mRequests.remove(i);
+            request = merged;
+            // Restart, merged window may overlap earlier requests now.
+            i = -1;
+        }
+
+        // Keep order of arrival by sequence number, merged requests keep their earliest.
+        int index = mRequests.size();
+        while (index > 0 && mRequests.get(index - 1).mSequence > request.mSequence)
+            index--;
+        mRequests.add(index, request);
+
+        return request;
+    }
+
+    /**
+     * <p>Takes pending request nearest to focus.</p>
+     * @return nearest request, or null if empty.
+     */
+    public synchronized Request poll() {
+        int nearest = -1;
+        long nearestDistance = Long.MAX_VALUE;
+        for (int i = 0; i < mRequests.size(); i++) {
+            // Strictly nearer only, so ties go to earliest arrival.
+            long distance = mRequests.get(i).getDistance(mFocus);
+            if (nearest < 0 || distance < nearestDistance) {
+                nearest = i;
+                nearestDistance = distance;
+            }
+        }
+
+        return nearest < 0 ? null : mRequests.remove(nearest);
+    }
+
+    /**
+     * <p>Sets number pending requests are prioritized by distance from (e.g. first visible number).</p>
+     * @param value focus number.
+     */
+    public synchronized void setFocus(long value) {
+        mFocus = value;
+    }
+
+    /**
+     * <p>Gets number pending requests are prioritized by distance from.</p>
+     * @return focus number.
+     */
+    public synchronized long getFocus() {
+        return mFocus;
+    }
+
+    /**
+     * <p>Removes all pending requests.</p>
+     */
+    public synchronized void clear() {
+        mRequests.clear();
+    }
+
+    /**
+     * <p>Gets amount of pending requests.</p>
+     * @return amount of requests.
+     */
+    public synchronized int size() {
+        return mRequests.size();
+    }
+
+    /**
+     * <p>Checks if there are no pending requests.</p>
+     * @return true if empty, false otherwise.
+     */
+    public synchronized boolean isEmpty() {
+        return mRequests.isEmpty();
+    }
+
+    /**
+     * <p>Immutable generation request for a window of consecutive numbers.</p>
+     */
+    public static class Request {
+
+        /*
+         * Window [low, low + count).
+         */
+        private final long mLow;
+        private final int mCount;
+
+        /*
+         * Direction window was requested in.
+         */
+        private final boolean mIsPositive;
+
+        /*
+         * Generation epoch, sequence number and time (System.nanoTime()) of arrival.
+         */
+        private final int mEpoch;
+        private final long mSequence;
+        private final long mTime;
+
+        private Request(long low, int count, boolean positive, int epoch, long sequence, long time) {
+            mLow        = low;
+            mCount      = count;
+            mIsPositive = positive;
+            mEpoch      = epoch;
+            mSequence   = sequence;
+            mTime       = time;
+        }
+
+        /**
+         * <p>Gets first number in window.</p>
+         * @return first number.
+         */
+        public long getLow() {
+            return mLow;
+        }
+
+        /**
+         * <p>Gets amount of numbers in window.</p>
+         * @return amount of numbers.
+         */
+        public int getCount() {
+            return mCount;
+        }
+
+        /**
+         * <p>Gets last number in window.</p>
+         * @return last number.
+         */
+        public long getHigh() {
+            return mLow + mCount - 1;
+        }
+
+        /**
+         * <p>Gets direction window was requested in. Coalesced requests keep direction of earliest request.</p>
+         * @return true if increasing, false if decreasing.
+         */
+        public boolean isPositive() {
+            return mIsPositive;
+        }
+
+        /**
+         * <p>Gets generation epoch request was made in.</p>
+         * @return epoch.
+         */
+        public int getEpoch() {
+            return mEpoch;
+        }
+
+        /**
+         * <p>Gets sequence number of arrival.</p>
+         * @return sequence number.
+         */
+        public long getSequence() {
+            return mSequence;
+        }
+
+        /**
+         * <p>Gets time of arrival, for measuring queue wait.</p>
+         * @return arrival time, as {@link System#nanoTime()}.
+         */
+        public long getTime() {
+            return mTime;
+        }
+
+        /*
+         * Helper method to get distance of window from given number, 0 if inside window.
+         */
+        long getDistance(long value) {
+            if (value < mLow)
+                return mLow - value;
+            if (value > getHigh())
+                return value - getHigh();
+            return 0;
+        }
+
+        /*
+         * Helper method to merge with given request if windows overlap (and union is within maximum size).
+         * Merged request keeps earliest direction, sequence number and time. Returns null if not mergeable.
+         */
+        Request coalesce(Request other) {
+            if (other.mEpoch != mEpoch)
+                return null;
+
+            // Adjacent windows are kept apart, every delivered block stays as requested or larger.
+            if (other.mLow > getHigh() || mLow > other.getHigh())
+                return null;
+
+            // Union of two int sized windows can't overflow.
+            long low = Math.min(mLow, other.mLow);
+            long length = Math.max(getHigh(), other.getHigh()) - low + 1;
+            if (length > Math.max(mCount, other.mCount) && length > MAX_COALESCED_COUNT)
+                return null;
+
+            Request earliest = mSequence <= other.mSequence ? this : other;
+            return new Request(low, (int) length, earliest.mIsPositive, mEpoch, earliest.mSequence,
+                    earliest.mTime);
+        }
+
+        @Override
+        public String toString() {
+            return "[" + mLow + "+" + mCount + (mIsPositive ? " +" : " -") + " #" + mSequence + "]";
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package com.hotmail.maximglukhov.naturalnumbersgrid;
+
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Throughput and latency metrics of grid generation and binding, kept in low-overhead {@link Histogram}s.</p>
+ * <p>Every generated batch records its queue wait (from start until its thread picked it up), compute time
+ * (split into sieve and factorization), delivery latency (from posting results until
+ * {@link NumberCellGeneratorTask.NumberCellGeneratorListener#onCellsReady(NumberCellBlock, int)}) and
+ * throughput. Adapters record bind time of every cell.</p>
+ * <p>Recording may happen on any thread. Listeners are called on the thread recording the batch.</p>
+ */
+public class GridMetrics {
+
+    /**
+     * <p>Interface definition for a callback to be invoked when a batch was recorded.</p>
+     */
+    public interface GridMetricsListener {
+        /**
+         * <p>Callback for recorded batch metrics.</p>
+         * @param metrics metrics batch was recorded in.
+         * @param batch recorded batch.
+         */
+        void onBatchRecorded(GridMetrics metrics, Batch batch);
+    }
+
+    /*
+     * Batch latencies, in nanoseconds.
+     */
+    private final Histogram mQueueWait = new Histogram();
+    private final Histogram mSieve = new Histogram();
+    private final Histogram mFactorize = new Histogram();
+    private final Histogram mCompute = new Histogram();
+    private final Histogram mDelivery = new Histogram();
+
+    /*
+     * Batch throughput, in cells per second.
+     */
+    private final Histogram mThroughput = new Histogram();
+
+    /*
+     * Bind time of a single cell, in nanoseconds.
+     */
+    private final Histogram mBind = new Histogram();
+
+    private final CopyOnWriteArrayList<GridMetricsListener> mListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * <p>Records metrics of a delivered batch, and notifies listeners.</p>
+     * @param batch batch metrics.
+     */
+    public void recordBatch(Batch batch) {
+        mQueueWait.record(batch.getQueueWaitNanos());
+        mSieve.record(batch.getSieveNanos());
+        mFactorize.record(batch.getFactorizeNanos());
+        mCompute.record(batch.getComputeNanos());
+        mDelivery.record(batch.getDeliveryNanos());
+        mThroughput.record(batch.getCellsPerSecond());
+
+        for (GridMetricsListener listener : mListeners)
+            listener.onBatchRecorded(this, batch);
+    }
+
+    /**
+     * <p>Records bind time of a single cell.</p>
+     * @param nanos bind time in nanoseconds.
+     */
+    public void recordBind(long nanos) {
+        mBind.record(nanos);
+    }
+
+    /**
+     * <p>Adds listener for recorded batches.</p>
+     * @param listener listener to add.
+     */
+    public void addListener(GridMetricsListener listener) {
+        mListeners.addIfAbsent(listener);
+    }
+
+    /**
+     * <p>Removes listener for recorded batches.</p>
+     * @param listener listener to remove.
+     */
+    public void removeListener(GridMetricsListener listener) {
+        mListeners.remove(listener);
+    }
+
+    /**
+     * <p>Gets histogram of batch queue wait, from start until generation began.</p>
+     * @return queue wait in nanoseconds.
+     */
+    public Histogram getQueueWait() {
+        return mQueueWait;
+    }
+
+    /**
+     * <p>Gets histogram of batch sieve time (summed over parallel segments).</p>
+     * @return sieve time in nanoseconds.
+     */
+    public Histogram getSieve() {
+        return mSieve;
+    }
+
+    /**
+     * <p>Gets histogram of batch factorization time (summed over parallel segments).</p>
+     * @return factorization time in nanoseconds.
+     */
+    public Histogram getFactorize() {
+        return mFactorize;
+    }
+
+    /**
+     * <p>Gets histogram of batch compute time, as elapsed from generation start until done.</p>
+     * @return compute time in nanoseconds.
+     */
+    public Histogram getCompute() {
+        return mCompute;
+    }
+
+    /**
+     * <p>Gets histogram of batch delivery latency, from posting results until listener was called.</p>
+     * @return delivery latency in nanoseconds.
+     */
+    public Histogram getDelivery() {
+        return mDelivery;
+    }
+
+    /**
+     * <p>Gets histogram of batch throughput.</p>
+     * @return throughput in cells per second.
+     */
+    public Histogram getThroughput() {
+        return mThroughput;
+    }
+
+    /**
+     * <p>Gets histogram of bind time per cell.</p>
+     * @return bind time in nanoseconds.
+     */
+    public Histogram getBind() {
+        return mBind;
+    }
+
+    /**
+     * <p>Removes all recorded metrics.</p>
+     */
+    public void reset() {
+        mQueueWait.reset();
+        mSieve.reset();
+        mFactorize.reset();
+        mCompute.reset();
+        mDelivery.reset();
+        mThroughput.reset();
+        mBind.reset();
+    }
+
+    /**
+     * <p>Gets a summary of all metrics, one line per histogram (e.g. for a debug overlay).</p>
+     * @return summary text.
+     */
+    public String getSummary() {
+        StringBuilder builder = new StringBuilder();
+        appendMicros(builder, "queue", mQueueWait);
+        appendMicros(builder, "sieve", mSieve);
+        appendMicros(builder, "factor", mFactorize);
+        appendMicros(builder, "compute", mCompute);
+        appendMicros(builder, "deliver", mDelivery);
+        appendMicros(builder, "bind", mBind);
+        builder.append(String.format(Locale.US, "%-8s p50 %8d p5 %8d cells/s", "rate",
+                mThroughput.getPercentile(50), mThroughput.getPercentile(5)));
+        return builder.toString();
+    }
+
+    /*
+     * Helper method to append a line for a histogram of nanoseconds, in microseconds.
+     */
+    private static void appendMicros(StringBuilder builder, String name, Histogram histogram) {
+        builder.append(String.format(Locale.US, "%-8s p50 %8d p95 %8d max %8d us (n=%d)\n", name,
+                TimeUnit.NANOSECONDS.toMicros(histogram.getPercentile(50)),
+                TimeUnit.NANOSECONDS.toMicros(histogram.getPercentile(95)),
+                TimeUnit.NANOSECONDS.toMicros(histogram.getMax()),
+                histogram.getCount()));
+    }
+
+    /**
+     * <p>Metrics of a single generated batch.</p>
+     */
+    public static class Batch {
+
+        /*
+         * Generated window.
+         */
+        private final long mStart;
+        private final int mCount;
+
+        /*
+         * Batch latencies, in nanoseconds.
+         */
+        private final long mQueueWaitNanos;
+        private final long mSieveNanos;
+        private final long mFactorizeNanos;
+        private final long mComputeNanos;
+        private final long mDeliveryNanos;
+
+        /**
+         * <p>Constructor for batch metrics.</p>
+         * @param start first generated number.
+         * @param count amount of generated numbers.
+         * @param queueWaitNanos time from start until generation began.
+         * @param stats sieve and factorization times.
+         * @param computeNanos time from generation began until done.
+         * @param deliveryNanos time from posting results until listener was called.
+         */
+        public Batch(long start, int count, long queueWaitNanos, GenerationStats stats, long computeNanos,
+                     long deliveryNanos) {
+            mStart          = start;
+            mCount          = count;
+            mQueueWaitNanos = queueWaitNanos;
+            mSieveNanos     = stats.getSieveNanos();
+            mFactorizeNanos = stats.getFactorizeNanos();
+            mComputeNanos   = computeNanos;
+            mDeliveryNanos  = deliveryNanos;
+        }
+
+        /**
+         * <p>Gets first generated number.</p>
+         * @return first number.
+         */
+        public long getStart() {
+            return mStart;
+        }
+
+        /**
+         * <p>Gets amount of generated numbers.</p>
+         * @return amount of numbers.
+         */
+        public int getCount() {
+            return mCount;
+        }
+
+        /**
+         * <p>Gets time from start until generation began.</p>
+         * @return queue wait in nanoseconds.
+         */
+        public long getQueueWaitNanos() {
+            return mQueueWaitNanos;
+        }
+
+        /**
+         * <p>Gets time spent sieving.</p>
+         * @return sieve time in nanoseconds.
+         */
+        public long getSieveNanos() {
+            return mSieveNanos;
+        }
+
+        /**
+         * <p>Gets time spent factorizing.</p>
+         * @return factorization time in nanoseconds.
+         */
+        public long getFactorizeNanos() {
+            return mFactorizeNanos;
+        }
+
+        /**
+         * <p>Gets time from generation began until done.</p>
+         * @return compute time in nanoseconds.
+         */
+        public long getComputeNanos() {
+            return mComputeNanos;
+        }
+
+        /**
+         * <p>Gets time from posting results until listener was called.</p>
+         * @return delivery latency in nanoseconds.
+         */
+        public long getDeliveryNanos() {
+            return mDeliveryNanos;
+        }
+
+        /**
+         * <p>Gets generation throughput.</p>
+         * @return cells per second of compute time.
+         */
+        public long getCellsPerSecond() {
+            return mCount * TimeUnit.SECONDS.toNanos(1) / Math.max(1, mComputeNanos);
+        }
+
+        @Override
+        public String toString() {
+            return "[" + mStart + "+" + mCount + "] queue=" + mQueueWaitNanos + "ns sieve=" + mSieveNanos
+                    + "ns factorize=" + mFactorizeNanos + "ns compute=" + mComputeNanos + "ns delivery="
+                    + mDeliveryNanos + "ns";
+        }
+    }
+}
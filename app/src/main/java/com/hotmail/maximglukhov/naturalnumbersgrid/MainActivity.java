@@ -1,17 +1,21 @@
 package com.hotmail.maximglukhov.naturalnumbersgrid;
 
+import android.content.DialogInterface;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.graphics.Point;
 import android.graphics.PointF;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.SystemClock;
 import android.support.v4.view.GestureDetectorCompat;
+import android.support.v7.app.AlertDialog;
 import android.support.v7.app.AppCompatActivity;
 import android.support.v7.preference.PreferenceManager;
 import android.support.v7.widget.GridLayoutManager;
 import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
+import android.text.InputType;
 import android.util.DisplayMetrics;
 import android.util.Log;
 import android.view.GestureDetector;
@@ -20,10 +24,14 @@ import android.view.MenuItem;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.EditText;
 import android.widget.ProgressBar;
+import android.widget.TextView;
+import android.widget.Toast;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Set;
 
 public class MainActivity extends AppCompatActivity
         implements NumberCellGeneratorTask.NumberCellGeneratorListener,
@@ -31,11 +39,26 @@ public class MainActivity extends AppCompatActivity
 
     private static final String LOG_TAG = "MainActivity";
 
+    /*
+     * Defines log tag for dumped trace events.
+     */
+    private static final String TRACE_LOG_TAG = "EventTrace";
+
     /*
      * Request code for settings activity.
      */
     private static final int REQUEST_CODE_ACTIVITY_SETTINGS = 0;
 
+    /*
+     * Defines file name for persistent primality cache.
+     */
+    private static final String PRIME_CACHE_FILE_NAME = "primes.cache";
+
+    /*
+     * Defines key for saving visible grid snapshot in instance state.
+     */
+    private static final String STATE_SNAPSHOT = "snapshot";
+
     /*
      * Defines default amount of columns (span) for grid layout.
      */
@@ -55,6 +78,70 @@ public class MainActivity extends AppCompatActivity
      */
     private int mExtraCells;
 
+    /*
+     * Defines amount of numbers in every block generated for virtual scrolling.
+     */
+    private static final int VIRTUAL_BLOCK_SIZE = 1024;
+    /*
+     * Defines minimum amount of cached blocks for virtual scrolling.
+     */
+    private static final int MIN_CACHED_BLOCKS = 8;
+    /*
+     * Defines minimum interval between debug overlay updates, in milliseconds.
+     */
+    private static final long DEBUG_OVERLAY_UPDATE_INTERVAL = 250;
+
+    /*
+     * Indicates that grid maps every position directly to a number (virtual scrolling).
+     */
+    private boolean mIsVirtual;
+    /*
+     * Cache of generated blocks for virtual scrolling.
+     */
+    private NumberCellBlockCache mBlockCache;
+
+    /*
+     * Indicates that properties of requested numbers are filled in segment by segment as generated, rather than
+     * once their whole batch is.
+     */
+    private boolean mIsProgressive;
+
+    /*
+     * Channel delivering generated cells to UI thread, drained once per frame.
+     */
+    private FrameDeliveryChannel mDeliveryChannel;
+    /*
+     * Changes requested on UI thread, applied on next frame along with delivered cells: pending blocks
+     * of requested windows and amount of cells to remove from either end (leaving overdraft).
+     */
+    private final ArrayList<NumberCellBlock> mPendingBlocks = new ArrayList<>();
+    private int mPendingTrimStart;
+    private int mPendingTrimEnd;
+    /*
+     * Indicates that removing cells is pending until next frame.
+     */
+    private boolean mIsTrimPending;
+    /*
+     * Adapter updated in current frame (null outside of frame, or with virtual scrolling), and whether (and at
+     * which end) cells were inserted in it.
+     */
+    private NumberCellAdapter mFrameAdapter;
+    private boolean mIsFrameInserted;
+    private boolean mIsFrameAppended;
+
+    /*
+     * Number grid is centered on when (re)loaded, see go to number action.
+     */
+    private long mTargetValue = NumberCellGeneratorTask.MIN_NUMBER;
+    /*
+     * Indicates that grid should scroll to target number once its cells are inserted.
+     */
+    private boolean mIsScrollPending;
+    /*
+     * Snapshot of grid restored from saved instance state, shown instead of generating on first load.
+     */
+    private NumberCellSnapshot mRestoredSnapshot;
+
     /*
      * Initial amount of items to insert in order to estimate amount of cells in screen.
      */
@@ -90,9 +177,11 @@ public class MainActivity extends AppCompatActivity
     private int mMinItemCount = INITIAL_ITEMS_AMOUNT;
 
     /*
-     * Indicates that there's a pending task to complete (insertion/removal)
+     * Windows requested at the start and at the end of grid and not delivered yet, or null. Each end is
+     * extended on its own, one batch at a time.
      */
-    private boolean mIsLoading;
+    private NumberCellBlock mLoadingStartBlock;
+    private NumberCellBlock mLoadingEndBlock;
 
     /*
      * Indicates that entire grid is reloading.
@@ -114,15 +203,9 @@ public class MainActivity extends AppCompatActivity
      */
     private boolean mIsHighlighted;
     /*
-     * Holds reference to all highlighted views.
-     * This is required because some views might no longer be visible when holding & scrolling,
-     * and resulting in their background not updating properly.
+     * Holds reference to currently selected cell (long press on a cell).
      */
-    private ArrayList<NumberCellTextView> mHighlightedCells;
-    /*
-     * Holds reference to current common factors (long press on a cell).
-     */
-    private Set<Long> mSelectedFactors;
+    private NumberCell mSelectedCell;
 
     /*
      * GestureDetector to identify long press.
@@ -134,6 +217,93 @@ public class MainActivity extends AppCompatActivity
      */
     private float mOldY = -1.0f;
 
+    /*
+     * Decides when and how many cells to generate ahead of viewport, by scroll velocity and generator throughput.
+     */
+    private final PrefetchScheduler mPrefetchScheduler = new PrefetchScheduler();
+    /*
+     * Amount of cells added by last batch (removed when leaving overdraft).
+     */
+    private int mOverdraftCells;
+    /*
+     * Time last batch was started at, for measuring generator throughput.
+     */
+    private long mGenerationStartTime;
+
+    /*
+     * Debug overlay showing generation metrics, and time it was last updated at.
+     */
+    private TextView mDebugOverlayTextView;
+    private long mDebugOverlayUpdateTime;
+
+    /*
+     * Updates debug overlay with generation metrics, at most once per update interval.
+     */
+    private final GridMetrics.GridMetricsListener mMetricsListener = new GridMetrics.GridMetricsListener() {
+        @Override
+        public void onBatchRecorded(GridMetrics metrics, GridMetrics.Batch batch) {
+            long now = SystemClock.uptimeMillis();
+            if (now - mDebugOverlayUpdateTime < DEBUG_OVERLAY_UPDATE_INTERVAL)
+                return;
+
+            mDebugOverlayUpdateTime = now;
+            mDebugOverlayTextView.setText(metrics.getSummary());
+        }
+    };
+
+    /*
+     * Applies everything requested and delivered within a frame to grid as a single adapter transaction.
+     */
+    private final FrameDeliveryChannel.FrameListener mFrameListener = new FrameDeliveryChannel.FrameListener() {
+        @Override
+        public void onFrameStart() {
+            RecyclerView.Adapter adapter = mNumbersGridRecyclerView.getAdapter();
+            if (!(adapter instanceof NumberCellAdapter))
+                return;
+
+            mFrameAdapter = (NumberCellAdapter) adapter;
+            mIsFrameInserted = false;
+            mFrameAdapter.beginTransaction();
+
+            // Changes requested on UI thread go first, delivered cells may fill pending blocks.
+            if (mPendingTrimStart > 0)
+                mFrameAdapter.removeCells(0, mPendingTrimStart);
+            if (mPendingTrimEnd > 0)
+                mFrameAdapter.removeCells(mFrameAdapter.getItemCount() - mPendingTrimEnd, mPendingTrimEnd);
+            mPendingTrimStart = 0;
+            mPendingTrimEnd = 0;
+            mIsTrimPending = false;
+
+            for (NumberCellBlock block : mPendingBlocks)
+                insertCells(mFrameAdapter, block);
+            mPendingBlocks.clear();
+        }
+
+        @Override
+        public void onFrameEnd(int deliveryCount) {
+            NumberCellAdapter adapter = mFrameAdapter;
+            mFrameAdapter = null;
+            if (adapter == null)
+                return;
+
+            // Keep window within capacity, trimming the end opposite to last insertion (full rows from start).
+            if (mIsFrameInserted)
+                adapter.trimToCapacity(mIsFrameAppended, mGridLayoutManager.getSpanCount());
+
+            adapter.commitTransaction();
+
+            if (EventTrace.DEBUG)
+                EventTrace.get().record(EventTrace.FRAME, deliveryCount, adapter.getItemCount());
+
+            // Grid was reloaded around target number, scroll to it once it's in.
+            if (mIsScrollPending && adapter.getItemCount() > 0 && mTargetValue >= adapter.getFirstValue()
+                    && mTargetValue <= adapter.getLastValue()) {
+                mIsScrollPending = false;
+                scrollToCenter((int) (mTargetValue - adapter.getFirstValue()));
+            }
+        }
+    };
+
     /*
      * RecyclerView's scroll listener
      */
@@ -145,7 +315,17 @@ public class MainActivity extends AppCompatActivity
                                final int dy) {
             super.onScrolled(recyclerView, dx, dy);
 
-            Log.d(LOG_TAG, "onScrolled :: isLoading=" + mIsLoading + " dx=" + dx + " dy=" + dy + " isMeasuring=" + mIsMeasuring);
+            if (EventTrace.VERBOSE)
+                EventTrace.get().record(EventTrace.SCROLL, dy, recyclerView.getAdapter().getItemCount());
+
+            // Generate pending batches nearest to viewport first.
+            updateGenerationFocus();
+
+            if (mIsVirtual) {
+                // Positions map to numbers already, only request blocks ahead of viewport.
+                prefetchVirtualBlocks(dy);
+                return;
+            }
 
             if (mIsMeasuring) {
                 /*
@@ -182,7 +362,8 @@ public class MainActivity extends AppCompatActivity
                 int estimatedCells = estimatedRows * spanCount;
                 int totalCells = estimatedCells * spanCount;
 
-                Log.d(LOG_TAG, "onScrolled :: itemCount=" + currentVisibleItems + " avgHeight=" + avgHeight + " estimatedCells=" + estimatedCells + " totalCells=" + totalCells);
+                if (EventTrace.DEBUG)
+                    EventTrace.get().record(EventTrace.MEASURE, estimatedCells, totalCells);
 
                 // Flag as no longer measuring to avoid this process for further scrolling.
                 mIsMeasuring = false;
@@ -199,8 +380,8 @@ public class MainActivity extends AppCompatActivity
                 }
             }
 
-            // Don't do anything if we are still loading additional items.
-            if (mIsLoading)
+            // Don't do anything while removing items, positions change on next frame.
+            if (mIsTrimPending)
                 return;
 
             final NumberCellAdapter adapter = (NumberCellAdapter)
@@ -212,116 +393,73 @@ public class MainActivity extends AppCompatActivity
             final int lastCompletelyVisibleItem = mGridLayoutManager.findLastCompletelyVisibleItemPosition();
             final int firstCompletelyVisibleItem = mGridLayoutManager.findFirstCompletelyVisibleItemPosition();
 
-            final int itemCount = adapter.getData().size();
-
-            Log.d(LOG_TAG, "onScrolled :: firstV:" + firstCompletelyVisibleItem + " lastV:" + lastCompletelyVisibleItem + " T:" + itemCount + " overdraft?" + mIsOverDraft);
-
-            /*
-             * Calculate thresholds for scrolling up (higher) and down (lower).
-             */
-            final int lowerThreshold;
-            final int higherThreshold;
-            if (mIsOverDraft) {
-                // Set lower threshold as half of original item count + added items
-                lowerThreshold = itemCount - (itemCount - mExtraCells) / 2;
-                // Set high threshold as half of all items.
-                higherThreshold = (itemCount - mExtraCells) / 2;
-            } else {
-                // Set lower and higher threshold as 50% of current items.
-                lowerThreshold = itemCount / 2;
-                higherThreshold = lowerThreshold;
-            }
+            final int itemCount = adapter.getItemCount();
+            final int spanCount = mGridLayoutManager.getSpanCount();
 
-            Log.d(LOG_TAG, "onScrolled :: threshold:" + lowerThreshold + " thresholdPercentage:" + (lowerThreshold*100 / (float)itemCount));
+            // Sample scroll velocity and grid geometry for prefetching.
+            updatePrefetchScheduler(dy);
+            final int prefetchDistance = mPrefetchScheduler.getPrefetchDistance();
 
-            // Scroll down.
-            if (dy > 0) {
-                // Passed threshold.
-                if (lastCompletelyVisibleItem >= lowerThreshold) {
-                    Log.d(LOG_TAG, "onScrolled :: passed threshold on scroll down");
+            // Scroll down, unless still loading items at the end.
+            if (dy > 0 && mLoadingEndBlock == null) {
+                // Less than prefetch distance is left below viewport.
+                if (itemCount - 1 - lastCompletelyVisibleItem <= prefetchDistance) {
+                    if (EventTrace.DEBUG)
+                        EventTrace.get().record(EventTrace.THRESHOLD_DOWN, lastCompletelyVisibleItem, itemCount);
                     // Check if we already loaded extra cells.
                     if (mIsOverDraft) {
+                        // Remove as many cells as last batch added, but only full rows above viewport.
+                        final int removeAmount = Math.min(mOverdraftCells,
+                                firstCompletelyVisibleItem / spanCount * spanCount);
+
                         // Flag as no longer in overdraft since we are removing the cells.
                         mIsOverDraft = false;
-                        // Flag as loading as we have another pending transaction.
-                        mIsLoading = true;
-
-                        Log.d(LOG_TAG, "onScrolled :: posting with removal of cells: 0-x");
-                        // Post about update.
-                        recyclerView.post(new Runnable() {
-                            @Override
-                            public void run() {
-                                // Remove previous added items.
-                                adapter.removeCells(0, mExtraCells);
-                                Log.d(LOG_TAG, "onScrolled :: run :: notifying range removed (0-x).");
-                                // Notify adapter.
-                                adapter.notifyItemRangeRemoved(0, mExtraCells);
-                                // Flag as no longer loading as our transaction has ended.
-                                mIsLoading = false;
-                                Log.d("MainActivity", "onScrolled :: run :: success.");
-                            }
-                        });
+
+                        // Remove previous added items on next frame, along with any delivered cells.
+                        requestTrim(removeAmount, 0);
 
                         // Exit early to avoid adding more items.
                         return;
                     }
 
-                    // Not at overdraft, simply add more items to the bottom.
-
-                    Log.d(LOG_TAG, "onScrolled :: starting generator.");
-                    // Buffer additional items for infinite scrolling experience.
-                    generateCells(adapter.getData().get(itemCount - 1)
-                            .getValue() + 1, mExtraCells, true);
+                    // Not at overdraft, simply add more items to the bottom, as long as the last item in data is not Long.MAX_VALUE.
+                    if (adapter.getLastValue() < Long.MAX_VALUE) {
+                        // Buffer additional items for infinite scrolling experience.
+                        generateCells(adapter.getLastValue() + 1, mPrefetchScheduler.getBatchSize(), true);
 
-                    // Flag that we currently have more items than usual, and they must be removed at some point before adding more items.
-                    mIsOverDraft = true;
+                        // Flag that we currently have more items than usual, and they must be removed at some point before adding more items.
+                        mIsOverDraft = true;
+                    }
                 }
             }
 
-            // Scroll up
-            if (dy < 0) {
-                if (firstCompletelyVisibleItem <= higherThreshold) {
-                    Log.d(LOG_TAG, "onScrolled :: passed threshold on scrolling up");
+            // Scroll up, unless still loading items at the start.
+            if (dy < 0 && mLoadingStartBlock == null) {
+                // Less than prefetch distance is left above viewport.
+                if (firstCompletelyVisibleItem <= prefetchDistance) {
+                    if (EventTrace.DEBUG)
+                        EventTrace.get().record(EventTrace.THRESHOLD_UP, firstCompletelyVisibleItem, itemCount);
 
                     // Find lowest value in data.
-                    final long lowest = adapter.getData().get(0).getValue();
+                    final long lowest = adapter.getFirstValue();
 
                     // Check if we have extra cells.
                     if (mIsOverDraft) {
-                        // Find first index of extra cells.
-                        final int removeIndex = itemCount - mExtraCells;
-
+                        // Remove as many cells as last batch added, but only below viewport.
+                        final int removeAmount = Math.min(mOverdraftCells,
+                                (itemCount - 1 - lastCompletelyVisibleItem) / spanCount * spanCount);
                         // Flag that we no longer have extra cells.
                         mIsOverDraft = false;
-                        // Flag as loading since we are about to post and have a pending transaction.
-                        mIsLoading = true;
-                        Log.d(LOG_TAG, "onScrolled :: posting overdraft removal.");
-                        // Post about update.
-                        recyclerView.post(new Runnable() {
-                            @Override
-                            public void run() {
-                                Log.d(LOG_TAG, "onScrolled :: run :: removing extra cells: (" + removeIndex + "-" + removeIndex + "+x).");
-                                // Remove previous added items.
-                                adapter.removeCells(removeIndex, mExtraCells);
-                                Log.d(LOG_TAG, "onScrolled :: run :: notifying range removed (" + removeIndex + "-" + removeIndex + "+x).");
-                                adapter.notifyItemRangeRemoved(removeIndex, mExtraCells);
-
-                                // Flag as no longer loading.
-                                mIsLoading = false;
-
-                                Log.d(LOG_TAG, "onScrolled :: run :: success.");
-
-                                // Check if we need to load more on the way up. This is true as long as the first item in data is not 0.
-                                if (lowest > NumberCellGeneratorTask.MIN_NUMBER) {
-                                    Log.d(LOG_TAG, "onScrolled :: starting generator (negative).");
-                                    // Buffer additional items for infinite scrolling experience.
-                                    generateCells(lowest - 1, mExtraCells, false);
-                                    // Flag that we currently have more items than usual, and they must be removed at some point before adding more items.
-                                    mIsOverDraft = true;
-                                }
-
-                            }
-                        });
+                        // Remove previous added items on next frame, along with any delivered cells.
+                        requestTrim(0, removeAmount);
+
+                        // Check if we need to load more on the way up. This is true as long as the first item in data is not 0.
+                        if (lowest > NumberCellGeneratorTask.MIN_NUMBER) {
+                            // Buffer additional items for infinite scrolling experience.
+                            generateCells(lowest - 1, mPrefetchScheduler.getBatchSize(), false);
+                            // Flag that we currently have more items than usual, and they must be removed at some point before adding more items.
+                            mIsOverDraft = true;
+                        }
 
                         // Exit early to avoid adding more items (to the beginning).
                         return;
@@ -329,15 +467,23 @@ public class MainActivity extends AppCompatActivity
 
                     // Not in overdraft, check if we need to add any more items (first item is not 0).
                     if (lowest > NumberCellGeneratorTask.MIN_NUMBER) {
-                        Log.d(LOG_TAG, "onScrolled :: starting generator (opposite).");
                         // Buffer additional items for infinite scrolling experience
-                        generateCells(lowest - 1, mExtraCells, false);
+                        generateCells(lowest - 1, mPrefetchScheduler.getBatchSize(), false);
                         // Flag that we currently have more items than usual, and they must be removed at some point before adding more items.
                         mIsOverDraft = true;
                     }
                 }
             }
         }
+
+        @Override
+        public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+            super.onScrollStateChanged(recyclerView, newState);
+
+            // Scrolling stopped, velocity is no longer relevant for prefetching.
+            if (newState == RecyclerView.SCROLL_STATE_IDLE)
+                mPrefetchScheduler.onScrollStopped();
+        }
     };
 
     @Override
@@ -345,18 +491,21 @@ public class MainActivity extends AppCompatActivity
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
-        mHighlightedCells = new ArrayList<>();
-
         mProgressBar = (ProgressBar) findViewById(R.id.progressBar);
+        mDebugOverlayTextView = (TextView) findViewById(R.id.debugOverlayTextView);
 
         // Create gesture detector for natural numbers grid.
         mGestureDetector = new GestureDetectorCompat(this, this);
 
         /*
-         * Initialize number generator.
+         * Initialize number generator, delivering cells once per frame.
          */
+        mDeliveryChannel = new FrameDeliveryChannel(new Handler(getMainLooper()));
+        mDeliveryChannel.setFrameListener(mFrameListener);
         mGenerator = new NumberCellGeneratorTask(0, mMinItemCount,
-                true, this, new Handler(getMainLooper()));
+                true, this, mDeliveryChannel);
+        // Keep sieved primality between launches.
+        mGenerator.setPrimeCacheFile(new File(getFilesDir(), PRIME_CACHE_FILE_NAME));
 
         /*
          * Initialize grid RecyclerView.
@@ -366,26 +515,68 @@ public class MainActivity extends AppCompatActivity
         mNumbersGridRecyclerView = (RecyclerView) findViewById(
                 R.id.numbersGridRecyclerView);
         mNumbersGridRecyclerView.setLayoutManager(mGridLayoutManager);
-        mNumbersGridRecyclerView.setAdapter(new NumberCellAdapter());
+        NumberCellAdapter initialAdapter = new NumberCellAdapter(getWindowCapacity());
+        initialAdapter.setMetrics(mGenerator.getMetrics());
+        mNumbersGridRecyclerView.setAdapter(initialAdapter);
         mNumbersGridRecyclerView.addOnScrollListener(mRecyclerViewScrollListener);
         mNumbersGridRecyclerView.addOnItemTouchListener(this);
 
+        mBlockCache = new NumberCellBlockCache(VIRTUAL_BLOCK_SIZE, MIN_CACHED_BLOCKS,
+                new NumberCellBlockCache.BlockLoader() {
+                    @Override
+                    public void loadBlock(long start, int count) {
+                        generateCells(start, count, true);
+                    }
+                });
+
         mFactorsPopupBox = new FactorsPopupBox(MainActivity.this,
                 (ViewGroup) findViewById(R.id.factorsBoxLayout));
 
+        // Restore previous viewport, if activity was recreated.
+        restoreSnapshot(savedInstanceState);
+
         syncPreferences();
 
         // Flag as currently measuring.
         mIsMeasuring = true;
 
-        mGenerator.start();
+        // Restored grid is shown as is, no need to generate its first numbers.
+        if (mRestoredSnapshot == null)
+            generateCells(NumberCellGeneratorTask.MIN_NUMBER, mMinItemCount, true);
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+
+        NumberCellSnapshot snapshot = createSnapshot();
+        if (snapshot != null) {
+            byte[] data = snapshot.toByteArray();
+            Log.d(LOG_TAG, "onSaveInstanceState :: saving snapshot of " + snapshot.getBlock() + " (" + data.length + " bytes).");
+            outState.putByteArray(STATE_SNAPSHOT, data);
+        }
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        // Continue generating batches kept while paused.
+        mGenerator.resume();
     }
 
     @Override
     protected void onPause() {
         super.onPause();
-        //Set generator to idle if paused.
-        mGenerator.idle();
+        // Stop generating while in background, without waiting for running batch.
+        mGenerator.pause();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        mGenerator.getMetrics().removeListener(mMetricsListener);
+        // Stop generator's background threads.
+        mGenerator.release();
     }
 
     @Override
@@ -402,6 +593,12 @@ public class MainActivity extends AppCompatActivity
                         SettingsActivity.class);
                 startActivityForResult(intent, REQUEST_CODE_ACTIVITY_SETTINGS);
                 return true;
+            case R.id.menuItemGoTo:
+                showGoToDialog();
+                return true;
+            case R.id.menuItemDumpTrace:
+                dumpTrace();
+                return true;
         }
         return super.onOptionsItemSelected(item);
     }
@@ -446,23 +643,26 @@ public class MainActivity extends AppCompatActivity
 
     @Override
     public void onLongPress(MotionEvent motionEvent) {
-        Log.d(LOG_TAG, "OnGestureListener :: onLongPress :: e=" + motionEvent);
         // Find child's root view matching touch coordinates.
         View layout = mNumbersGridRecyclerView.findChildViewUnder(
                 motionEvent.getX(), motionEvent.getY());
+        if (layout == null)
+            return;
         // Find adapter's position for this layout.
         int childPos = mNumbersGridRecyclerView
                 .getChildAdapterPosition(layout);
-        // Get cell data for this child.
-        NumberCellAdapter adapter = (NumberCellAdapter)
-                mNumbersGridRecyclerView.getAdapter();
-        NumberCell cellData = adapter.getData().get(childPos);
-        Log.d(LOG_TAG, "OnGestureListener :: onLongPress :: child=" + cellData + " factors=" + cellData.getFactors());
+        // Get cell data for this child (no data for placeholders).
+        NumberCellTextView cellView = layout.findViewById(R.id.numberTextView);
+        NumberCell cellData = cellView.getCellData();
+        if (cellData == null)
+            return;
+        if (EventTrace.DEBUG)
+            EventTrace.get().record(EventTrace.LONG_PRESS, cellData.getValue(), childPos);
 
         // Avoid any operations for primes and 0,1,2,3. No cells should highlight for these values.
         if (!cellData.isPrime() && (cellData.getValue() > 3)) {
-            mSelectedFactors = cellData.getFactors();
-            toggleHighlightForVisibleItems(true, mSelectedFactors);
+            mSelectedCell = cellData;
+            setGridHighlight(mSelectedCell);
             mIsHighlighted = true;
         }
 
@@ -508,6 +708,8 @@ public class MainActivity extends AppCompatActivity
     @Override
     public boolean onFling(MotionEvent motionEvent, MotionEvent motionEvent1,
                            float v, float v1) {
+        // Finger moving up (negative velocity) scrolls grid down.
+        mPrefetchScheduler.onFling(-v1, SystemClock.uptimeMillis());
         return false;
     }
 
@@ -519,8 +721,8 @@ public class MainActivity extends AppCompatActivity
         if (e.getAction() == MotionEvent.ACTION_UP) {
             // Return all cells to original highlight state.
             if (mIsHighlighted) {
-                toggleHighlightForVisibleItems(false, null);
-                mSelectedFactors = null;
+                setGridHighlight(null);
+                mSelectedCell = null;
                 mIsHighlighted = false;
 
                 // Set old y as -1 to reset delta calculation.
@@ -529,10 +731,8 @@ public class MainActivity extends AppCompatActivity
 
             mFactorsPopupBox.hide();
         } else if (e.getAction() == MotionEvent.ACTION_MOVE) {
-            // Highlight new visible cells as user scrolls.
-            if (mIsHighlighted && (mSelectedFactors != null)) {
-                toggleHighlightForVisibleItems(true, mSelectedFactors);
-
+            // Cells scrolled into view are bound with their highlight already.
+            if (mIsHighlighted && (mSelectedCell != null)) {
                 /*
                  * Code below makes sure popup box stays above selected cell.
                  */
@@ -579,89 +779,124 @@ public class MainActivity extends AppCompatActivity
      */
 
     @Override
-    public void onCellsReady(final NumberCell[] cells) {
-        Log.d(LOG_TAG, "onCellsReady :: called with cells: "
-                + Utils.getStringForArray(cells));
+    public void onCellsReady(NumberCellBlock block, int epoch) {
+        if (EventTrace.DEBUG)
+            EventTrace.get().record(EventTrace.BATCH_DELIVERED, block.getStart(), epoch);
 
-        final NumberCellAdapter adapter =
-                (NumberCellAdapter) mNumbersGridRecyclerView.getAdapter();
+        // Drop results of cancelled generation (grid was reloaded since).
+        if (epoch != mGenerator.getEpoch())
+            return;
 
-        final int indexStart;
-        if (mGenerator.getDirection()) {
-            // Add cells to the end as the direction is positive (scrolling down).
-            indexStart = adapter.getData().size() - 1;
-        } else {
-            // Insert cells to the start as the direction is negative (scrolling up).
-            indexStart = 0;
+        // Measure generator throughput, including delivery.
+        mPrefetchScheduler.onBatchGenerated(block.getCount(),
+                SystemClock.uptimeMillis() - mGenerationStartTime);
+
+        RecyclerView.Adapter adapter = mNumbersGridRecyclerView.getAdapter();
+        if (adapter instanceof VirtualNumberCellAdapter) {
+            // Caches block, rebinds its placeholders and starts generating next requested block.
+            ((VirtualNumberCellAdapter) adapter).onBlockReady(block);
+            return;
         }
 
-        Log.d(LOG_TAG, "onCellsReady :: posting with indexStart=" + indexStart);
+        // Either end extends again once its batch is in (a coalesced batch may cover both).
+        if (mLoadingStartBlock != null && overlaps(block, mLoadingStartBlock))
+            mLoadingStartBlock = null;
+        if (mLoadingEndBlock != null && overlaps(block, mLoadingEndBlock))
+            mLoadingEndBlock = null;
 
-        // Post task to ensure RecyclerView is ready.
-        mNumbersGridRecyclerView.post(new Runnable() {
+        // Delivered within a frame, applied to frame's transaction.
+        if (mFrameAdapter == null)
+            return;
 
-            @Override
-            public void run() {
-                Log.d(LOG_TAG, "onCellsReady :: run :: inserting " + cells.length + " at index=" + indexStart);
-                int added = adapter.insertCells(cells, indexStart, cells.length);
-                Log.d(LOG_TAG, "onCellsReady :: run :: notifying range added (" + indexStart + "-" +(indexStart + added)+").");
-                adapter.notifyItemRangeInserted(indexStart, added);
+        // Requested window was inserted as pending cells ahead of generation, so batches may arrive in any
+        // order. Fill in whatever is still in grid (and wasn't filled by segments), trimmed cells are gone.
+        mFrameAdapter.fillBlock(block);
+
+        // Hide progress animation.
+        toggleGridLoadingProgress(false);
+    }
 
-                // Flag as finished loading.
-                mIsLoading = false;
+    @Override
+    public void onSegmentReady(NumberCellBlock segment, int epoch) {
+        // Drop segments of cancelled generation, or of another scrolling mode.
+        if (epoch != mGenerator.getEpoch() || mFrameAdapter == null)
+            return;
 
-                // Hide progress animation.
-                toggleGridLoadingProgress(false);
+        mFrameAdapter.fillBlock(segment);
+    }
 
-                Log.d(LOG_TAG, "onCellsReady :: run :: success.");
-            }
-        });
+    /*
+     * Helper method to check if given blocks have any number in common.
+     */
+    private static boolean overlaps(NumberCellBlock first, NumberCellBlock second) {
+        return first.getStart() <= second.getEnd() && second.getStart() <= first.getEnd();
     }
 
     /*
-     * Helper methods to highlight all visible items with common factor.
+     * Helper method to insert block of cells at the start or at the end of grid, according to its values.
+     * Runs within a frame, the opposite end is trimmed to capacity once frame ends.
      */
-    private void toggleHighlightForVisibleItems(boolean toggle, Set<Long> factors) {
-        if (mNumbersGridRecyclerView == null)
+    private void insertCells(NumberCellAdapter adapter, NumberCellBlock block) {
+        mOverdraftCells = block.getCount();
+
+        int indexStart = adapter.insertBlock(block);
+        if (indexStart < 0)
             return;
 
-        if (toggle) {
-            // Iterate through all visible items.
-            int childCount = mNumbersGridRecyclerView.getChildCount();
-            boolean highlight;
-            for (int i = 0; i < childCount; i++) {
-                highlight = false;
-                View child = mNumbersGridRecyclerView.getChildAt(i);
-                if (child == null)
-                    continue;
-
-                // Get cell view and data.
-                NumberCellTextView cellView = child
-                        .findViewById(R.id.numberTextView);
-                NumberCell childData = cellView.getCellData();
-                // Check if the number itself is a factor.
-                if (factors.contains(childData.getValue())) {
-                    highlight = true;
-                } else {
-                    // Check if any of the factors match.
-                    if (Utils.hasCommonFactor(factors,
-                            childData.getFactors())) {
-                        highlight = true;
-                    }
-                }
+        mIsFrameInserted = true;
+        mIsFrameAppended = (indexStart > 0);
+    }
 
-                if (highlight) {
-                    cellView.highlight(true);
-                    mHighlightedCells.add(cellView);
-                }
-            }
+    /*
+     * Helper method to request blocks ahead of viewport for virtual scrolling.
+     */
+    private void prefetchVirtualBlocks(int dy) {
+        if (dy == 0)
+            return;
+
+        updatePrefetchScheduler(dy);
+        int prefetchDistance = mPrefetchScheduler.getPrefetchDistance();
+
+        VirtualNumberCellAdapter adapter =
+                (VirtualNumberCellAdapter) mNumbersGridRecyclerView.getAdapter();
+        if (dy > 0) {
+            int lastVisible = mGridLayoutManager.findLastVisibleItemPosition();
+            adapter.prefetch(lastVisible + prefetchDistance);
         } else {
-            // Disable highlight for all cells.
-            for (NumberCellTextView cellTextView : mHighlightedCells) {
-                cellTextView.highlight(false);
+            int firstVisible = mGridLayoutManager.findFirstVisibleItemPosition();
+            adapter.prefetch(firstVisible - prefetchDistance);
+        }
+    }
+
+    /*
+     * Helper method to highlight cells sharing a factor with given cell, computed once by adapter and rebound
+     * with highlight payload. Null removes highlight.
+     */
+    private void setGridHighlight(NumberCell selectedCell) {
+        if (mNumbersGridRecyclerView == null)
+            return;
+
+        RecyclerView.Adapter adapter = mNumbersGridRecyclerView.getAdapter();
+        if (mIsVirtual) {
+            VirtualNumberCellAdapter virtualAdapter = (VirtualNumberCellAdapter) adapter;
+            if (selectedCell == null) {
+                virtualAdapter.clearHighlight();
+                return;
             }
 
-            mHighlightedCells.clear();
+            // Item count is virtual, cover viewport and buffer around it only.
+            int firstVisible = mGridLayoutManager.findFirstVisibleItemPosition();
+            int lastVisible = mGridLayoutManager.findLastVisibleItemPosition();
+            if (firstVisible == RecyclerView.NO_POSITION || lastVisible == RecyclerView.NO_POSITION)
+                return;
+
+            virtualAdapter.setHighlight(selectedCell, firstVisible - mExtraCells, lastVisible + 1 + mExtraCells);
+        } else {
+            NumberCellAdapter numberCellAdapter = (NumberCellAdapter) adapter;
+            if (selectedCell == null)
+                numberCellAdapter.clearHighlight();
+            else
+                numberCellAdapter.setHighlight(selectedCell);
         }
     }
 
@@ -678,11 +913,31 @@ public class MainActivity extends AppCompatActivity
         int bufferSize = preferences.getInt(getString(
                 R.string.preference_buffer_key), DEFAULT_BUFFER_SIZE);
 
-        // Apply data from preference.
-        setSpanAndBufferSize(spanCount, bufferSize);
+        boolean isVirtual = preferences.getBoolean(getString(
+                R.string.preference_virtual_scrolling_key),
+                getResources().getBoolean(R.bool.preference_default_virtual_scrolling));
+        boolean isVirtualChanged = (isVirtual != mIsVirtual);
+        mIsVirtual = isVirtual;
+
+        mIsProgressive = preferences.getBoolean(getString(
+                R.string.preference_progressive_key),
+                getResources().getBoolean(R.bool.preference_default_progressive));
+        // Virtual grid shows placeholders of its own, by block.
+        mGenerator.setProgressive(mIsProgressive && !mIsVirtual);
+
+        setDebugOverlayEnabled(preferences.getBoolean(getString(
+                R.string.preference_debug_overlay_key),
+                getResources().getBoolean(R.bool.preference_default_debug_overlay)));
+
+        // Apply data from preference, switching scrolling mode requires reloading as well.
+        if (!setSpanAndBufferSize(spanCount, bufferSize) && isVirtualChanged)
+            reloadGrid(true);
     }
 
-    private void setSpanAndBufferSize(int spanCount, int bufferSize) {
+    /*
+     * Helper method to apply span and buffer size. Returns true if grid is reloaded.
+     */
+    private boolean setSpanAndBufferSize(int spanCount, int bufferSize) {
         int currentSpanCount = mGridLayoutManager.getSpanCount();
 
         // Check if any setting has changed.
@@ -704,13 +959,20 @@ public class MainActivity extends AppCompatActivity
             // Calculate updated extra cells.
             mExtraCells = mBufferSize * spanCount;
 
+            // Virtual scrolling caches about as many cells as buffered before and after viewport.
+            mBlockCache.setCapacity(Math.max(MIN_CACHED_BLOCKS,
+                    2 * mExtraCells / VIRTUAL_BLOCK_SIZE));
+
             /*
              * Changing either buffer size or span count changes amount of extra
              * cells to load, therefore everything must be reloaded.
              */
 
             reloadGrid(true);
+            return true;
         }
+
+        return false;
     }
 
     /*
@@ -728,36 +990,303 @@ public class MainActivity extends AppCompatActivity
         // Reset flags.
         mIsHighlighted = false;
         mIsOverDraft = false;
-        mIsLoading = false;
+        mLoadingStartBlock = null;
+        mLoadingEndBlock = null;
         // Set measuring flag.
         mIsMeasuring = requiresMeasuring;
 
         mNumbersGridRecyclerView.post(new Runnable() {
             @Override
             public void run() {
-                // Remove any pending transactions.
-                new Handler(getMainLooper()).removeCallbacksAndMessages(null);
-                // Remove any callbacks from generator to avoid mixing up results.
-                mNumbersGridRecyclerView.removeCallbacks(mGenerator);
+                // Cancel current generation, its results (even if already posted) are dropped.
+                mGenerator.cancel();
+                // Changes requested for previous grid are dropped as well.
+                mPendingBlocks.clear();
+                mPendingTrimStart = 0;
+                mPendingTrimEnd = 0;
+                mIsTrimPending = false;
+                // New grid is generated around target number first.
+                mGenerator.setFocus(mTargetValue);
+
+                // Snapshot is only shown on first load, as long as grid layout didn't change.
+                NumberCellSnapshot snapshot = takeRestoredSnapshot();
+
+                if (mIsVirtual) {
+                    // Cells are generated on demand while binding, as blocks of cache.
+                    mBlockCache.clear();
+                    // Leave as many positions before target number as after it.
+                    long firstValue = getRowStart(mTargetValue - Integer.MAX_VALUE / 2);
+                    VirtualNumberCellAdapter adapter = new VirtualNumberCellAdapter(mBlockCache, firstValue);
+                    adapter.setMetrics(mGenerator.getMetrics());
+                    mNumbersGridRecyclerView.setAdapter(adapter);
+                    if (snapshot != null) {
+                        // Show restored cells instead of placeholders while their blocks are generated.
+                        adapter.setRestoredBlock(snapshot.getBlock());
+                        mGridLayoutManager.scrollToPositionWithOffset(
+                                adapter.getPosition(snapshot.getFirstVisibleValue()), snapshot.getScrollOffset());
+                    } else {
+                        scrollToCenter(adapter.getPosition(mTargetValue));
+                    }
+                    toggleGridLoadingProgress(false);
+                    return;
+                }
+
                 // Create new adapter.
-                mNumbersGridRecyclerView.setAdapter(new NumberCellAdapter());
+                NumberCellAdapter adapter = new NumberCellAdapter(getWindowCapacity());
+                adapter.setMetrics(mGenerator.getMetrics());
+                mNumbersGridRecyclerView.setAdapter(adapter);
+
+                if (snapshot != null) {
+                    // Show restored cells right away, more are generated once grid is scrolled.
+                    adapter.insertBlock(snapshot.getBlock());
+                    adapter.notifyDataSetChanged();
+                    mGridLayoutManager.scrollToPositionWithOffset(
+                            (int) (snapshot.getFirstVisibleValue() - adapter.getFirstValue()),
+                            snapshot.getScrollOffset());
+                    mIsScrollPending = false;
+                    toggleGridLoadingProgress(false);
+                    return;
+                }
+
                 // Redraw RecyclerView with empty grid.
-                mNumbersGridRecyclerView.getAdapter().notifyDataSetChanged();
-                // Show loading animation.
-                toggleGridLoadingProgress(true);
-                // Start generating first numbers.
-                generateCells(0, mMinItemCount, true);
+                adapter.notifyDataSetChanged();
+                // Show loading animation, unless cells are filled in segment by segment.
+                toggleGridLoadingProgress(!mIsProgressive);
+                // Start generating first numbers, centered on target number.
+                mIsScrollPending = true;
+                generateCells(getRowStart(mTargetValue - mMinItemCount / 2), mMinItemCount, true);
             }
         });
     }
     
+    /*
+     * Helper method to snapshot visible cells (full rows), or null if there's nothing to save.
+     */
+    private NumberCellSnapshot createSnapshot() {
+        if (mIsGridLoading)
+            return null;
+
+        int firstVisible = mGridLayoutManager.findFirstVisibleItemPosition();
+        int lastVisible = mGridLayoutManager.findLastVisibleItemPosition();
+        if (firstVisible == RecyclerView.NO_POSITION || lastVisible == RecyclerView.NO_POSITION)
+            return null;
+
+        View firstView = mGridLayoutManager.findViewByPosition(firstVisible);
+        int scrollOffset = (firstView != null) ? firstView.getTop() : 0;
+        // Start from row of first visible cell, so numbers stay in their columns when restored.
+        int spanCount = mGridLayoutManager.getSpanCount();
+        int from = firstVisible - firstVisible % spanCount;
+
+        RecyclerView.Adapter adapter = mNumbersGridRecyclerView.getAdapter();
+        NumberCellBlock block;
+        if (mIsVirtual) {
+            block = ((VirtualNumberCellAdapter) adapter).getBlock(from, lastVisible + 1);
+        } else {
+            block = ((NumberCellAdapter) adapter).getBlock(from, lastVisible + 1);
+        }
+
+        if (block == null)
+            return null;
+
+        return new NumberCellSnapshot(spanCount, mMinItemCount, block.getStart(), scrollOffset, mIsVirtual,
+                block);
+    }
+
+    /*
+     * Helper method to restore snapshot saved in instance state, if any.
+     */
+    private void restoreSnapshot(Bundle savedInstanceState) {
+        if (savedInstanceState == null)
+            return;
+
+        byte[] data = savedInstanceState.getByteArray(STATE_SNAPSHOT);
+        if (data == null)
+            return;
+
+        try {
+            mRestoredSnapshot = NumberCellSnapshot.fromByteArray(data);
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "restoreSnapshot :: discarding invalid snapshot.", e);
+            return;
+        }
+
+        // Grid is reloaded around previous viewport even if snapshot can't be shown as is.
+        mTargetValue = mRestoredSnapshot.getFirstVisibleValue();
+        // Screen size is most likely the same, avoid reloading once measured.
+        mMinItemCount = mRestoredSnapshot.getMinItemCount();
+    }
+
+    /*
+     * Helper method to take restored snapshot, if it still matches grid layout.
+     */
+    private NumberCellSnapshot takeRestoredSnapshot() {
+        NumberCellSnapshot snapshot = mRestoredSnapshot;
+        mRestoredSnapshot = null;
+
+        if (snapshot == null || snapshot.isVirtual() != mIsVirtual
+                || snapshot.getSpanCount() != mGridLayoutManager.getSpanCount())
+            return null;
+
+        return snapshot;
+    }
+
+    /*
+     * Helper method to reload grid centered on given number.
+     */
+    private void goToNumber(long value) {
+        mTargetValue = Math.max(NumberCellGeneratorTask.MIN_NUMBER, value);
+
+        // Screen size is already known, no need to measure.
+        reloadGrid(false);
+    }
+
+    /*
+     * Helper method to write recorded trace events to log, one line per event.
+     */
+    private void dumpTrace() {
+        StringBuilder builder = new StringBuilder();
+        int count;
+        try {
+            count = EventTrace.get().dump(builder);
+        } catch (IOException e) {
+            // StringBuilder never fails appending.
+            throw new IllegalStateException(e);
+        }
+
+        for (String line : builder.toString().split("\n"))
+            Log.i(TRACE_LOG_TAG, line);
+
+        Toast.makeText(MainActivity.this, getString(R.string.dump_trace_done, count), Toast.LENGTH_SHORT).show();
+    }
+
+    /*
+     * Helper method to show dialog for entering number to go to.
+     */
+    private void showGoToDialog() {
+        final EditText input = new EditText(MainActivity.this);
+        input.setInputType(InputType.TYPE_CLASS_NUMBER);
+        input.setHint(R.string.go_to_hint);
+
+        new AlertDialog.Builder(MainActivity.this)
+                .setTitle(R.string.go_to_title)
+                .setView(input)
+                .setPositiveButton(android.R.string.ok, new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialogInterface, int which) {
+                        try {
+                            goToNumber(Long.parseLong(input.getText().toString().trim()));
+                        } catch (NumberFormatException e) {
+                            Toast.makeText(MainActivity.this, R.string.go_to_invalid,
+                                    Toast.LENGTH_SHORT).show();
+                        }
+                    }
+                })
+                .setNegativeButton(android.R.string.cancel, null)
+                .show();
+    }
+
+    /*
+     * Helper method to find first number in row of given number (numbers are aligned to columns by value),
+     * bounded to minimum number.
+     */
+    private long getRowStart(long value) {
+        value = Math.max(NumberCellGeneratorTask.MIN_NUMBER, value);
+        return value - value % mGridLayoutManager.getSpanCount();
+    }
+
+    /*
+     * Helper method to scroll so that given position is at the middle of the grid.
+     */
+    private void scrollToCenter(int position) {
+        mGridLayoutManager.scrollToPositionWithOffset(position,
+                mNumbersGridRecyclerView.getHeight() / 2);
+    }
+
     private void generateCells(long start, int range, boolean direction) {
-        mGenerator.setRangeStart(start);
-        mGenerator.setDirection(direction);
-        mGenerator.start(range);
+        mGenerationStartTime = SystemClock.uptimeMillis();
+
+        if (!mIsVirtual) {
+            // Show numbers right away, their properties are filled in as they are generated (segment by segment
+            // when progressive). Requested ahead of generation, so it's inserted (on next frame) before anything
+            // is delivered.
+            NumberCellBlock pending = NumberCellBlock.pending(
+                    NumberCellGeneratorTask.getWindowLow(start, range, direction),
+                    NumberCellGeneratorTask.getWindowCount(start, range, direction));
+            mPendingBlocks.add(pending);
+            mDeliveryChannel.requestFrame();
+
+            // Flag end as loading.
+            if (direction)
+                mLoadingEndBlock = pending;
+            else
+                mLoadingStartBlock = pending;
+        }
+
+        mGenerator.start(start, range, direction);
+    }
+
+    /*
+     * Helper method to remove given amount of cells from start and from end of grid on next frame.
+     */
+    private void requestTrim(int fromStart, int fromEnd) {
+        mPendingTrimStart += fromStart;
+        mPendingTrimEnd += fromEnd;
+        mIsTrimPending = true;
+        mDeliveryChannel.requestFrame();
+    }
+
+    /*
+     * Helper method to calculate maximum amount of cells in grid (without virtual scrolling): cells for the
+     * screen and buffered cells on both sides.
+     */
+    private int getWindowCapacity() {
+        return mMinItemCount + 2 * mExtraCells;
+    }
 
-        // Flag as loading.
-        mIsLoading = true;
+    /*
+     * Helper method to update prefetch scheduler with scroll delta and current grid geometry.
+     */
+    private void updatePrefetchScheduler(int dy) {
+        mPrefetchScheduler.onScrolled(dy, SystemClock.uptimeMillis());
+
+        View firstChild = mNumbersGridRecyclerView.getChildAt(0);
+        if (firstChild != null) {
+            int visibleCells = mNumbersGridRecyclerView.getChildCount();
+            mPrefetchScheduler.setGeometry(mGridLayoutManager.getSpanCount(),
+                    firstChild.getHeight(), visibleCells);
+            // Batches range from a single screen (slow browsing) up to buffer size.
+            mPrefetchScheduler.setBatchBounds(visibleCells, mExtraCells);
+        }
+    }
+
+    /*
+     * Helper method to prioritize generation of batches nearest to first visible number.
+     */
+    private void updateGenerationFocus() {
+        int firstVisible = mGridLayoutManager.findFirstVisibleItemPosition();
+        if (firstVisible == RecyclerView.NO_POSITION)
+            return;
+
+        RecyclerView.Adapter adapter = mNumbersGridRecyclerView.getAdapter();
+        if (adapter instanceof VirtualNumberCellAdapter)
+            mGenerator.setFocus(((VirtualNumberCellAdapter) adapter).getValue(firstVisible));
+        else
+            mGenerator.setFocus(((NumberCellAdapter) adapter).getFirstValue() + firstVisible);
+    }
+
+    /*
+     * Helper method to show or hide debug overlay, which is only updated while shown.
+     */
+    private void setDebugOverlayEnabled(boolean enabled) {
+        GridMetrics metrics = mGenerator.getMetrics();
+        if (enabled) {
+            metrics.addListener(mMetricsListener);
+            mDebugOverlayTextView.setText(metrics.getSummary());
+            mDebugOverlayTextView.setVisibility(View.VISIBLE);
+        } else {
+            metrics.removeListener(mMetricsListener);
+            mDebugOverlayTextView.setVisibility(View.GONE);
+        }
     }
 
     private void toggleGridLoadingProgress(boolean toggle) {
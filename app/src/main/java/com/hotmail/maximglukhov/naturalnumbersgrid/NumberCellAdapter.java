@@ -6,28 +6,77 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
  * <p>Adapter for {@link android.support.v7.widget.RecyclerView} displaying grid of natural numbers.<br>
  * Shows prime numbers with red background.</p>
+ * <p>Cells of pending blocks (see {@link NumberCellBlock#pending(long, int)}) are shown as placeholders with their
+ * number, and get their properties once filled (see {@link #fillBlock(NumberCellBlock)}) through a
+ * {@link #PAYLOAD_PROPERTIES} rebind.</p>
+ * <p>Changes made between {@link #beginTransaction()} and {@link #commitTransaction()} are notified together,
+ * as a single update.</p>
+ * <p>Cells sharing a factor with a selected cell are highlighted (see {@link #setHighlight(NumberCell)}). Highlight
+ * is part of the model, computed once over the window and applied through a {@link #PAYLOAD_HIGHLIGHT} rebind.</p>
  */
 public class NumberCellAdapter
         extends RecyclerView.Adapter<NumberCellAdapter.ViewHolder> {
 
     private static final String LOG_TAG = "NumberCellAdapter";
 
+    /**
+     * <p>Payload for rebinding only cell properties (primality and factors) of cells already showing their
+     * number.</p>
+     */
+    public static final Object PAYLOAD_PROPERTIES = new Object();
+
+    /**
+     * <p>Payload for rebinding only highlight of cells.</p>
+     */
+    public static final Object PAYLOAD_HIGHLIGHT = new Object();
+
+    /*
+     * Window of consecutive numbers represented by this adapter.
+     * Adapter position p is the number (first value + p).
+     */
+    private final NumberCellWindow mWindow;
+
+    /*
+     * Metrics recording bind time of every cell, or null.
+     */
+    private GridMetrics mMetrics;
+
     /*
-     * Data structure for cells represented by this adapter.
+     * Highlighted cells, or null if none.
      */
-    private List<NumberCell> mNumberCells;
+    private NumberCellHighlight mHighlight;
+
+    /*
+     * Notifies changes of a committed transaction.
+     */
+    private final NumberCellWindow.ChangeListener mChangeNotifier = new NumberCellWindow.ChangeListener() {
+        @Override
+        public void onRangeRemoved(int position, int count) {
+            notifyItemRangeRemoved(position, count);
+        }
+
+        @Override
+        public void onRangeInserted(int position, int count) {
+            notifyItemRangeInserted(position, count);
+        }
+
+        @Override
+        public void onRangeChanged(int position, int count) {
+            notifyItemRangeChanged(position, count, PAYLOAD_PROPERTIES);
+        }
+    };
 
     /**
      * <p>Constructor for this adapter.</p>
+     * @param capacity maximum amount of cells (see {@link #trimToCapacity(boolean, int)}).
      */
-    public NumberCellAdapter() {
-        mNumberCells = new ArrayList<>();
+    public NumberCellAdapter(int capacity) {
+        mWindow = new NumberCellWindow(capacity);
     }
 
     @Override
@@ -39,88 +88,245 @@ public class NumberCellAdapter
 
     @Override
     public void onBindViewHolder(ViewHolder holder, int position) {
-        // Apply number cell data to number cell text view.
-        holder.numberTextView.setCellData(mNumberCells.get(position));
+        long bindStart = System.nanoTime();
+
+        if (mWindow.isPending(position)) {
+            // Not generated yet, show number only.
+            holder.numberTextView.setPlaceholder(getFirstValue() + position);
+        } else {
+            // Materialize cell view only now, and apply it to number cell text view.
+            holder.numberTextView.setCellData(getCell(position));
+        }
+        holder.numberTextView.highlight(isHighlighted(position));
+
+        if (mMetrics != null)
+            mMetrics.recordBind(System.nanoTime() - bindStart);
+    }
+
+    @Override
+    public void onBindViewHolder(ViewHolder holder, int position, List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            super.onBindViewHolder(holder, position, payloads);
+            return;
+        }
+
+        long bindStart = System.nanoTime();
+
+        // Number is shown already, only apply its properties (if filled since).
+        if (payloads.contains(PAYLOAD_PROPERTIES) && !mWindow.isPending(position))
+            holder.numberTextView.setCellProperties(getCell(position));
+        // Swaps drawable state only, if at all.
+        holder.numberTextView.highlight(isHighlighted(position));
+
+        if (mMetrics != null)
+            mMetrics.recordBind(System.nanoTime() - bindStart);
     }
 
     @Override
     public int getItemCount() {
-        return mNumberCells.size();
+        return mWindow.getCount();
+    }
+
+    /**
+     * <p>Sets metrics to record bind time of every cell in.</p>
+     * @param metrics metrics, or null.
+     */
+    public void setMetrics(GridMetrics metrics) {
+        mMetrics = metrics;
     }
 
     /**
-     * <p>Inserts cells at given index up to given range. Stops at first null cell in array (if encountered).</p>
-     * @param cells cells to insert.
-     * @param start index to insert at (inclusive).
-     * @param range range (excluding start + range).
-     * @return amount of successfully inserted cells.
+     * <p>Highlights generated cells sharing a factor with given cell, over entire window. Cells generated later
+     * are highlighted as they are inserted or filled, as long as they are within the window at the time of
+     * selection.</p>
+     * @param selected selected cell.
      */
-    public int insertCells(NumberCell[] cells, int start, int range) {
+    public void setHighlight(NumberCell selected) {
+        clearHighlight();
+
+        mHighlight = new NumberCellHighlight(selected, getFirstValue(), getItemCount());
+        if (mWindow.markHighlight(mHighlight) > 0)
+            notifyItemRangeChanged(0, getItemCount(), PAYLOAD_HIGHLIGHT);
+    }
+
+    /**
+     * <p>Removes highlight, if any.</p>
+     */
+    public void clearHighlight() {
+        NumberCellHighlight highlight = mHighlight;
+        mHighlight = null;
+        if (highlight == null || getItemCount() == 0)
+            return;
+
+        // Rebind cells which are still in window.
+        long from = Math.max(highlight.getStart(), getFirstValue());
+        long to = Math.min(highlight.getEnd(), getLastValue());
+        if (from <= to)
+            notifyItemRangeChanged((int) (from - getFirstValue()), (int) (to - from + 1), PAYLOAD_HIGHLIGHT);
+    }
+
+    /**
+     * <p>Checks if cell at given adapter position is highlighted.</p>
+     * @param position adapter position.
+     * @return true if highlighted, false otherwise.
+     */
+    public boolean isHighlighted(int position) {
+        return mHighlight != null && mHighlight.isHighlighted(getFirstValue() + position);
+    }
+
+    /**
+     * <p>Begins a transaction: inserted, trimmed, removed and filled cells aren't notified until
+     * {@link #commitTransaction()}.</p>
+     */
+    public void beginTransaction() {
+        mWindow.beginTransaction();
+    }
+
+    /**
+     * <p>Notifies all changes since {@link #beginTransaction()} at once: at most one removal and one insertion at
+     * either end, and one {@link #PAYLOAD_PROPERTIES} change for filled cells.</p>
+     * @return true if anything changed, false otherwise.
+     */
+    public boolean commitTransaction() {
+        return mWindow.commitTransaction(mChangeNotifier);
+    }
+
+    /**
+     * <p>Inserts block of cells. Block must be adjacent to cells already represented by this adapter
+     * (directly before first cell or directly after last cell).</p>
+     * @param block block to insert.
+     * @return adapter position block was inserted at, or -1 if block is not adjacent.
+     */
+    public int insertBlock(NumberCellBlock block) {
         // Validate input.
-        if (cells == null)
-            return 0;
-
-        // Add to end of list.
-        int cellListSize = mNumberCells.size();
-        if (start == cellListSize - 1)
-            start = cellListSize;
-
-        if (start < 0)
-            return 0;
-
-        int count = 0;
-        for (int i = 0; i < range; i++) {
-            // Ensure cells amount matches range.
-            if (i == cells.length)
-                break;
-
-            // Encountered empty cell - the rest might not be null.
-            // A cell is usually null if generator is trying to generate below 0.
-            // However, cells are flipped when generating backwards., so we must skip null cells until we reach ones with numbers.
-            if (cells[i] == null)
-                continue;
-
-            // Insert cell.
-            mNumberCells.add(start++, cells[i]);
-            count++;
+        if (block == null || block.getCount() == 0)
+            return -1;
+
+        int position;
+        if (mWindow.isEmpty() || block.getStart() == getLastValue() + 1) {
+            // Add to end of window.
+            position = mWindow.getCount();
+            mWindow.append(block);
+        } else if (block.getEnd() == getFirstValue() - 1) {
+            // Add to start of window.
+            position = 0;
+            mWindow.prepend(block);
+        } else {
+            if (EventTrace.DEBUG)
+                EventTrace.get().record(EventTrace.INSERT_REJECTED, block.getStart(), block.getCount());
+            return -1;
         }
 
-        Log.d(LOG_TAG, "insertCells :: post insertCells cells (" + cellListSize + "):" + mNumberCells);
+        if (EventTrace.DEBUG)
+            EventTrace.get().record(EventTrace.INSERT, position, block.getCount());
+
+        // Inserted cells are bound afresh, with their highlight.
+        if (mHighlight != null)
+            mHighlight.mark(block);
+
+        return position;
+    }
+
+    /**
+     * <p>Fills pending cells with given generated block (see {@link NumberCellWindow#fill(NumberCellBlock)}).
+     * <br>Filled cells should be rebound with {@link #PAYLOAD_PROPERTIES}, which a transaction does.</p>
+     * @param block generated block.
+     * @return amount of filled cells.
+     */
+    public int fillBlock(NumberCellBlock block) {
+        int filled = mWindow.fill(block);
+        // Filled cells are rebound with their properties, and their highlight along.
+        if (mHighlight != null && filled > 0)
+            mHighlight.mark(block);
+        if (EventTrace.DEBUG && filled > 0)
+            EventTrace.get().record(EventTrace.FILL, block.getStart(), filled);
+
+        return filled;
+    }
+
+    /**
+     * <p>Removes cells beyond capacity from one end, keeping memory flat however long the grid is scrolled.</p>
+     * @param fromStart true to trim from start, false to trim from end.
+     * @param alignment trimmed amount is rounded up to a multiple of this (columns).
+     * @return amount of removed cells.
+     */
+    public int trimToCapacity(boolean fromStart, int alignment) {
+        int trimmed = mWindow.trimToCapacity(fromStart, alignment);
+        if (EventTrace.DEBUG && trimmed > 0)
+            EventTrace.get().record(EventTrace.REMOVE, fromStart ? 0 : mWindow.getCount(), trimmed);
+
+        return trimmed;
+    }
+
+    /**
+     * <p>Sets maximum amount of cells.</p>
+     * @param capacity maximum amount of cells.
+     */
+    public void setCapacity(int capacity) {
+        mWindow.setCapacity(capacity);
+    }
+
+    /**
+     * <p>Gets cell at given adapter position.
+     * <br>Cell is a view materialized from its block's columns.</p>
+     * @param position adapter position.
+     * @return cell at position.
+     */
+    public NumberCell getCell(int position) {
+        return mWindow.getCell(position);
+    }
 
-        return count;
+    /**
+     * <p>Gets cells in given range of adapter positions as a single block (e.g. for a snapshot).
+     * <br>Range is cut short at the first pending cell.</p>
+     * @param from first adapter position.
+     * @param to adapter position after last cell.
+     * @return block of cells in range, or null if first cell is pending.
+     */
+    public NumberCellBlock getBlock(int from, int to) {
+        return mWindow.getBlock(from, to);
     }
 
     /**
-     * <p>Gets list of {@link NumberCell} represented by this adapter.</p>
-     * @return
+     * <p>Gets first (lowest) number represented by this adapter.</p>
+     * @return first number, or -1 if empty.
      */
-    public List<NumberCell> getData() {
-        return mNumberCells;
+    public long getFirstValue() {
+        return mWindow.getFirstValue();
     }
 
     /**
-     * <p>Removes given amount of cells from given index.</p>
+     * <p>Gets last (highest) number represented by this adapter.</p>
+     * @return last number, or -1 if empty.
+     */
+    public long getLastValue() {
+        return mWindow.getLastValue();
+    }
+
+    /**
+     * <p>Removes given amount of cells from given index.
+     * <br>Cells must stay consecutive, so only trimming from either end is supported.</p>
      * @param startIndex start index to remove elements from.
      * @param amount amount of elements to remove.
      */
     public void removeCells(int startIndex, int amount) {
-        int cellsListSize = mNumberCells.size();
+        int itemCount = mWindow.getCount();
 
         // Validate input.
-        if ((startIndex >= cellsListSize) || (amount >= cellsListSize))
+        if ((startIndex >= itemCount) || (amount >= itemCount))
             return;
 
-        Log.d(LOG_TAG, "removeCells :: removing from i=" + startIndex + ", amount=" + amount);
         if (startIndex == 0) {
-            mNumberCells = mNumberCells.subList(amount, mNumberCells.size());
+            mWindow.trimStart(amount);
+        } else if (startIndex + amount >= itemCount) {
+            mWindow.trimEnd(itemCount - startIndex);
         } else {
-            List<NumberCell> lowerList = mNumberCells.subList(0, startIndex);
-            if ((startIndex + amount) < cellsListSize)
-                lowerList.addAll(mNumberCells.subList(startIndex + amount + 1, mNumberCells.size()));
-            mNumberCells = lowerList;
+            Log.d(LOG_TAG, "removeCells :: can't remove from the middle, ignoring.");
+            return;
         }
 
-        Log.d("NA", "post removal cells(" + mNumberCells.size() + "):" + mNumberCells);
+        if (EventTrace.DEBUG)
+            EventTrace.get().record(EventTrace.REMOVE, startIndex, amount);
     }
 
     public static class ViewHolder extends RecyclerView.ViewHolder {
@@ -128,7 +334,7 @@ public class NumberCellAdapter
         /*
          * Holder for cell text view.
          */
-        private NumberCellTextView numberTextView;
+        NumberCellTextView numberTextView;
 
         public ViewHolder(View itemView) {
             super(itemView);
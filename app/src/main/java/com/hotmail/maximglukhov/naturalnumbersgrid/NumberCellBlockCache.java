@@ -0,0 +1,238 @@
+package com.hotmail.maximglukhov.naturalnumbersgrid;
+
+import android.support.annotation.IntRange;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>Least recently used cache of generated {@link NumberCellBlock}s, for grids where position maps directly
+ * to a number.</p>
+ * <p>Numbers are split into aligned blocks of a fixed size: block k holds [k * blockSize, (k + 1) * blockSize).
+ * Missing blocks are requested from a {@link BlockLoader} asynchronously, up to a few at a time (see
+ * {@link #DEFAULT_MAX_LOADING_COUNT}), most recently requested first (which is the block closest to the
+ * viewport). Loaded blocks are handed back with {@link #putBlock(NumberCellBlock)}, in any order.</p>
+ * <p>Not thread safe, meant to be used on UI thread only.</p>
+ */
+public class NumberCellBlockCache {
+
+    /**
+     * <p>Interface definition for loading missing blocks.</p>
+     */
+    public interface BlockLoader {
+        /**
+         * <p>Starts loading a block asynchronously. Result must be handed back with
+         * {@link #putBlock(NumberCellBlock)}.</p>
+         * @param start first number in block.
+         * @param count amount of numbers in block.
+         */
+        void loadBlock(long start, int count);
+    }
+
+    /**
+     * <p>Default maximum amount of blocks loading at a time.</p>
+     */
+    public static final int DEFAULT_MAX_LOADING_COUNT = 4;
+
+    /*
+     * Amount of numbers in every block.
+     */
+    private final int mBlockSize;
+
+    /*
+     * Maximum amount of cached blocks.
+     */
+    private int mCapacity;
+
+    /*
+     * Cached blocks by block index, in access order (least recently used first).
+     */
+    private final LinkedHashMap<Long, NumberCellBlock> mBlocks;
+
+    /*
+     * Requested block indices waiting to be loaded, most recent last.
+     */
+    private final ArrayDeque<Long> mRequests;
+
+    /*
+     * Indices of blocks currently loading, and maximum amount of them.
+     */
+    private final HashSet<Long> mLoadingBlocks = new HashSet<>();
+    private final int mMaxLoadingCount;
+
+    private final BlockLoader mLoader;
+
+    /**
+     * <p>Constructor for block cache, loading up to {@link #DEFAULT_MAX_LOADING_COUNT} blocks at a time.</p>
+     * @param blockSize amount of numbers in every block.
+     * @param capacity maximum amount of cached blocks.
+     * @param loader loader for missing blocks.
+     */
+    public NumberCellBlockCache(@IntRange(from = 1) int blockSize, @IntRange(from = 1) int capacity,
+                                BlockLoader loader) {
+        this(blockSize, capacity, DEFAULT_MAX_LOADING_COUNT, loader);
+    }
+
+    /**
+     * <p>Constructor for block cache.</p>
+     * @param blockSize amount of numbers in every block.
+     * @param capacity maximum amount of cached blocks.
+     * @param maxLoadingCount maximum amount of blocks loading at a time.
+     * @param loader loader for missing blocks.
+     */
+    public NumberCellBlockCache(@IntRange(from = 1) int blockSize, @IntRange(from = 1) int capacity,
+                                @IntRange(from = 1) int maxLoadingCount, BlockLoader loader) {
+        mBlockSize          = blockSize;
+        mCapacity           = Math.max(1, capacity);
+        mMaxLoadingCount    = Math.max(1, maxLoadingCount);
+        mLoader             = loader;
+        mRequests           = new ArrayDeque<>();
+        mBlocks             = new LinkedHashMap<Long, NumberCellBlock>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, NumberCellBlock> eldest) {
+                return size() > mCapacity;
+            }
+        };
+    }
+
+    /**
+     * <p>Gets block containing given number. Requests it if missing.</p>
+     * @param value number to get block for.
+     * @return block containing number, or null if not loaded yet.
+     */
+    public NumberCellBlock getBlock(@IntRange(from = 0) long value) {
+        long index = value / mBlockSize;
+        NumberCellBlock block = mBlocks.get(index);
+        if (block == null)
+            request(index);
+
+        return block;
+    }
+
+    /**
+     * <p>Gets block containing given number without requesting it if missing.</p>
+     * @param value number to get block for.
+     * @return block containing number, or null if not cached.
+     */
+    public NumberCellBlock peekBlock(@IntRange(from = 0) long value) {
+        return mBlocks.get(value / mBlockSize);
+    }
+
+    /**
+     * <p>Requests block containing given number ahead of time, if missing.</p>
+     * @param value number to prefetch block for.
+     */
+    public void prefetch(long value) {
+        if (value < 0)
+            return;
+
+        long index = value / mBlockSize;
+        if (!mBlocks.containsKey(index))
+            request(index);
+    }
+
+    /**
+     * <p>Adds a loaded block to cache and starts loading next requested block, if it was loading.</p>
+     * @param block loaded block, must be an aligned block of this cache's block size (last block may be shorter).
+     */
+    public void putBlock(NumberCellBlock block) {
+        long index = block.getStart() / mBlockSize;
+        mBlocks.put(index, block);
+
+        if (mLoadingBlocks.remove(index))
+            loadNext();
+    }
+
+    /**
+     * <p>Checks if block containing given number is cached.</p>
+     * @param value number to check.
+     * @return true if cached, false otherwise.
+     */
+    public boolean contains(long value) {
+        return mBlocks.containsKey(value / mBlockSize);
+    }
+
+    /**
+     * <p>Sets maximum amount of cached blocks, evicting least recently used blocks if required.</p>
+     * @param capacity maximum amount of cached blocks.
+     */
+    public void setCapacity(@IntRange(from = 1) int capacity) {
+        mCapacity = Math.max(1, capacity);
+
+        Iterator<Long> iterator = mBlocks.keySet().iterator();
+        while (mBlocks.size() > mCapacity) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * <p>Gets maximum amount of cached blocks.</p>
+     * @return maximum amount of cached blocks.
+     */
+    public int getCapacity() {
+        return mCapacity;
+    }
+
+    /**
+     * <p>Gets amount of numbers in every block.</p>
+     * @return block size.
+     */
+    public int getBlockSize() {
+        return mBlockSize;
+    }
+
+    /**
+     * <p>Gets amount of blocks currently loading.</p>
+     * @return amount of loading blocks.
+     */
+    public int getLoadingCount() {
+        return mLoadingBlocks.size();
+    }
+
+    /**
+     * <p>Removes all blocks and requests. Blocks currently loading are no longer expected.</p>
+     */
+    public void clear() {
+        mBlocks.clear();
+        mRequests.clear();
+        mLoadingBlocks.clear();
+    }
+
+    /*
+     * Helper method to queue block index for loading, moving it to the front if already queued.
+     */
+    private void request(long index) {
+        if (mLoadingBlocks.contains(index))
+            return;
+
+        mRequests.remove(index);
+        mRequests.addLast(index);
+
+        // Requests which can't be cached anyway are out of date.
+        while (mRequests.size() > mCapacity)
+            mRequests.removeFirst();
+
+        loadNext();
+    }
+
+    /*
+     * Helper method to start loading most recently requested blocks, as long as fewer than maximum are loading.
+     */
+    private void loadNext() {
+        while (mLoadingBlocks.size() < mMaxLoadingCount && !mRequests.isEmpty()) {
+            long index = mRequests.removeLast();
+            if (mBlocks.containsKey(index))
+                continue;
+
+            mLoadingBlocks.add(index);
+            long start = index * mBlockSize;
+            // Last block ends at Long.MAX_VALUE.
+            int count = (Long.MAX_VALUE - start < mBlockSize) ? (int) (Long.MAX_VALUE - start + 1) : mBlockSize;
+            mLoader.loadBlock(start, count);
+        }
+    }
+}
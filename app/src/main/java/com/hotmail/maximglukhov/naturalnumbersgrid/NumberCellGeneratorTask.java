@@ -1,13 +1,41 @@
 package com.hotmail.maximglukhov.naturalnumbersgrid;
 
-import android.os.Handler;
 import android.support.annotation.IntRange;
+import android.support.v4.os.TraceCompat;
 import android.util.Log;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
- * <p>Task for generating natural numbers with primality tested.<br>Implemented as a worker thread.</p>
+ * <p>Task for generating natural numbers with primality tested.<br>Runs on a long-lived background thread,
+ * which is kept (along with its warm sieve buffers and scratch arrays) between runs until {@link #release()}.</p>
+ * <p>Cells are generated by the engine's {@link NumberCellGenerator}, on a worker pool sized to the available
+ * cores and running as background threads. Large ranges (see {@link #setParallelCutoff(int)}) are generated in
+ * parallel.</p>
+ * <p>If a cache file is set (see {@link #setPrimeCacheFile(File)}), it's opened as the generator's persistent
+ * {@link PrimeBitmapCache} on first run.</p>
+ * <p>Started batches are queued as independent requests, each with its own window, in a
+ * {@link GenerationRequestQueue}: starting never waits for or drops a running batch, overlapping requests are
+ * coalesced, and batches are generated one at a time nearest to the focus first (see {@link #setFocus(long)}).
+ * Results are delivered in the order batches were generated.</p>
+ * <p>Every started batch carries the generation epoch it was started in. {@link #cancel()} moves to a new epoch,
+ * dropping queued batches: a running batch of an older epoch stops at its next segment boundary and its results
+ * are never delivered.</p>
+ * <p>{@link #pause()} stops generating without waiting for any thread, keeping every batch queued (a running
+ * batch is interrupted and queued again) until {@link #resume()}.</p>
+ * <p>Results are handed to UI thread through a {@link FrameDeliveryChannel}, where everything delivered in a frame
+ * is run at once. Only task's thread delivers, so the channel has a single producer.</p>
+ * <p>In progressive mode (see {@link #setProgressive(boolean)}), every segment of a batch is delivered as soon as
+ * it's generated, before the whole batch is.</p>
+ * <p>Every delivered batch is recorded in the task's {@link GridMetrics} (see {@link #getMetrics()}), and its
+ * stages are emitted as trace sections for system traces.</p>
  */
-public class NumberCellGeneratorTask implements Runnable {
+public class NumberCellGeneratorTask {
 
     private static final String LOG_TAG = "NumberCellGeneratorTask";
 
@@ -24,7 +52,38 @@ public class NumberCellGeneratorTask implements Runnable {
     /*
      * Defines name for task's thread.
      */
-    private static final String THREAD_NAME = "NumberCellGeneratorTask";
+    private static final String THREAD_NAME = "NumberCellGeneratorTask-";
+
+    /*
+     * Defines name prefix for worker pool threads.
+     */
+    private static final String WORKER_THREAD_NAME = "NumberCellGeneratorWorker-";
+
+    /**
+     * <p>Default minimum range for splitting generation across worker threads.</p>
+     */
+    public static final int DEFAULT_PARALLEL_CUTOFF = NumberCellGenerator.DEFAULT_PARALLEL_CUTOFF;
+
+    /*
+     * Defines trace section names for generating and delivering a batch.
+     */
+    private static final String SECTION_GENERATE = "NumberCellGeneratorTask.generate";
+    private static final String SECTION_DELIVER = "NumberCellGeneratorTask.deliver";
+
+    /*
+     * Tracer reporting generator's sections as platform trace sections.
+     */
+    private static final NumberCellGenerator.Tracer TRACER = new NumberCellGenerator.Tracer() {
+        @Override
+        public void beginSection(String name) {
+            TraceCompat.beginSection(name);
+        }
+
+        @Override
+        public void endSection() {
+            TraceCompat.endSection();
+        }
+    };
 
     /**
      * <p>Interface definition for a callback to be invoked when cells are ready.<br>
@@ -33,9 +92,19 @@ public class NumberCellGeneratorTask implements Runnable {
         /**
          * <p>Callback for delivering ready cell results.<br>
          *     Called when given range of cells have been generated with value assigned and primality tested.</p>
-         * @param cells Ready cells.
+         * @param block Ready cells, as a block of consecutive numbers.
+         * @param epoch generation epoch the cells were started in (see {@link #getEpoch()}).
          */
-        void onCellsReady(NumberCell[] cells);
+        void onCellsReady(NumberCellBlock block, int epoch);
+
+        /**
+         * <p>Callback for delivering a ready segment of a batch in progressive mode (see
+         * {@link #setProgressive(boolean)}).<br>
+         *     Called for every segment before the whole batch is delivered to {@link #onCellsReady(NumberCellBlock, int)}.</p>
+         * @param segment Ready cells, as a block of consecutive numbers within batch.
+         * @param epoch generation epoch the cells were started in (see {@link #getEpoch()}).
+         */
+        void onSegmentReady(NumberCellBlock segment, int epoch);
     }
 
     /*
@@ -44,22 +113,49 @@ public class NumberCellGeneratorTask implements Runnable {
     private NumberCellGeneratorListener mListener;
 
     /*
-     * Current running thread for the task.
+     * Long-lived background executor running the task.
+     */
+    private final ExecutorService mExecutor;
+
+    /*
+     * Channel for delivering results to UI Thread.
+     */
+    private final FrameDeliveryChannel mDelivery;
+
+    /*
+     * Current generation epoch, advanced on every cancellation.
+     */
+    private final AtomicInteger mEpoch = new AtomicInteger();
+
+    /*
+     * Pending batches, taken one at a time by task's thread.
+     */
+    private final GenerationRequestQueue mRequests = new GenerationRequestQueue();
+
+    /*
+     * Whether a batch is currently being generated.
      */
-    private Thread mCurrentThread;
+    private volatile boolean mIsRunning;
 
     /*
-     * Reference to UI Thread for delivering results.
+     * Whether generation is paused (e.g. while activity is in background). Pending batches are kept meanwhile.
      */
-    private final Handler mUiHandler;
+    private volatile boolean mIsPaused;
 
     /*
-     * Defines whether the task is running or at idle.
+     * Last number of running batch handed out in segments (progressive), or below its window if none.
+     * Only touched by task's thread.
      */
-    private boolean mIsGenerating;
+    private long mDeliveredEnd;
 
     /*
-     * Defines number generation range.
+     * Whether segments are delivered as they are generated.
+     */
+    private volatile boolean mIsProgressive;
+
+    /*
+     * Defines range of next batch started with start() or start(int).
+     * Only touched by starting (UI) thread, every queued batch keeps its own window.
      */
     private long mRangeStart;
     private int mRange;
@@ -69,71 +165,284 @@ public class NumberCellGeneratorTask implements Runnable {
      */
     private boolean mIsPositive;
 
+    /*
+     * Engine generating cells. Reused between runs to keep its base primes table and worker threads.
+     */
+    private final NumberCellGenerator mGenerator;
+
+    /*
+     * Persistent primality cache and its file. Opened on first use, on a background thread.
+     */
+    private volatile File mPrimeCacheFile;
+    private PrimeBitmapCache mPrimeCache;
+    private boolean mIsPrimeCacheOpened;
+
+    /*
+     * Metrics of delivered batches.
+     */
+    private final GridMetrics mMetrics = new GridMetrics();
+
     /**
      * <p>Constructor for {@link NumberCell} generating task.</p>
      * @param start first number to generate up to given range.
      * @param range range of numbers to generate from given number.
      * @param positive generation direction - increase (true) or decrease (false).
      * @param listener listener to deliver results to.
-     * @param uiHandler UI Handler to post results to.
+     * @param delivery channel to deliver results to UI Thread through.
      */
     public NumberCellGeneratorTask(@IntRange(from = MIN_NUMBER) long start,
                                    @IntRange(from = MIN_RANGE) int range,
                                    boolean positive,
                                    NumberCellGeneratorListener listener,
-                                   Handler uiHandler) {
+                                   FrameDeliveryChannel delivery) {
         mListener   = listener;
-        mUiHandler  = uiHandler;
+        mDelivery   = delivery;
+
+        mGenerator  = new NumberCellGenerator(Runtime.getRuntime().availableProcessors(),
+                new BackgroundThreadFactory(WORKER_THREAD_NAME));
+        mGenerator.setTracer(TRACER);
+        mExecutor   = Executors.newSingleThreadExecutor(
+                new BackgroundThreadFactory(THREAD_NAME));
 
         setRange(start, range, positive);
     }
 
-    @Override
-    public void run() {
-        // Set thread as background thread.
-        android.os.Process.setThreadPriority(
-                android.os.Process.THREAD_PRIORITY_BACKGROUND);
+    /*
+     * Helper method to generate nearest pending batch, if any. Runs on task's thread, once per started batch
+     * (coalesced batches leave nothing to generate). Batches stay queued while paused.
+     */
+    private void generateNext() {
+        if (mIsPaused)
+            return;
+
+        mIsRunning = true;
+        try {
+            GenerationRequestQueue.Request request = mRequests.poll();
+            if (request != null && !isCancelled(request.getEpoch()))
+                generate(request);
+        } finally {
+            mIsRunning = false;
+        }
+    }
 
-        final NumberCell[] cells = new NumberCell[mRange];
-        for (int i = 0; i < mRange; i++) {
-            // Stop generating below 0.
-            if (mRangeStart == -1 && !mIsPositive) {
-                // Indicate the previous cell is the last valid one.
-                cells[i] = null;
-                break;
+    /*
+     * Helper method to schedule generating nearest pending batch on task's thread.
+     */
+    private void scheduleNext() {
+        // Run on long-lived background thread, which takes nearest pending batch by then.
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                generateNext();
             }
+        });
+    }
 
-            // Generate new cell with primality tested.
-            NumberCell cell = new NumberCell(mIsPositive ? mRangeStart++ : mRangeStart--);
-            cell.updatePrimality();
-            cell.factorize();
-            cells[i] = cell;
+    /*
+     * Helper method to generate and deliver cells for given batch, unless its epoch is superseded. A batch
+     * interrupted by pausing is queued again (without segments delivered already), to be generated once resumed.
+     */
+    private void generate(GenerationRequestQueue.Request request) {
+        final int epoch = request.getEpoch();
+        final long low = request.getLow();
+        final int count = request.getCount();
+        final long generateTime = System.nanoTime();
+        final GenerationStats stats = new GenerationStats();
+        final NumberCellBlock block;
+        mDeliveredEnd = low - 1;
+
+        // Deliver segments as they are ready, ahead of batch.
+        final NumberCellGeneratorListener segmentListener = mIsProgressive ? mListener : null;
+        NumberCellGenerator.SegmentListener onSegmentReady = null;
+        if (segmentListener != null) {
+            onSegmentReady = new NumberCellGenerator.SegmentListener() {
+                @Override
+                public void onSegmentReady(final NumberCellBlock segment) {
+                    if (isCancelled(epoch))
+                        return;
+
+                    // Segments are handed out in increasing order, on task's thread.
+                    mDeliveredEnd = segment.getEnd();
+                    // Run on UI Thread, called on task's thread.
+                    mDelivery.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            segmentListener.onSegmentReady(segment, epoch);
+                        }
+                    });
+                }
+            };
         }
 
-        // DEBUG: print generated cells
-        Log.d(LOG_TAG, "run :: finished generating cells: " + Utils.getStringForArray(cells));
+        TraceCompat.beginSection(SECTION_GENERATE);
+        try {
+            // Cache is opened on task's thread, before generator first needs it.
+            mGenerator.setPrimeCache(getPrimeCache());
 
-        if (!mIsPositive) {
-            // Change direction of cells in the array to increasing.
-            Utils.reverseArray(cells);
+            block = mGenerator.generate(low, count, new NumberCellGenerator.Cancellation() {
+                /*
+                 * Whether batch was cancelled. Once set, stays set for the rest of batch, even if resumed
+                 * meanwhile: segments skipped by then are not generated anymore.
+                 */
+                private volatile boolean mIsCancelled;
 
-            // DEBUG: print flipped array.
-            Log.d(LOG_TAG, "run :: finished generating cells (flipped): " + Utils.getStringForArray(cells));
+                @Override
+                public boolean isCancelled() {
+                    if (!mIsCancelled && (NumberCellGeneratorTask.this.isCancelled(epoch) || mIsPaused))
+                        mIsCancelled = true;
+                    return mIsCancelled;
+                }
+            }, stats, onSegmentReady);
+        } finally {
+            TraceCompat.endSection();
+        }
+
+        final long queueWait = generateTime - request.getTime();
+        final long computeTime = System.nanoTime() - generateTime;
+
+        if (block == null) {
+            if (EventTrace.DEBUG)
+                EventTrace.get().record(EventTrace.BATCH_CANCELLED, low, count);
+
+            // Interrupted by pausing, generate again once resumed (right away if resumed since). Segments
+            // delivered already are shown, only the rest of window is generated again.
+            long remainingLow = Math.max(low, mDeliveredEnd + 1);
+            long high = low + count - 1;
+            if (!isCancelled(epoch) && remainingLow <= high) {
+                mRequests.offer(remainingLow, (int) (high - remainingLow + 1), request.isPositive(), epoch);
+                if (!mIsPaused)
+                    scheduleNext();
+            }
+            return;
         }
 
+        if (EventTrace.DEBUG)
+            EventTrace.get().record(EventTrace.BATCH_END, low, count);
+
         // Post results to listener.
-        if (mListener != null) {
-            // Run on UI Thread.
-            mUiHandler.post(new Runnable() {
+        final NumberCellGeneratorListener listener = mListener;
+        if (listener != null && !isCancelled(epoch)) {
+            final long postTime = System.nanoTime();
+            // Run on UI Thread, along with everything else delivered in the same frame.
+            mDelivery.post(new Runnable() {
                 @Override
                 public void run() {
-                    mListener.onCellsReady(cells);
+                    long deliveryTime = System.nanoTime() - postTime;
+
+                    TraceCompat.beginSection(SECTION_DELIVER);
+                    try {
+                        listener.onCellsReady(block, epoch);
+                    } finally {
+                        TraceCompat.endSection();
+                    }
+
+                    mMetrics.recordBatch(new GridMetrics.Batch(low, count, queueWait, stats, computeTime,
+                            deliveryTime));
                 }
             });
         }
+    }
+
+    /*
+     * Helper method to get persistent primality cache, opening it on first use. Returns null if not set or
+     * can't be opened.
+     */
+    private synchronized PrimeBitmapCache getPrimeCache() {
+        if (!mIsPrimeCacheOpened && mPrimeCacheFile != null) {
+            mIsPrimeCacheOpened = true;
+            try {
+                mPrimeCache = PrimeBitmapCache.open(mPrimeCacheFile, PrimeBitmapCache.DEFAULT_SLOT_COUNT);
+                Log.d(LOG_TAG, "getPrimeCache :: opened with " + mPrimeCache.getSegmentCount() + " segments.");
+            } catch (IOException e) {
+                Log.e(LOG_TAG, "getPrimeCache :: failed opening " + mPrimeCacheFile, e);
+            }
+        }
+
+        return mPrimeCache;
+    }
+
+    /*
+     * Helper method to close persistent primality cache.
+     */
+    private synchronized void closePrimeCache() {
+        if (mPrimeCache == null)
+            return;
+
+        mGenerator.setPrimeCache(null);
+        try {
+            mPrimeCache.close();
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "closePrimeCache :: failed closing " + mPrimeCacheFile, e);
+        }
+
+        mPrimeCache = null;
+    }
+
+    /**
+     * <p>Sets minimum range for splitting generation across worker threads.</p>
+     * @param cutoff minimum range to generate in parallel.
+     */
+    public void setParallelCutoff(@IntRange(from = MIN_RANGE) int cutoff) {
+        mGenerator.setParallelCutoff(cutoff);
+    }
+
+    /**
+     * <p>Gets minimum range for splitting generation across worker threads.</p>
+     * @return minimum range to generate in parallel.
+     */
+    public int getParallelCutoff() {
+        return mGenerator.getParallelCutoff();
+    }
+
+    /**
+     * <p>Sets whether every segment of a batch is delivered as soon as it's generated (see
+     * {@link NumberCellGeneratorListener#onSegmentReady(NumberCellBlock, int)}).</p>
+     * @param progressive true to deliver segments, false to deliver whole batches only.
+     */
+    public void setProgressive(boolean progressive) {
+        mIsProgressive = progressive;
+    }
+
+    /**
+     * <p>Checks if segments are delivered as soon as they are generated.</p>
+     * @return true if progressive, false otherwise.
+     */
+    public boolean isProgressive() {
+        return mIsProgressive;
+    }
+
+    /**
+     * <p>Gets metrics of delivered batches. Adapters may record their bind times in it as well.</p>
+     * @return batch metrics.
+     */
+    public GridMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    /**
+     * <p>Sets file for persistent primality cache. Must be set before first start.</p>
+     * @param file cache file, or null for no cache.
+     */
+    public void setPrimeCacheFile(File file) {
+        mPrimeCacheFile = file;
+    }
 
-        // Stop current thread.
-        idle();
+    /**
+     * <p>Releases background threads and closes primality cache. Task can't generate anymore after being
+     * released.</p>
+     */
+    public void release() {
+        cancel();
+
+        // Release on task's thread, once cancelled batch stopped using workers and cache.
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                mGenerator.release();
+                closePrimeCache();
+            }
+        });
+        mExecutor.shutdown();
     }
 
     /**
@@ -206,11 +515,70 @@ public class NumberCellGeneratorTask implements Runnable {
     }
 
     /**
-     * <p>Checks if generator is current running.</p>
+     * <p>Checks if generator is currently running or has pending batches.</p>
      * @return true if generating, false otherwise.
      */
     public boolean isGenerating() {
-        return mIsGenerating;
+        return mIsRunning || !mRequests.isEmpty();
+    }
+
+    /**
+     * <p>Sets number pending batches are prioritized by, nearest first (e.g. first visible number).</p>
+     * @param value focus number.
+     */
+    public void setFocus(long value) {
+        mRequests.setFocus(value);
+    }
+
+    /**
+     * <p>Pauses generation (e.g. while activity is in background), without waiting for running batch. Running
+     * batch stops at its next segment boundary and is queued again, pending and newly started batches are kept
+     * until {@link #resume()}.</p>
+     */
+    public void pause() {
+        mIsPaused = true;
+    }
+
+    /**
+     * <p>Resumes generation of pending batches, nearest first.</p>
+     */
+    public void resume() {
+        if (!mIsPaused)
+            return;
+
+        mIsPaused = false;
+        // Every batch started or interrupted while paused is still queued (some may be coalesced by now).
+        for (int i = mRequests.size(); i > 0; i--)
+            scheduleNext();
+    }
+
+    /**
+     * <p>Checks if generation is paused.</p>
+     * @return true if paused, false otherwise.
+     */
+    public boolean isPaused() {
+        return mIsPaused;
+    }
+
+    /**
+     * <p>Gets current generation epoch.<br>Results delivered with a different epoch are stale.</p>
+     * @return current epoch.
+     */
+    public int getEpoch() {
+        return mEpoch.get();
+    }
+
+    /**
+     * <p>Cancels running and pending batches (if any) and moves to a new epoch. The cancelled running batch stops
+     * at its next segment boundary and is never delivered, and the task can be started again right away.</p>
+     * @return new epoch.
+     */
+    public int cancel() {
+        // Epochs wrap around within non-negative values.
+        int epoch = (mEpoch.get() + 1) & Integer.MAX_VALUE;
+        mEpoch.set(epoch);
+        mRequests.clear();
+        return epoch;
     }
 
     /**
@@ -230,25 +598,32 @@ public class NumberCellGeneratorTask implements Runnable {
     }
 
     /**
-     * <p>Starts generation task.<br>Does nothing if already generating.</p>
+     * <p>Starts generation task.<br>Queues a batch, even if already generating. A batch overlapping a pending
+     * one is coalesced into it.</p>
      * @param rangeStart first number to generate.
      * @param range range of numbers to generate.
      * @param direction generation direction - increase (true) or decrease (false).
      */
     public void start(long rangeStart, int range, boolean direction) {
-        if (!mIsGenerating) {
-            mIsGenerating = true;
+        setRange(rangeStart, range, direction);
 
-            setRange(rangeStart, range, direction);
+        // Calculate window [low, low + count) covered by this batch.
+        final long low = getWindowLow(mRangeStart, mRange, mIsPositive);
+        final int count = getWindowCount(mRangeStart, mRange, mIsPositive);
 
-            mCurrentThread = new Thread(this, THREAD_NAME);
-            mCurrentThread.start();
-        }
+        // Continue from next number in generation direction on next run.
+        mRangeStart = mIsPositive ? low + count : low - 1;
+
+        mRequests.offer(low, count, mIsPositive, mEpoch.get());
+        if (EventTrace.DEBUG)
+            EventTrace.get().record(EventTrace.BATCH_START, low, count);
+
+        scheduleNext();
     }
 
     /**
      * <p>Starts generation task for given range. Continues from last generated value + 1
-     * <br>Does nothing if already generating.</p>
+     * <br>Queues a batch, even if already generating.</p>
      * @param range range to generate from last generated value + 1
      */
     public void start(int range) {
@@ -257,33 +632,74 @@ public class NumberCellGeneratorTask implements Runnable {
 
     /**
      * <p>Starts generation task. Continues from last generated value + 1 up to last range.
-     * <br>Does nothing if already generating.</p>
+     * <br>Queues a batch, even if already generating.</p>
      */
     public void start() {
         start(mRangeStart, mRange, mIsPositive);
     }
 
     /**
-     * <p>Sets task as idle.</p>
-     */
-    public void idle() {
-        // Flag as idling.
-        mIsGenerating = false;
-
-        if (mCurrentThread != null && Thread.currentThread()
-                != mUiHandler.getLooper().getThread()) {
-            // Join spawned thread.
-            boolean retry = true;
-            while (retry) {
-                try {
-                    mCurrentThread.join();
-                    retry = false;
-                    mCurrentThread = null;
-                } catch (InterruptedException e) {
-                    // Keep trying to join.
+     * <p>Gets first number of window a batch started with given parameters covers.</p>
+     * @param rangeStart first number to generate.
+     * @param range range of numbers to generate.
+     * @param direction generation direction - increase (true) or decrease (false).
+     * @return first (lowest) number in window.
+     */
+    public static long getWindowLow(@IntRange(from = MIN_NUMBER) long rangeStart,
+                                    @IntRange(from = MIN_RANGE) int range, boolean direction) {
+        rangeStart = Math.max(MIN_NUMBER, rangeStart);
+        range = Math.max(MIN_RANGE, range);
+        return direction ? rangeStart : Math.max(MIN_NUMBER, rangeStart - range + 1);
+    }
+
+    /**
+     * <p>Gets amount of numbers in window a batch started with given parameters covers.
+     * <br>Generating backwards stops at 0, and forwards at {@link Long#MAX_VALUE}, which may result in a smaller
+     * window than requested range.</p>
+     * @param rangeStart first number to generate.
+     * @param range range of numbers to generate.
+     * @param direction generation direction - increase (true) or decrease (false).
+     * @return amount of numbers in window.
+     */
+    public static int getWindowCount(@IntRange(from = MIN_NUMBER) long rangeStart,
+                                     @IntRange(from = MIN_RANGE) int range, boolean direction) {
+        rangeStart = Math.max(MIN_NUMBER, rangeStart);
+        range = Math.max(MIN_RANGE, range);
+        if (direction)
+            return (int) (Math.min(range - 1L, Long.MAX_VALUE - rangeStart) + 1);
+
+        return (int) (rangeStart - getWindowLow(rangeStart, range, false) + 1);
+    }
+
+    /*
+     * Helper method to check if given epoch was superseded.
+     */
+    private boolean isCancelled(int epoch) {
+        return epoch != mEpoch.get();
+    }
+
+    /*
+     * Thread factory for task's threads, running them as background threads.
+     */
+    private static class BackgroundThreadFactory implements ThreadFactory {
+
+        private final String mName;
+        private final AtomicInteger mThreadCount = new AtomicInteger();
+
+        BackgroundThreadFactory(String name) {
+            mName = name;
+        }
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            return new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    android.os.Process.setThreadPriority(
+                            android.os.Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
                 }
-            }
+            }, mName + mThreadCount.incrementAndGet());
         }
     }
-
 }
@@ -0,0 +1,113 @@
+package com.hotmail.maximglukhov.naturalnumbersgrid;
+
+import android.support.annotation.IntRange;
+
+import java.util.BitSet;
+
+/**
+ * <p>Highlight of numbers sharing a factor with a selected number, as a bitset over a range of numbers (e.g. the
+ * grid's window).</p>
+ * <p>Generated blocks are marked once (see {@link #mark(NumberCellBlock)}), using their prime signature columns
+ * without materializing cells. Checking a number is a single bit lookup afterwards, however often cells are
+ * bound.</p>
+ */
+public class NumberCellHighlight {
+
+    /*
+     * Selected number and its prime signature.
+     */
+    private final long mSelectedValue;
+    private final long mSelectedSignature;
+
+    /*
+     * Range of numbers [start, start + count) covered by highlight.
+     */
+    private final long mStart;
+    private final int mCount;
+
+    /*
+     * Highlighted numbers, bit i stands for number (start + i).
+     */
+    private final BitSet mBits;
+
+    /**
+     * <p>Constructor for highlight, with no number marked yet.</p>
+     * @param selected selected number.
+     * @param start first number in range.
+     * @param count amount of numbers in range.
+     */
+    public NumberCellHighlight(NumberCell selected, @IntRange(from = 0) long start,
+                               @IntRange(from = 0) int count) {
+        mSelectedValue      = selected.getValue();
+        mSelectedSignature  = selected.getPrimeSignature();
+        mStart              = start;
+        mCount              = Math.max(0, count);
+        mBits               = new BitSet(mCount);
+    }
+
+    /**
+     * <p>Marks numbers of given block within range, which share a factor with selected number.
+     * <br>Pending blocks are skipped, and may be marked once generated.</p>
+     * @param block generated block.
+     * @return amount of highlighted numbers in block.
+     */
+    public int mark(NumberCellBlock block) {
+        if (block.isPending() || mCount == 0)
+            return 0;
+
+        long from = Math.max(block.getStart(), mStart);
+        long to = Math.min(block.getEnd(), getEnd());
+        int highlighted = 0;
+        for (long value = from; value <= to; value++) {
+            int index = (int) (value - block.getStart());
+            if (PrimeSignature.hasCommonFactor(mSelectedValue, mSelectedSignature,
+                    value, block.getPrimeSignature(index))) {
+                mBits.set((int) (value - mStart));
+                highlighted++;
+            }
+        }
+
+        return highlighted;
+    }
+
+    /**
+     * <p>Checks if given number is highlighted. Numbers out of range are never highlighted.</p>
+     * @param value number.
+     * @return true if highlighted, false otherwise.
+     */
+    public boolean isHighlighted(long value) {
+        return value >= mStart && value <= getEnd() && mBits.get((int) (value - mStart));
+    }
+
+    /**
+     * <p>Gets selected number.</p>
+     * @return selected number.
+     */
+    public long getSelectedValue() {
+        return mSelectedValue;
+    }
+
+    /**
+     * <p>Gets first number in range.</p>
+     * @return first number.
+     */
+    public long getStart() {
+        return mStart;
+    }
+
+    /**
+     * <p>Gets last number in range.</p>
+     * @return last number (less than first number if range is empty).
+     */
+    public long getEnd() {
+        return mStart + mCount - 1;
+    }
+
+    /**
+     * <p>Gets amount of numbers in range.</p>
+     * @return amount of numbers.
+     */
+    public int getCount() {
+        return mCount;
+    }
+}
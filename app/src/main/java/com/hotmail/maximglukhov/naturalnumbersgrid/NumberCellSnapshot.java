@@ -0,0 +1,166 @@
+package com.hotmail.maximglukhov.naturalnumbersgrid;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * <p>Snapshot of the visible part of the grid, saved when activity state is saved and restored on launch,
+ * so the previous viewport can be shown on the first frame without waiting for the generator.</p>
+ * <p>Holds grid geometry, scroll position and the visible cells in the compact binary form of
+ * {@link NumberCellBlock#writeTo(java.io.DataOutput)}.</p>
+ */
+public class NumberCellSnapshot {
+
+    /*
+     * Format version, snapshots of other versions are discarded.
+     */
+    private static final int VERSION = 1;
+
+    /*
+     * Amount of columns in grid.
+     */
+    private final int mSpanCount;
+
+    /*
+     * Minimum amount of cells which fill the screen.
+     */
+    private final int mMinItemCount;
+
+    /*
+     * Number in first visible cell and its view's offset from top of grid.
+     */
+    private final long mFirstVisibleValue;
+    private final int mScrollOffset;
+
+    /*
+     * Whether grid was in virtual scrolling mode.
+     */
+    private final boolean mIsVirtual;
+
+    /*
+     * Visible cells.
+     */
+    private final NumberCellBlock mBlock;
+
+    /**
+     * <p>Constructor for snapshot.</p>
+     * @param spanCount amount of columns in grid.
+     * @param minItemCount minimum amount of cells which fill the screen.
+     * @param firstVisibleValue number in first visible cell.
+     * @param scrollOffset first visible cell's offset from top of grid in pixels.
+     * @param isVirtual whether grid is in virtual scrolling mode.
+     * @param block visible cells, must contain firstVisibleValue.
+     */
+    public NumberCellSnapshot(int spanCount, int minItemCount, long firstVisibleValue, int scrollOffset,
+                              boolean isVirtual, NumberCellBlock block) {
+        mSpanCount          = spanCount;
+        mMinItemCount       = minItemCount;
+        mFirstVisibleValue  = firstVisibleValue;
+        mScrollOffset       = scrollOffset;
+        mIsVirtual          = isVirtual;
+        mBlock              = block;
+    }
+
+    /**
+     * <p>Encodes snapshot.</p>
+     * @return encoded snapshot.
+     */
+    public byte[] toByteArray() {
+        ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(byteStream);
+        try {
+            out.writeInt(VERSION);
+            out.writeInt(mSpanCount);
+            out.writeInt(mMinItemCount);
+            out.writeLong(mFirstVisibleValue);
+            out.writeInt(mScrollOffset);
+            out.writeBoolean(mIsVirtual);
+            mBlock.writeTo(out);
+            out.flush();
+        } catch (IOException e) {
+            // Not thrown by in-memory streams.
+            throw new IllegalStateException(e);
+        }
+
+        return byteStream.toByteArray();
+    }
+
+    /**
+     * <p>Decodes a snapshot encoded by {@link #toByteArray()}.</p>
+     * @param data encoded snapshot.
+     * @return decoded snapshot.
+     * @throws IOException if data is invalid or of another version.
+     */
+    public static NumberCellSnapshot fromByteArray(byte[] data) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+
+        int version = in.readInt();
+        if (version != VERSION)
+            throw new IOException("Unsupported snapshot version: " + version);
+
+        int spanCount = in.readInt();
+        int minItemCount = in.readInt();
+        long firstVisibleValue = in.readLong();
+        int scrollOffset = in.readInt();
+        boolean isVirtual = in.readBoolean();
+        NumberCellBlock block = NumberCellBlock.readFrom(in);
+
+        if (spanCount <= 0 || minItemCount <= 0 || block.getCount() == 0
+                || firstVisibleValue < block.getStart() || firstVisibleValue > block.getEnd())
+            throw new IOException("Invalid snapshot.");
+
+        return new NumberCellSnapshot(spanCount, minItemCount, firstVisibleValue, scrollOffset, isVirtual,
+                block);
+    }
+
+    /**
+     * <p>Gets amount of columns in grid.</p>
+     * @return amount of columns.
+     */
+    public int getSpanCount() {
+        return mSpanCount;
+    }
+
+    /**
+     * <p>Gets minimum amount of cells which fill the screen.</p>
+     * @return minimum amount of cells.
+     */
+    public int getMinItemCount() {
+        return mMinItemCount;
+    }
+
+    /**
+     * <p>Gets number in first visible cell.</p>
+     * @return first visible number.
+     */
+    public long getFirstVisibleValue() {
+        return mFirstVisibleValue;
+    }
+
+    /**
+     * <p>Gets first visible cell's offset from top of grid.</p>
+     * @return offset in pixels.
+     */
+    public int getScrollOffset() {
+        return mScrollOffset;
+    }
+
+    /**
+     * <p>Checks if grid was in virtual scrolling mode.</p>
+     * @return true if virtual, false otherwise.
+     */
+    public boolean isVirtual() {
+        return mIsVirtual;
+    }
+
+    /**
+     * <p>Gets visible cells.</p>
+     * @return block containing first visible number.
+     */
+    public NumberCellBlock getBlock() {
+        return mBlock;
+    }
+}
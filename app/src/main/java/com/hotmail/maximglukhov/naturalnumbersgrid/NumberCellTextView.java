@@ -9,21 +9,29 @@ import android.util.AttributeSet;
  * <p>Custom view displaying cell with an integer in the center of it.
  * <br>Changes background according to number's primality property. Also allows highlight (different background)
  * if required.</p>
+ * <p>Highlight is a drawable state ({@link R.attr#state_highlighted}) of background, so toggling it only swaps
+ * the already loaded state of background drawable. Background itself is only set when its type changes.</p>
  */
 public class NumberCellTextView extends AppCompatTextView {
 
     /**
      * <p>Defines cell's background type (affects color).
-     * <br>{@link #TYPE_COMPOSITE} - background for non-prime numbers (uses {@link R.drawable#cell_background_composite})
-     * <br>{@link #TYPE_PRIME} - background for non-prime numbers (uses {@link R.drawable#cell_background_prime})
-     * <br>{@link #TYPE_HIGHLIGHT} - background for non-prime numbers (uses {@link R.drawable#cell_background_highlight})</p>
+     * <br>{@link #TYPE_COMPOSITE} - background for non-prime numbers (uses {@link R.drawable#cell_background_composite_state})
+     * <br>{@link #TYPE_PRIME} - background for prime numbers (uses {@link R.drawable#cell_background_prime_state})
+     * <br>{@link #TYPE_PLACEHOLDER} - background for numbers not generated yet (uses {@link R.drawable#cell_background_placeholder})
+     * <br>Composite and prime backgrounds show {@link R.drawable#cell_background_highlight} while highlighted.</p>
      */
     public enum CellBackgroundType {
         TYPE_COMPOSITE,
         TYPE_PRIME,
-        TYPE_HIGHLIGHT
+        TYPE_PLACEHOLDER
     }
 
+    /*
+     * Drawable state set while highlighted.
+     */
+    private static final int[] STATE_HIGHLIGHTED = {R.attr.state_highlighted};
+
     /*
      * Data class holding information for this cell view.
      */
@@ -34,6 +42,11 @@ public class NumberCellTextView extends AppCompatTextView {
      */
     private boolean mIsHighlighted;
 
+    /*
+     * Current background type, or null if not set yet.
+     */
+    private CellBackgroundType mBackgroundType;
+
     public NumberCellTextView(Context context, @Nullable AttributeSet attrs,
                               int defStyleAttr) {
         super(context, attrs, defStyleAttr);
@@ -52,11 +65,20 @@ public class NumberCellTextView extends AppCompatTextView {
      * @param data data to set.
      */
     public void setCellData(NumberCell data) {
-        mCellData = data;
-
         // Update text to match data.
         setText(Long.toString(data.getValue()));
 
+        setCellProperties(data);
+    }
+
+    /**
+     * <p>Sets cell's data without updating text, for a cell already showing its number (e.g. a placeholder
+     * whose number was generated since).</p>
+     * @param data data to set.
+     */
+    public void setCellProperties(NumberCell data) {
+        mCellData = data;
+
         // Update background to match type.
         if (data.isPrime())
             setCellBackground(CellBackgroundType.TYPE_PRIME);
@@ -64,9 +86,20 @@ public class NumberCellTextView extends AppCompatTextView {
             setCellBackground(CellBackgroundType.TYPE_COMPOSITE);
     }
 
+    /**
+     * <p>Shows a placeholder for a number which is not generated yet.</p>
+     * @param value number to show.
+     */
+    public void setPlaceholder(long value) {
+        mCellData = null;
+
+        setText(Long.toString(value));
+        setCellBackground(CellBackgroundType.TYPE_PLACEHOLDER);
+    }
+
     /**
      * <p>Gets cell's data.</p>
-     * @return cell's data.
+     * @return cell's data, or null if showing a placeholder.
      */
     public NumberCell getCellData() {
         return mCellData;
@@ -75,21 +108,25 @@ public class NumberCellTextView extends AppCompatTextView {
     /**
      * <p>Changes cells background color according to toggle.
      * <br>Setting true changes background to {@link R.drawable#cell_background_highlight}.
-     * <br>Setting false changes background to cell's {@link CellBackgroundType}.</p>
+     * <br>Setting false changes background to cell's {@link CellBackgroundType}.
+     * <br>Placeholders are never shown highlighted.</p>
      * @param toggle toggle highlight.
      */
     public void highlight(boolean toggle) {
+        if (toggle == mIsHighlighted)
+            return;
+
+        // Only drawable state changes, background stays.
         mIsHighlighted = toggle;
-        if (toggle) {
-            // Highlight background.
-            setCellBackground(CellBackgroundType.TYPE_HIGHLIGHT);
-        } else {
-            // Return to original background.
-            if (mCellData.isPrime())
-                setCellBackground(CellBackgroundType.TYPE_PRIME);
-            else
-                setCellBackground(CellBackgroundType.TYPE_COMPOSITE);
-        }
+        refreshDrawableState();
+    }
+
+    /**
+     * <p>Checks if cell is highlighted.</p>
+     * @return true if highlighted, false otherwise.
+     */
+    public boolean isHighlighted() {
+        return mIsHighlighted;
     }
 
     /**
@@ -104,19 +141,32 @@ public class NumberCellTextView extends AppCompatTextView {
         }
     }
 
+    @Override
+    protected int[] onCreateDrawableState(int extraSpace) {
+        int[] state = super.onCreateDrawableState(extraSpace + 1);
+        if (mIsHighlighted)
+            mergeDrawableStates(state, STATE_HIGHLIGHTED);
+
+        return state;
+    }
+
     /*
-     * Helper method to set cell's background according to type.
+     * Helper method to set cell's background according to type, unless already set.
      */
     private void setCellBackground(CellBackgroundType type) {
+        if (type == mBackgroundType)
+            return;
+
+        mBackgroundType = type;
         switch (type) {
             case TYPE_COMPOSITE:
-                setBackgroundResource(R.drawable.cell_background_composite);
+                setBackgroundResource(R.drawable.cell_background_composite_state);
                 break;
             case TYPE_PRIME:
-                setBackgroundResource(R.drawable.cell_background_prime);
+                setBackgroundResource(R.drawable.cell_background_prime_state);
                 break;
-            case TYPE_HIGHLIGHT:
-                setBackgroundResource(R.drawable.cell_background_highlight);
+            case TYPE_PLACEHOLDER:
+                setBackgroundResource(R.drawable.cell_background_placeholder);
                 break;
         }
     }
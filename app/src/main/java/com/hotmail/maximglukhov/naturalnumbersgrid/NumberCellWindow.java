@@ -0,0 +1,505 @@
+package com.hotmail.maximglukhov.naturalnumbersgrid;
+
+import android.support.annotation.IntRange;
+
+import java.util.ArrayList;
+
+/**
+ * <p>Sliding window of consecutive numbers, made of {@link NumberCellBlock}s kept in a ring buffer.</p>
+ * <p>Whole blocks are appended and prepended in amortized O(1), trimming either end only drops or slices the
+ * blocks at that end, and cells are found by binary search over blocks. Dropped blocks are released right away,
+ * and slices much smaller than their block are compacted (see {@link NumberCellBlock#compact()}), so cells
+ * dropped from a block are released along with it.</p>
+ * <p>Window has a capacity (in cells), see {@link #trimToCapacity(boolean, int)}.</p>
+ * <p>Blocks may be pending (see {@link NumberCellBlock#pending(long, int)}), showing numbers before they are
+ * generated. Pending cells are filled in place as generated blocks arrive, see {@link #fill(NumberCellBlock)}.</p>
+ * <p>Changes may be grouped in a transaction (see {@link #beginTransaction()}): however many blocks were added,
+ * trimmed or filled meanwhile, committing reports at most one removal and one insertion at either end, and one
+ * changed range.</p>
+ */
+public class NumberCellWindow {
+
+    /**
+     * <p>Interface definition for receiving changes of a transaction, as positions in window. Changes are reported
+     * in order, every position is relative to window after all previous changes.</p>
+     */
+    public interface ChangeListener {
+        /**
+         * <p>Called for removed cells.</p>
+         * @param position position of first removed cell.
+         * @param count amount of removed cells.
+         */
+        void onRangeRemoved(int position, int count);
+
+        /**
+         * <p>Called for inserted cells.</p>
+         * @param position position of first inserted cell.
+         * @param count amount of inserted cells.
+         */
+        void onRangeInserted(int position, int count);
+
+        /**
+         * <p>Called for filled cells (may include cells which weren't filled, in between filled ones).</p>
+         * @param position position of first filled cell.
+         * @param count amount of cells.
+         */
+        void onRangeChanged(int position, int count);
+    }
+
+    /*
+     * Initial amount of block slots in ring buffer (power of 2).
+     */
+    private static final int INITIAL_SLOTS = 16;
+
+    /*
+     * Blocks in increasing order, starting at mHead (wrapping around).
+     */
+    private NumberCellBlock[] mBlocks;
+    private int mHead;
+    private int mBlockCount;
+
+    /*
+     * Total amount of cells in all blocks.
+     */
+    private int mCellCount;
+
+    /*
+     * Maximum amount of cells kept in window.
+     */
+    private int mCapacity;
+
+    /*
+     * Running transaction: first number and amount of cells when begun, and numbers filled since
+     * (mChangedLow > mChangedHigh if none).
+     */
+    private boolean mIsInTransaction;
+    private long mTransactionFirst;
+    private int mTransactionCount;
+    private long mChangedLow;
+    private long mChangedHigh;
+
+    /**
+     * <p>Constructor for window.</p>
+     * @param capacity maximum amount of cells kept in window.
+     */
+    public NumberCellWindow(@IntRange(from = 1) int capacity) {
+        mBlocks     = new NumberCellBlock[INITIAL_SLOTS];
+        mCapacity   = Math.max(1, capacity);
+    }
+
+    /**
+     * <p>Adds block after last cell.</p>
+     * @param block block to add, must start right after last cell (unless window is empty).
+     */
+    public void append(NumberCellBlock block) {
+        ensureSlots(mBlockCount + 1);
+        mBlocks[slot(mBlockCount)] = block;
+        mBlockCount++;
+        mCellCount += block.getCount();
+    }
+
+    /**
+     * <p>Adds block before first cell.</p>
+     * @param block block to add, must end right before first cell (unless window is empty).
+     */
+    public void prepend(NumberCellBlock block) {
+        ensureSlots(mBlockCount + 1);
+        mHead = (mHead - 1) & (mBlocks.length - 1);
+        mBlocks[mHead] = block;
+        mBlockCount++;
+        mCellCount += block.getCount();
+    }
+
+    /**
+     * <p>Fills pending cells with given generated block. Cells outside window, or generated already, are kept.</p>
+     * @param block generated block (may cover any part of window).
+     * @return amount of filled cells.
+     */
+    public int fill(NumberCellBlock block) {
+        if (mBlockCount == 0 || block.getEnd() < getFirstValue() || block.getStart() > getLastValue())
+            return 0;
+
+        // Count blocks once pending blocks are split around generated part, so they're split in place.
+        int filled = 0;
+        int blockCount = mBlockCount;
+        for (int i = 0; i < mBlockCount; i++) {
+            NumberCellBlock current = mBlocks[slot(i)];
+            long from = Math.max(current.getStart(), block.getStart());
+            long to = Math.min(current.getEnd(), block.getEnd());
+            if (!current.isPending() || from > to)
+                continue;
+
+            filled += (int) (to - from) + 1;
+            if (from > current.getStart())
+                blockCount++;
+            if (to < current.getEnd())
+                blockCount++;
+        }
+
+        if (filled == 0)
+            return 0;
+
+        ensureSlots(blockCount);
+
+        // Split from last block backwards, every block lands at or after its current index, so blocks not
+        // visited yet are never overwritten.
+        int index = blockCount - 1;
+        for (int i = mBlockCount - 1; i >= 0; i--) {
+            NumberCellBlock current = mBlocks[slot(i)];
+            long from = Math.max(current.getStart(), block.getStart());
+            long to = Math.min(current.getEnd(), block.getEnd());
+            if (!current.isPending() || from > to) {
+                mBlocks[slot(index--)] = current;
+                continue;
+            }
+
+            int fromIndex = (int) (from - current.getStart());
+            int toIndex = (int) (to - current.getStart()) + 1;
+            if (toIndex < current.getCount())
+                mBlocks[slot(index--)] = current.slice(toIndex, current.getCount());
+            mBlocks[slot(index--)] = block.slice((int) (from - block.getStart()),
+                    (int) (to - block.getStart()) + 1).compact();
+            if (fromIndex > 0)
+                mBlocks[slot(index--)] = current.slice(0, fromIndex);
+
+            if (mIsInTransaction) {
+                mChangedLow = Math.min(mChangedLow, from);
+                mChangedHigh = Math.max(mChangedHigh, to);
+            }
+        }
+
+        // Cell count stays the same.
+        mBlockCount = blockCount;
+        return filled;
+    }
+
+    /**
+     * <p>Begins a transaction, grouping all changes until {@link #commitTransaction(ChangeListener)}.</p>
+     */
+    public void beginTransaction() {
+        mIsInTransaction    = true;
+        mTransactionFirst   = getFirstValue();
+        mTransactionCount   = mCellCount;
+        mChangedLow         = Long.MAX_VALUE;
+        mChangedHigh        = Long.MIN_VALUE;
+    }
+
+    /**
+     * <p>Ends running transaction, reporting its changes.
+     * <br>Window only ever grows or shrinks at either end, so changes are found by comparing numbers at both
+     * ends with those when transaction began.</p>
+     * @param listener listener to report changes to.
+     * @return true if anything changed, false otherwise (or if no transaction is running).
+     */
+    public boolean commitTransaction(ChangeListener listener) {
+        if (!mIsInTransaction)
+            return false;
+        mIsInTransaction = false;
+
+        long oldFirst = mTransactionFirst;
+        long oldLast = oldFirst + mTransactionCount - 1;
+        long newFirst = getFirstValue();
+        long newLast = newFirst + mCellCount - 1;
+
+        if (mTransactionCount == 0 || mCellCount == 0 || newLast < oldFirst || newFirst > oldLast) {
+            // Nothing in common, replace everything.
+            if (mTransactionCount > 0)
+                listener.onRangeRemoved(0, mTransactionCount);
+            if (mCellCount > 0)
+                listener.onRangeInserted(0, mCellCount);
+            return mTransactionCount > 0 || mCellCount > 0;
+        }
+
+        boolean isChanged = false;
+
+        // Start, after which window starts at new first number.
+        if (newFirst > oldFirst) {
+            listener.onRangeRemoved(0, (int) (newFirst - oldFirst));
+            isChanged = true;
+        } else if (newFirst < oldFirst) {
+            listener.onRangeInserted(0, (int) (oldFirst - newFirst));
+            isChanged = true;
+        }
+
+        // End.
+        if (newLast < oldLast) {
+            listener.onRangeRemoved((int) (newLast - newFirst) + 1, (int) (oldLast - newLast));
+            isChanged = true;
+        } else if (newLast > oldLast) {
+            listener.onRangeInserted((int) (oldLast - newFirst) + 1, (int) (newLast - oldLast));
+            isChanged = true;
+        }
+
+        // Filled cells which were there before, new cells are bound anyway.
+        long changedLow = Math.max(mChangedLow, Math.max(oldFirst, newFirst));
+        long changedHigh = Math.min(mChangedHigh, Math.min(oldLast, newLast));
+        if (changedLow <= changedHigh) {
+            listener.onRangeChanged((int) (changedLow - newFirst), (int) (changedHigh - changedLow) + 1);
+            isChanged = true;
+        }
+
+        return isChanged;
+    }
+
+    /**
+     * <p>Checks if a transaction is running.</p>
+     * @return true if running, false otherwise.
+     */
+    public boolean isInTransaction() {
+        return mIsInTransaction;
+    }
+
+    /**
+     * <p>Removes given amount of cells from start.</p>
+     * @param amount amount of cells to remove.
+     */
+    public void trimStart(int amount) {
+        amount = Math.min(amount, mCellCount);
+        mCellCount -= amount;
+        while (amount > 0) {
+            NumberCellBlock first = mBlocks[mHead];
+            if (first.getCount() <= amount) {
+                amount -= first.getCount();
+                mBlocks[mHead] = null;
+                mHead = (mHead + 1) & (mBlocks.length - 1);
+                mBlockCount--;
+            } else {
+                mBlocks[mHead] = first.slice(amount, first.getCount()).compact();
+                amount = 0;
+            }
+        }
+    }
+
+    /**
+     * <p>Removes given amount of cells from end.</p>
+     * @param amount amount of cells to remove.
+     */
+    public void trimEnd(int amount) {
+        amount = Math.min(amount, mCellCount);
+        mCellCount -= amount;
+        while (amount > 0) {
+            int lastSlot = slot(mBlockCount - 1);
+            NumberCellBlock last = mBlocks[lastSlot];
+            if (last.getCount() <= amount) {
+                amount -= last.getCount();
+                mBlocks[lastSlot] = null;
+                mBlockCount--;
+            } else {
+                mBlocks[lastSlot] = last.slice(0, last.getCount() - amount).compact();
+                amount = 0;
+            }
+        }
+    }
+
+    /**
+     * <p>Trims cells beyond capacity from one end.</p>
+     * @param fromStart true to trim from start, false to trim from end.
+     * @param alignment trimmed amount is rounded up to a multiple of this (e.g. columns, to keep cells in
+     *                  their columns when trimming from start).
+     * @return amount of trimmed cells.
+     */
+    public int trimToCapacity(boolean fromStart, @IntRange(from = 1) int alignment) {
+        if (mCellCount <= mCapacity)
+            return 0;
+
+        alignment = Math.max(1, alignment);
+        int amount = mCellCount - mCapacity;
+        amount = Math.min(mCellCount, (amount + alignment - 1) / alignment * alignment);
+
+        if (fromStart)
+            trimStart(amount);
+        else
+            trimEnd(amount);
+
+        return amount;
+    }
+
+    /**
+     * <p>Removes all cells.</p>
+     */
+    public void clear() {
+        for (int i = 0; i < mBlockCount; i++)
+            mBlocks[slot(i)] = null;
+
+        mHead = 0;
+        mBlockCount = 0;
+        mCellCount = 0;
+    }
+
+    /**
+     * <p>Gets cell at given index in window.</p>
+     * @param index index in window.
+     * @return cell at index.
+     */
+    public NumberCell getCell(int index) {
+        if (index < 0 || index >= mCellCount)
+            throw new IndexOutOfBoundsException("index=" + index + ", count=" + mCellCount);
+
+        long value = getFirstValue() + index;
+        NumberCellBlock block = findBlock(value);
+        return block.getCell((int) (value - block.getStart()));
+    }
+
+    /**
+     * <p>Marks generated cells of window in given highlight (see {@link NumberCellHighlight#mark(NumberCellBlock)}).
+     * </p>
+     * @param highlight highlight to mark.
+     * @return amount of highlighted cells.
+     */
+    public int markHighlight(NumberCellHighlight highlight) {
+        int highlighted = 0;
+        for (int i = 0; i < mBlockCount; i++)
+            highlighted += highlight.mark(mBlocks[slot(i)]);
+
+        return highlighted;
+    }
+
+    /**
+     * <p>Checks if cell at given index is pending (not generated yet).</p>
+     * @param index index in window.
+     * @return true if pending, false otherwise.
+     */
+    public boolean isPending(int index) {
+        if (index < 0 || index >= mCellCount)
+            throw new IndexOutOfBoundsException("index=" + index + ", count=" + mCellCount);
+
+        return findBlock(getFirstValue() + index).isPending();
+    }
+
+    /**
+     * <p>Gets cells in given range of window as a single block. Shares columns when range lies in one block.
+     * <br>Range is cut short at the first pending cell.</p>
+     * @param from index of first cell in window.
+     * @param to index after last cell in window.
+     * @return block of cells in range, or null if first cell is pending.
+     */
+    public NumberCellBlock getBlock(int from, int to) {
+        if (from < 0 || to > mCellCount || from >= to)
+            throw new IndexOutOfBoundsException("from=" + from + ", to=" + to + ", count=" + mCellCount);
+
+        long first = getFirstValue() + from;
+        long last = getFirstValue() + to - 1;
+
+        ArrayList<NumberCellBlock> slices = new ArrayList<>();
+        for (int i = 0; i < mBlockCount; i++) {
+            NumberCellBlock block = mBlocks[slot(i)];
+            if (block.getEnd() < first || block.getStart() > last)
+                continue;
+            if (block.isPending())
+                break;
+
+            int sliceFrom = (int) (Math.max(first, block.getStart()) - block.getStart());
+            int sliceTo = (int) (Math.min(last, block.getEnd()) - block.getStart()) + 1;
+            slices.add(block.slice(sliceFrom, sliceTo));
+        }
+
+        if (slices.isEmpty())
+            return null;
+
+        return NumberCellBlock.concat(slices.toArray(new NumberCellBlock[slices.size()]));
+    }
+
+    /**
+     * <p>Gets amount of cells in window.</p>
+     * @return amount of cells.
+     */
+    public int getCount() {
+        return mCellCount;
+    }
+
+    /**
+     * <p>Checks if window has no cells.</p>
+     * @return true if empty, false otherwise.
+     */
+    public boolean isEmpty() {
+        return mCellCount == 0;
+    }
+
+    /**
+     * <p>Gets first (lowest) number in window.</p>
+     * @return first number, or -1 if empty.
+     */
+    public long getFirstValue() {
+        return mBlockCount == 0 ? -1 : mBlocks[mHead].getStart();
+    }
+
+    /**
+     * <p>Gets last (highest) number in window.</p>
+     * @return last number, or -1 if empty.
+     */
+    public long getLastValue() {
+        return mBlockCount == 0 ? -1 : mBlocks[slot(mBlockCount - 1)].getEnd();
+    }
+
+    /**
+     * <p>Sets maximum amount of cells kept in window.</p>
+     * @param capacity maximum amount of cells.
+     */
+    public void setCapacity(@IntRange(from = 1) int capacity) {
+        mCapacity = Math.max(1, capacity);
+    }
+
+    /**
+     * <p>Gets maximum amount of cells kept in window.</p>
+     * @return maximum amount of cells.
+     */
+    public int getCapacity() {
+        return mCapacity;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < mBlockCount; i++) {
+            if (i > 0)
+                builder.append(", ");
+            builder.append(mBlocks[slot(i)]);
+        }
+
+        return builder.append(']').toString();
+    }
+
+    /*
+     * Helper method to find block containing given number in window. Numbers map directly to indices, so
+     * blocks are binary searched by their last number.
+     */
+    private NumberCellBlock findBlock(long value) {
+        int low = 0;
+        int high = mBlockCount - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (mBlocks[slot(middle)].getEnd() < value)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+
+        return mBlocks[slot(low)];
+    }
+
+    /*
+     * Helper method to get ring buffer slot for block at given index.
+     */
+    private int slot(int index) {
+        return (mHead + index) & (mBlocks.length - 1);
+    }
+
+    /*
+     * Helper method to double ring buffer slots until given amount of blocks fits.
+     */
+    private void ensureSlots(int blockCount) {
+        if (blockCount <= mBlocks.length)
+            return;
+
+        int slots = mBlocks.length * 2;
+        while (slots < blockCount)
+            slots *= 2;
+
+        NumberCellBlock[] blocks = new NumberCellBlock[slots];
+        for (int i = 0; i < mBlockCount; i++)
+            blocks[i] = mBlocks[slot(i)];
+
+        mBlocks = blocks;
+        mHead = 0;
+    }
+}
@@ -0,0 +1,181 @@
+package com.hotmail.maximglukhov.naturalnumbersgrid;
+
+import android.support.annotation.IntRange;
+
+/**
+ * <p>Decides when and how many cells to generate ahead of the viewport while scrolling.</p>
+ * <p>Tracks scroll velocity (from scroll deltas and fling events) and generator's recent throughput, both as
+ * exponential moving averages. Batches are sized to what the viewport will consume in the next
+ * {@link #BATCH_HORIZON_MS}, and started while enough cells are left ahead of the viewport to cover the time
+ * it takes to generate them. Slow browsing results in small batches, fast flings start bigger batches earlier.</p>
+ * <p>All times are in milliseconds, on a monotonic clock (e.g. {@link android.os.SystemClock#uptimeMillis()}).</p>
+ */
+public class PrefetchScheduler {
+
+    /*
+     * Smoothing factors for velocity and throughput moving averages (weight of newest sample).
+     */
+    private static final float VELOCITY_SMOOTHING = 0.3f;
+    private static final float THROUGHPUT_SMOOTHING = 0.3f;
+
+    /*
+     * Scroll deltas further apart than this are considered a new scroll, velocity starts over.
+     */
+    private static final long MAX_SAMPLE_INTERVAL_MS = 100;
+
+    /**
+     * <p>Throughput assumed (cells/ms) until first batch is measured.</p>
+     */
+    public static final float DEFAULT_THROUGHPUT = 20.0f;
+
+    /**
+     * <p>Time span (ms) of scrolling every batch should cover.</p>
+     */
+    public static final long BATCH_HORIZON_MS = 1000;
+
+    /*
+     * Generated frontier is kept ahead of viewport by this factor over the estimated generation time.
+     */
+    private static final float SAFETY_FACTOR = 2.0f;
+
+    /*
+     * Grid geometry.
+     */
+    private int mSpanCount = 1;
+    private int mRowHeight = 1;
+    private int mVisibleCells = 1;
+
+    /*
+     * Batch size bounds.
+     */
+    private int mMinBatchSize = 1;
+    private int mMaxBatchSize = 1;
+
+    /*
+     * Smoothed scroll velocity in pixels/ms (positive when scrolling down) and time of last sample.
+     */
+    private float mVelocity;
+    private long mLastScrollTime = -1;
+
+    /*
+     * Smoothed generator throughput in cells/ms.
+     */
+    private float mThroughput = DEFAULT_THROUGHPUT;
+
+    /**
+     * <p>Sets grid geometry used to convert scrolled pixels into cells.</p>
+     * @param spanCount amount of columns.
+     * @param rowHeight height of a single row in pixels.
+     * @param visibleCells amount of cells fitting in viewport.
+     */
+    public void setGeometry(@IntRange(from = 1) int spanCount, @IntRange(from = 1) int rowHeight,
+                            @IntRange(from = 1) int visibleCells) {
+        mSpanCount      = Math.max(1, spanCount);
+        mRowHeight      = Math.max(1, rowHeight);
+        mVisibleCells   = Math.max(1, visibleCells);
+    }
+
+    /**
+     * <p>Sets bounds for batch sizes.</p>
+     * @param minBatchSize smallest batch, used for slow browsing.
+     * @param maxBatchSize largest batch (memory budget for a single batch).
+     */
+    public void setBatchBounds(@IntRange(from = 1) int minBatchSize, @IntRange(from = 1) int maxBatchSize) {
+        mMinBatchSize = Math.max(1, minBatchSize);
+        mMaxBatchSize = Math.max(mMinBatchSize, maxBatchSize);
+    }
+
+    /**
+     * <p>Samples scroll velocity from a scroll delta.</p>
+     * @param dy scrolled pixels (positive when scrolling down).
+     * @param time time of scroll event.
+     */
+    public void onScrolled(int dy, long time) {
+        long interval = time - mLastScrollTime;
+        if (mLastScrollTime < 0 || interval > MAX_SAMPLE_INTERVAL_MS) {
+            // Too old to relate to, wait for next delta.
+            mVelocity = 0;
+        } else if (interval > 0) {
+            mVelocity += VELOCITY_SMOOTHING * ((float) dy / interval - mVelocity);
+        }
+
+        mLastScrollTime = time;
+    }
+
+    /**
+     * <p>Sets scroll velocity from a fling, which is known ahead of the scroll deltas it results in.</p>
+     * @param velocity fling velocity in pixels/second (positive when scrolling down).
+     * @param time time of fling event.
+     */
+    public void onFling(float velocity, long time) {
+        mVelocity = velocity / 1000.0f;
+        mLastScrollTime = time;
+    }
+
+    /**
+     * <p>Resets scroll velocity once scrolling stopped.</p>
+     */
+    public void onScrollStopped() {
+        mVelocity = 0;
+        mLastScrollTime = -1;
+    }
+
+    /**
+     * <p>Samples generator throughput from a delivered batch.</p>
+     * @param cells amount of cells in batch.
+     * @param duration time from starting batch until its delivery.
+     */
+    public void onBatchGenerated(int cells, long duration) {
+        if (cells <= 0)
+            return;
+
+        float throughput = (float) cells / Math.max(1, duration);
+        mThroughput += THROUGHPUT_SMOOTHING * (throughput - mThroughput);
+    }
+
+    /**
+     * <p>Gets scroll velocity in cells/ms (positive when scrolling down).</p>
+     * @return scroll velocity.
+     */
+    public float getCellVelocity() {
+        return mVelocity * mSpanCount / mRowHeight;
+    }
+
+    /**
+     * <p>Gets generator throughput in cells/ms.</p>
+     * @return throughput.
+     */
+    public float getThroughput() {
+        return mThroughput;
+    }
+
+    /**
+     * <p>Gets size for next batch: cells viewport will pass in {@link #BATCH_HORIZON_MS}, within batch bounds,
+     * rounded up to full rows.</p>
+     * @return batch size.
+     */
+    public int getBatchSize() {
+        float cells = Math.abs(getCellVelocity()) * BATCH_HORIZON_MS;
+        int size = (int) Math.min(mMaxBatchSize, Math.max(mMinBatchSize, cells));
+        return roundUpToRows(size);
+    }
+
+    /**
+     * <p>Gets amount of cells which must be left ahead of viewport (in scroll direction) when next batch is
+     * started, so it is delivered before viewport reaches the end of generated cells.</p>
+     * @return prefetch distance in cells, at least one viewport.
+     */
+    public int getPrefetchDistance() {
+        // Time for generating next batch, and cells viewport passes in that time.
+        float generationTime = getBatchSize() / mThroughput;
+        float cells = Math.abs(getCellVelocity()) * generationTime * SAFETY_FACTOR;
+        return roundUpToRows((int) Math.min(Integer.MAX_VALUE / 2, Math.max(mVisibleCells, cells)));
+    }
+
+    /*
+     * Helper method to round amount of cells up to full rows.
+     */
+    private int roundUpToRows(int cells) {
+        return (cells + mSpanCount - 1) / mSpanCount * mSpanCount;
+    }
+}
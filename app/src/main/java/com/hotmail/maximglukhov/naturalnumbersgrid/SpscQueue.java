@@ -0,0 +1,90 @@
+package com.hotmail.maximglukhov.naturalnumbersgrid;
+
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * <p>Unbounded lock-free queue for exactly one producer thread and one consumer thread.</p>
+ * <p>Elements are kept in a linked list behind a stub node. Producer only touches the tail and consumer only
+ * touches the head, so neither ever waits for the other: offering is a single ordered store, and polling a
+ * single volatile read.</p>
+ * <p>{@link #offer(Object)} must only be called from producer thread, {@link #poll()} and {@link #isEmpty()}
+ * only from consumer thread.</p>
+ * @param <E> element type.
+ */
+public class SpscQueue<E> {
+
+    /*
+     * Updater for ordered stores of node links.
+     */
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<Node, Node> NEXT =
+            AtomicReferenceFieldUpdater.newUpdater(Node.class, Node.class, "mNext");
+
+    /*
+     * Node before first element (already consumed, or stub). Only touched by consumer.
+     */
+    private Node<E> mHead;
+
+    /*
+     * Last node. Only touched by producer.
+     */
+    private Node<E> mTail;
+
+    /**
+     * <p>Constructor for an empty queue.</p>
+     */
+    public SpscQueue() {
+        mHead = new Node<>(null);
+        mTail = mHead;
+    }
+
+    /**
+     * <p>Adds element to end of queue. Called from producer thread only.</p>
+     * @param element element to add.
+     */
+    public void offer(E element) {
+        if (element == null)
+            throw new NullPointerException("element == null");
+
+        Node<E> node = new Node<>(element);
+        // Publish node only once its element is set.
+        NEXT.lazySet(mTail, node);
+        mTail = node;
+    }
+
+    /**
+     * <p>Takes first element of queue. Called from consumer thread only.</p>
+     * @return first element, or null if empty.
+     */
+    public E poll() {
+        Node<E> next = mHead.mNext;
+        if (next == null)
+            return null;
+
+        // Next node becomes the stub, drop its element for garbage collection.
+        E element = next.mElement;
+        next.mElement = null;
+        mHead = next;
+        return element;
+    }
+
+    /**
+     * <p>Checks if queue is empty. Called from consumer thread only.</p>
+     * @return true if empty, false otherwise.
+     */
+    public boolean isEmpty() {
+        return mHead.mNext == null;
+    }
+
+    /*
+     * Linked list node.
+     */
+    private static class Node<E> {
+        E mElement;
+        volatile Node<E> mNext;
+
+        Node(E element) {
+            mElement = element;
+        }
+    }
+}
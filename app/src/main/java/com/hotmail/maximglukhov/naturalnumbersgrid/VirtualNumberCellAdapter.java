@@ -0,0 +1,267 @@
+package com.hotmail.maximglukhov.naturalnumbersgrid;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.LayoutInflater;
+import android.view.ViewGroup;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>Adapter for {@link android.support.v7.widget.RecyclerView} displaying grid of natural numbers, where
+ * position maps directly to a number (first value + position) over a large virtual item count.</p>
+ * <p>Cells are read from a {@link NumberCellBlockCache}. Cells of blocks not generated yet are shown as
+ * placeholders, and rebound with {@link NumberCellAdapter#PAYLOAD_PROPERTIES} once their block is ready (see
+ * {@link #onBlockReady(NumberCellBlock)}).
+ * Scrolling never inserts or removes items, and costs the same regardless of how far the grid was scrolled.</p>
+ * <p>Highlight covers a range of positions (see {@link #setHighlight(NumberCell, int, int)}), as item count is too
+ * large to cover entirely.</p>
+ */
+public class VirtualNumberCellAdapter extends RecyclerView.Adapter<NumberCellAdapter.ViewHolder> {
+
+    /*
+     * Cache holding generated blocks.
+     */
+    private final NumberCellBlockCache mCache;
+
+    /*
+     * Number at position 0.
+     */
+    private final long mFirstValue;
+
+    /*
+     * Virtual amount of items, up to Long.MAX_VALUE or as many as RecyclerView can address.
+     */
+    private final int mItemCount;
+
+    /*
+     * Cells restored from a snapshot, shown until their cached blocks are generated. May be null.
+     */
+    private NumberCellBlock mRestoredBlock;
+
+    /*
+     * Metrics recording bind time of every cell, or null.
+     */
+    private GridMetrics mMetrics;
+
+    /*
+     * Highlighted cells, or null if none.
+     */
+    private NumberCellHighlight mHighlight;
+
+    /**
+     * <p>Constructor for this adapter.</p>
+     * @param cache cache of generated blocks.
+     * @param firstValue number at position 0.
+     */
+    public VirtualNumberCellAdapter(NumberCellBlockCache cache, long firstValue) {
+        mCache      = cache;
+        mFirstValue = Math.max(NumberCellGeneratorTask.MIN_NUMBER, firstValue);
+        mItemCount  = (int) Math.min(Integer.MAX_VALUE, Long.MAX_VALUE - mFirstValue + 1);
+    }
+
+    @Override
+    public NumberCellAdapter.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        // Create (default) view from layout.
+        return new NumberCellAdapter.ViewHolder(LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.number_cell, parent, false));
+    }
+
+    @Override
+    public void onBindViewHolder(NumberCellAdapter.ViewHolder holder, int position) {
+        long bindStart = System.nanoTime();
+        long value = getValue(position);
+        NumberCellBlock block = findBlock(value);
+
+        if (block != null) {
+            holder.numberTextView.setCellData(block.getCell((int) (value - block.getStart())));
+        } else {
+            // Block was requested, show placeholder until it's ready.
+            holder.numberTextView.setPlaceholder(value);
+        }
+        holder.numberTextView.highlight(isHighlighted(position));
+
+        if (mMetrics != null)
+            mMetrics.recordBind(System.nanoTime() - bindStart);
+    }
+
+    @Override
+    public void onBindViewHolder(NumberCellAdapter.ViewHolder holder, int position, List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            super.onBindViewHolder(holder, position, payloads);
+            return;
+        }
+
+        long bindStart = System.nanoTime();
+
+        // Number is shown already, only apply its properties (if generated since).
+        if (payloads.contains(NumberCellAdapter.PAYLOAD_PROPERTIES)) {
+            long value = getValue(position);
+            NumberCellBlock block = findBlock(value);
+            if (block != null)
+                holder.numberTextView.setCellProperties(block.getCell((int) (value - block.getStart())));
+        }
+        // Swaps drawable state only, if at all.
+        holder.numberTextView.highlight(isHighlighted(position));
+
+        if (mMetrics != null)
+            mMetrics.recordBind(System.nanoTime() - bindStart);
+    }
+
+    @Override
+    public int getItemCount() {
+        return mItemCount;
+    }
+
+    /**
+     * <p>Adds a generated block to cache and rebinds its visible cells.</p>
+     * @param block generated block.
+     */
+    public void onBlockReady(NumberCellBlock block) {
+        mCache.putBlock(block);
+        if (mHighlight != null)
+            mHighlight.mark(block);
+
+        long from = Math.max(block.getStart(), mFirstValue);
+        long to = Math.min(block.getEnd(), mFirstValue + mItemCount - 1);
+        if (from <= to)
+            notifyItemRangeChanged(getPosition(from), (int) (to - from + 1), NumberCellAdapter.PAYLOAD_PROPERTIES);
+    }
+
+    /**
+     * <p>Highlights generated cells in given range of adapter positions, sharing a factor with given cell. Cells
+     * in range generated later are highlighted once their block is ready.</p>
+     * @param selected selected cell.
+     * @param from first adapter position.
+     * @param to adapter position after last cell.
+     */
+    public void setHighlight(NumberCell selected, int from, int to) {
+        clearHighlight();
+
+        from = Math.max(0, from);
+        to = Math.min(mItemCount, to);
+        if (from >= to)
+            return;
+
+        mHighlight = new NumberCellHighlight(selected, getValue(from), to - from);
+        // Mark cached blocks covering range, a single lookup per block.
+        int blockSize = mCache.getBlockSize();
+        long lastIndex = mHighlight.getEnd() / blockSize;
+        for (long index = mHighlight.getStart() / blockSize; index <= lastIndex; index++) {
+            NumberCellBlock block = mCache.peekBlock(index * blockSize);
+            if (block != null)
+                mHighlight.mark(block);
+        }
+        if (mRestoredBlock != null)
+            mHighlight.mark(mRestoredBlock);
+
+        notifyItemRangeChanged(from, to - from, NumberCellAdapter.PAYLOAD_HIGHLIGHT);
+    }
+
+    /**
+     * <p>Removes highlight, if any.</p>
+     */
+    public void clearHighlight() {
+        NumberCellHighlight highlight = mHighlight;
+        mHighlight = null;
+        if (highlight != null)
+            notifyItemRangeChanged(getPosition(highlight.getStart()), highlight.getCount(),
+                    NumberCellAdapter.PAYLOAD_HIGHLIGHT);
+    }
+
+    /**
+     * <p>Checks if cell at given adapter position is highlighted.</p>
+     * @param position adapter position.
+     * @return true if highlighted, false otherwise.
+     */
+    public boolean isHighlighted(int position) {
+        return mHighlight != null && mHighlight.isHighlighted(getValue(position));
+    }
+
+    /**
+     * <p>Sets cells restored from a snapshot, shown instead of placeholders while their blocks are generated.</p>
+     * @param block restored cells, or null.
+     */
+    public void setRestoredBlock(NumberCellBlock block) {
+        mRestoredBlock = block;
+    }
+
+    /**
+     * <p>Sets metrics to record bind time of every cell in.</p>
+     * @param metrics metrics, or null.
+     */
+    public void setMetrics(GridMetrics metrics) {
+        mMetrics = metrics;
+    }
+
+    /**
+     * <p>Gets cached cells in given range of adapter positions as a single block (e.g. for a snapshot).
+     * <br>Range is cut short at the first cell which isn't generated yet.</p>
+     * @param from first adapter position.
+     * @param to adapter position after last cell.
+     * @return block of cells in range, or null if first cell isn't generated yet.
+     */
+    public NumberCellBlock getBlock(int from, int to) {
+        ArrayList<NumberCellBlock> slices = new ArrayList<>();
+        long value = getValue(from);
+        long last = getValue(to - 1);
+        while (value <= last) {
+            NumberCellBlock block = mCache.peekBlock(value);
+            if (block == null)
+                break;
+
+            int sliceFrom = (int) (value - block.getStart());
+            int sliceTo = (int) (Math.min(last, block.getEnd()) - block.getStart()) + 1;
+            slices.add(block.slice(sliceFrom, sliceTo));
+
+            if (block.getEnd() == Long.MAX_VALUE)
+                break;
+            value = block.getEnd() + 1;
+        }
+
+        if (slices.isEmpty())
+            return null;
+
+        return NumberCellBlock.concat(slices.toArray(new NumberCellBlock[slices.size()]));
+    }
+
+    /*
+     * Helper method to find generated block containing given number, either cached or restored. Returns null
+     * if not generated yet (requesting it from cache).
+     */
+    private NumberCellBlock findBlock(long value) {
+        NumberCellBlock block = mCache.getBlock(value);
+        if (block == null && mRestoredBlock != null
+                && value >= mRestoredBlock.getStart() && value <= mRestoredBlock.getEnd())
+            block = mRestoredBlock;
+
+        return block;
+    }
+
+    /**
+     * <p>Requests block for number at given position ahead of time.</p>
+     * @param position adapter position (may be out of range).
+     */
+    public void prefetch(int position) {
+        if (position >= 0 && position < mItemCount)
+            mCache.prefetch(getValue(position));
+    }
+
+    /**
+     * <p>Gets number at given position.</p>
+     * @param position adapter position.
+     * @return number.
+     */
+    public long getValue(int position) {
+        return mFirstValue + position;
+    }
+
+    /**
+     * <p>Gets position of given number.</p>
+     * @param value number.
+     * @return adapter position.
+     */
+    public int getPosition(long value) {
+        return (int) (value - mFirstValue);
+    }
+}
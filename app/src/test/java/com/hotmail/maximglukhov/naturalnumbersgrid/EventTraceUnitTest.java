@@ -0,0 +1,76 @@
+package com.hotmail.maximglukhov.naturalnumbersgrid;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EventTraceUnitTest {
+
+    @Test
+    public void ringBuffer_isCorrect() throws Exception {
+        EventTrace trace = new EventTrace(5);
+
+        // Capacity is rounded up to 8, oldest events are overwritten.
+        for (int i = 0; i < 10; i++)
+            trace.record(EventTrace.INSERT, i, i * 10);
+
+        assertEquals(10, trace.getEventCount());
+
+        StringBuilder builder = new StringBuilder();
+        assertEquals(8, trace.dump(builder));
+
+        String[] lines = builder.toString().split("\n");
+        assertEquals(8, lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            String[] fields = lines[i].split(" ");
+            assertEquals(6, fields.length);
+            assertEquals(Integer.toString(i + 2), fields[0]);
+            assertEquals(Long.toString(Thread.currentThread().getId()), fields[2]);
+            assertEquals("INSERT", fields[3]);
+            assertEquals(Integer.toString(i + 2), fields[4]);
+            assertEquals(Integer.toString((i + 2) * 10), fields[5]);
+        }
+    }
+
+    @Test
+    public void concurrentRecording_isCorrect() throws Exception {
+        final EventTrace trace = new EventTrace(1 << 12);
+        final int threadCount = 4;
+        final int eventsPerThread = 1000;
+        final CountDownLatch start = new CountDownLatch(1);
+
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+
+                    for (int i = 0; i < eventsPerThread; i++)
+                        trace.record(EventTrace.BATCH_START, i, -i);
+                }
+            });
+            threads[t].start();
+        }
+
+        start.countDown();
+        for (Thread thread : threads)
+            thread.join();
+
+        // Every event was kept, each with its own consistent arguments.
+        StringBuilder builder = new StringBuilder();
+        assertEquals(threadCount * eventsPerThread, trace.dump(builder));
+        for (String line : builder.toString().split("\n")) {
+            String[] fields = line.split(" ");
+            assertEquals("BATCH_START", fields[3]);
+            assertTrue(Long.parseLong(fields[4]) == -Long.parseLong(fields[5]));
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.hotmail.maximglukhov.naturalnumbersgrid;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class GenerationRequestQueueUnitTest {
+
+    @Test
+    public void coalescing_isCorrect() throws Exception {
+        GenerationRequestQueue queue = new GenerationRequestQueue();
+
+        // Overlapping requests are merged, keeping first direction and arrival.
+        queue.offer(100, 100, true, 0);
+        GenerationRequestQueue.Request merged = queue.offer(150, 100, false, 0);
+        assertEquals(1, queue.size());
+        assertEquals(100, merged.getLow());
+        assertEquals(150, merged.getCount());
+        assertTrue(merged.isPositive());
+        assertEquals(0, merged.getSequence());
+
+        // Adjacent requests, and requests of other epochs, are kept apart.
+        queue.offer(250, 50, true, 0);
+        queue.offer(120, 10, true, 1);
+        assertEquals(3, queue.size());
+
+        // A request bridging several pending ones merges all of them.
+        queue.offer(0, 1000, false, 0);
+        assertEquals(2, queue.size());
+
+        queue.setFocus(0);
+        GenerationRequestQueue.Request request = queue.poll();
+        assertEquals(0, request.getLow());
+        assertEquals(1000, request.getCount());
+        assertTrue(request.isPositive());
+        assertEquals(0, request.getSequence());
+        assertEquals(1, queue.poll().getEpoch());
+        assertNull(queue.poll());
+
+        // Coalescing stops at maximum size, unless one window covers the other.
+        int max = GenerationRequestQueue.MAX_COALESCED_COUNT;
+        queue.offer(0, max, true, 0);
+        queue.offer(max - 1, 10, true, 0);
+        assertEquals(2, queue.size());
+        queue.offer(5, 10, true, 0);
+        assertEquals(2, queue.size());
+
+        // Window ending at Long.MAX_VALUE.
+        queue.clear();
+        queue.offer(Long.MAX_VALUE - 9, 10, true, 0);
+        assertEquals(Long.MAX_VALUE, queue.offer(Long.MAX_VALUE - 19, 15, false, 0).getHigh());
+        assertEquals(1, queue.size());
+    }
+
+    @Test
+    public void nearestFirst_isCorrect() throws Exception {
+        GenerationRequestQueue queue = new GenerationRequestQueue();
+
+        // Scrolled down, then quickly back up: both directions stay queued.
+        queue.offer(1000, 100, true, 0);
+        queue.offer(2000, 100, true, 0);
+        queue.offer(800, 100, false, 0);
+        queue.offer(1200, 100, true, 0);
+
+        // Viewport is around 950: below window at 800 is 51 away, window at 1000 is 50 away.
+        queue.setFocus(950);
+        assertEquals(1000, queue.poll().getLow());
+        assertEquals(800, queue.poll().getLow());
+        assertEquals(1200, queue.poll().getLow());
+        assertEquals(2000, queue.poll().getLow());
+        assertTrue(queue.isEmpty());
+
+        // Equally near requests are taken in order of arrival.
+        queue.offer(1100, 100, true, 0);
+        queue.offer(800, 100, false, 0);
+        queue.offer(900, 100, false, 0);
+        queue.setFocus(1000);
+        assertEquals(900, queue.poll().getLow());
+        assertEquals(1100, queue.poll().getLow());
+        assertEquals(800, queue.poll().getLow());
+    }
+}
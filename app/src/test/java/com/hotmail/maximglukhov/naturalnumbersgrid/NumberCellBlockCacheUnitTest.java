@@ -0,0 +1,120 @@
+package com.hotmail.maximglukhov.naturalnumbersgrid;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.hotmail.maximglukhov.naturalnumbersgrid.TestBlocks.generate;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class NumberCellBlockCacheUnitTest {
+
+    /*
+     * Loader recording requested block starts, loaded later by test.
+     */
+    private static class RecordingLoader implements NumberCellBlockCache.BlockLoader {
+        final List<Long> requests = new ArrayList<>();
+        final List<Integer> counts = new ArrayList<>();
+
+        @Override
+        public void loadBlock(long start, int count) {
+            requests.add(start);
+            counts.add(count);
+        }
+    }
+
+    @Test
+    public void cacheLoading_isCorrect() throws Exception {
+        RecordingLoader loader = new RecordingLoader();
+        NumberCellBlockCache cache = new NumberCellBlockCache(100, 4, 1, loader);
+
+        // Missing block is requested once, further requests wait for it.
+        assertNull(cache.getBlock(150));
+        assertNull(cache.getBlock(160));
+        assertNull(cache.getBlock(350));
+        assertEquals(1, loader.requests.size());
+        assertEquals(100L, (long) loader.requests.get(0));
+        assertEquals(100, (int) loader.counts.get(0));
+
+        // Loading block starts next request.
+        cache.putBlock(generate(100, 100));
+        assertEquals(2, loader.requests.size());
+        assertEquals(300L, (long) loader.requests.get(1));
+
+        NumberCellBlock block = cache.getBlock(160);
+        assertNotNull(block);
+        assertTrue(block.getCell(60).getValue() == 160);
+    }
+
+    @Test
+    public void cacheEviction_isCorrect() throws Exception {
+        RecordingLoader loader = new RecordingLoader();
+        NumberCellBlockCache cache = new NumberCellBlockCache(10, 2, loader);
+
+        cache.putBlock(generate(0, 10));
+        cache.putBlock(generate(10, 10));
+        // Access first block, second one becomes least recently used.
+        assertNotNull(cache.getBlock(5));
+        cache.putBlock(generate(20, 10));
+
+        assertTrue(cache.contains(5));
+        assertFalse(cache.contains(15));
+        assertTrue(cache.contains(25));
+
+        cache.setCapacity(1);
+        assertFalse(cache.contains(5));
+        assertTrue(cache.contains(25));
+    }
+
+    @Test
+    public void cacheNewestFirst_isCorrect() throws Exception {
+        RecordingLoader loader = new RecordingLoader();
+        NumberCellBlockCache cache = new NumberCellBlockCache(10, 8, 1, loader);
+
+        cache.getBlock(0);
+        cache.prefetch(10);
+        cache.prefetch(20);
+        cache.prefetch(30);
+
+        // Most recently requested block is loaded next.
+        cache.putBlock(generate(0, 10));
+        assertEquals(30L, (long) loader.requests.get(1));
+
+        // Cleared cache no longer waits for loading block.
+        cache.clear();
+        cache.getBlock(50);
+        assertEquals(50L, (long) loader.requests.get(2));
+
+        // Last block ends at Long.MAX_VALUE.
+        cache.clear();
+        cache.getBlock(Long.MAX_VALUE);
+        assertEquals(8, (int) loader.counts.get(3));
+    }
+
+    @Test
+    public void cacheConcurrentLoading_isCorrect() throws Exception {
+        RecordingLoader loader = new RecordingLoader();
+        NumberCellBlockCache cache = new NumberCellBlockCache(10, 8, 2, loader);
+
+        // Up to maximum blocks load at a time, in both directions.
+        cache.getBlock(50);
+        cache.prefetch(70);
+        cache.prefetch(30);
+        assertEquals(2, loader.requests.size());
+        assertEquals(2, cache.getLoadingCount());
+        assertEquals(70L, (long) loader.requests.get(1));
+
+        // Blocks may be loaded in any order, each frees a slot for newest request.
+        cache.putBlock(generate(70, 10));
+        assertEquals(30L, (long) loader.requests.get(2));
+        cache.putBlock(generate(30, 10));
+        cache.putBlock(generate(50, 10));
+        assertEquals(0, cache.getLoadingCount());
+        assertEquals(3, loader.requests.size());
+    }
+}
@@ -0,0 +1,31 @@
+package com.hotmail.maximglukhov.naturalnumbersgrid;
+
+import org.junit.Test;
+
+import static com.hotmail.maximglukhov.naturalnumbersgrid.TestBlocks.generate;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class NumberCellSnapshotUnitTest {
+
+    @Test
+    public void snapshotEncoding_isCorrect() throws Exception {
+        NumberCellBlock expected = generate(1000000000000L - 63, 400);
+        NumberCellSnapshot snapshot = NumberCellSnapshot.fromByteArray(
+                new NumberCellSnapshot(10, 150, expected.getStart() + 3, -12, true, expected).toByteArray());
+
+        assertEquals(10, snapshot.getSpanCount());
+        assertEquals(150, snapshot.getMinItemCount());
+        assertEquals(expected.getStart() + 3, snapshot.getFirstVisibleValue());
+        assertEquals(-12, snapshot.getScrollOffset());
+        assertTrue(snapshot.isVirtual());
+
+        NumberCellBlock block = snapshot.getBlock();
+        assertEquals(expected.getStart(), block.getStart());
+        assertEquals(expected.getCount(), block.getCount());
+        for (int i = 0; i < block.getCount(); i++) {
+            assertEquals(expected.isPrime(i), block.isPrime(i));
+            assertEquals(expected.getPrimeSignature(i), block.getPrimeSignature(i));
+        }
+    }
+}
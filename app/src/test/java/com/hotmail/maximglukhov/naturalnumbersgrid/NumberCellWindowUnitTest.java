@@ -0,0 +1,217 @@
+package com.hotmail.maximglukhov.naturalnumbersgrid;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static com.hotmail.maximglukhov.naturalnumbersgrid.TestBlocks.generate;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class NumberCellWindowUnitTest {
+
+    /*
+     * Checks every cell in window against its index.
+     */
+    private static void assertWindow(NumberCellWindow window, long first, int count) {
+        assertEquals(count, window.getCount());
+        assertEquals(first, window.getFirstValue());
+        assertEquals(first + count - 1, window.getLastValue());
+        for (int i = 0; i < count; i++) {
+            NumberCell cell = window.getCell(i);
+            assertEquals(first + i, cell.getValue());
+            assertEquals("Number " + cell.getValue() + " has wrong primality.",
+                    Utils.isPrime(first + i), cell.isPrime());
+        }
+    }
+
+    @Test
+    public void windowAppendPrepend_isCorrect() throws Exception {
+        NumberCellWindow window = new NumberCellWindow(100000);
+
+        // Enough blocks to wrap around and grow ring buffer.
+        window.append(generate(1000, 10));
+        for (int i = 1; i < 40; i++) {
+            window.append(generate(1000 + i * 10, 10));
+            window.prepend(generate(1000 - i * 10, 10));
+        }
+
+        assertWindow(window, 610, 790);
+    }
+
+    @Test
+    public void windowTrim_isCorrect() throws Exception {
+        NumberCellWindow window = new NumberCellWindow(100000);
+        for (int i = 0; i < 10; i++)
+            window.append(generate(i * 100, 100));
+
+        window.trimStart(150);
+        window.trimEnd(230);
+        assertWindow(window, 150, 620);
+
+        // Sliding the window keeps working after trimming.
+        window.prepend(generate(100, 50));
+        window.append(generate(770, 30));
+        assertWindow(window, 100, 700);
+
+        // Range across blocks joins them.
+        NumberCellBlock block = window.getBlock(40, 160);
+        assertEquals(140, block.getStart());
+        assertEquals(120, block.getCount());
+        for (int i = 0; i < block.getCount(); i++)
+            assertEquals(Utils.isPrime(140 + i), block.isPrime(i));
+
+        window.clear();
+        assertEquals(-1, window.getFirstValue());
+        assertTrue(window.isEmpty());
+    }
+
+    @Test
+    public void windowCapacity_isCorrect() throws Exception {
+        NumberCellWindow window = new NumberCellWindow(100);
+        window.append(generate(0, 80));
+        assertEquals(0, window.trimToCapacity(true, 10));
+
+        // 125 cells, 25 above capacity rounded up to full rows of 10.
+        window.append(generate(80, 45));
+        assertEquals(30, window.trimToCapacity(true, 10));
+        assertWindow(window, 30, 95);
+
+        window.prepend(generate(0, 30));
+        assertEquals(25, window.trimToCapacity(false, 1));
+        assertWindow(window, 0, 100);
+    }
+
+    @Test
+    public void windowFill_isCorrect() throws Exception {
+        NumberCellWindow window = new NumberCellWindow(100000);
+        window.append(generate(100, 50));
+        window.append(NumberCellBlock.pending(150, 100));
+        window.prepend(NumberCellBlock.pending(0, 100));
+
+        assertTrue(window.isPending(0));
+        assertFalse(window.isPending(100));
+        assertTrue(window.isPending(249));
+
+        // Snapshot range stops at first pending cell.
+        assertNull(window.getBlock(0, 10));
+        assertEquals(50, window.getBlock(100, 200).getCount());
+
+        // Segments arrive in any order, overlapping generated cells are kept as is.
+        assertEquals(30, window.fill(generate(200, 30)));
+        assertEquals(50, window.fill(generate(130, 70)));
+        assertEquals(0, window.fill(generate(130, 70)));
+        assertEquals(20, window.fill(generate(230, 40)));
+        assertEquals(100, window.fill(generate(0, 100)));
+        assertEquals(0, window.fill(generate(300, 10)));
+
+        for (int i = 0; i < window.getCount(); i++)
+            assertFalse(window.isPending(i));
+        assertWindow(window, 0, 250);
+
+        // Splitting in place grows ring buffer as needed, with window wrapped around it.
+        window.clear();
+        for (int i = 0; i < 8; i++)
+            window.prepend(NumberCellBlock.pending(1000 - (i + 1) * 100, 100));
+        for (int i = 0; i < 7; i++)
+            window.append(NumberCellBlock.pending(1000 + i * 100, 100));
+        for (long value = 250; value < 1700; value += 100)
+            assertEquals(10, window.fill(generate(value, 10)));
+        assertEquals(0, window.fill(generate(250, 10)));
+        assertEquals(1500 - 150, window.fill(generate(200, 1500)));
+        assertWindow(window, 200, 1500);
+    }
+
+    @Test
+    public void windowTransaction_isCorrect() throws Exception {
+        final ArrayList<String> changes = new ArrayList<>();
+        NumberCellWindow.ChangeListener listener = new NumberCellWindow.ChangeListener() {
+            @Override
+            public void onRangeRemoved(int position, int count) {
+                changes.add("-" + position + "+" + count);
+            }
+
+            @Override
+            public void onRangeInserted(int position, int count) {
+                changes.add("+" + position + "+" + count);
+            }
+
+            @Override
+            public void onRangeChanged(int position, int count) {
+                changes.add("~" + position + "+" + count);
+            }
+        };
+
+        NumberCellWindow window = new NumberCellWindow(100000);
+
+        // First cells.
+        window.beginTransaction();
+        window.append(NumberCellBlock.pending(100, 100));
+        assertTrue(window.commitTransaction(listener));
+        assertEquals("[+0+100]", changes.toString());
+
+        // Several blocks at both ends, trimmed and filled, are a single change at either end.
+        changes.clear();
+        window.beginTransaction();
+        window.append(generate(200, 50));
+        window.append(NumberCellBlock.pending(250, 50));
+        window.prepend(generate(90, 10));
+        window.trimStart(30);
+        window.fill(generate(150, 20));
+        window.fill(generate(250, 10));
+        assertTrue(window.commitTransaction(listener));
+        // Filled range is clipped to cells which were there before.
+        assertEquals("[-0+20, +80+100, ~30+50]", changes.toString());
+        assertEquals(120, window.getFirstValue());
+        assertEquals(180, window.getCount());
+        assertFalse(window.isPending(30));
+        assertTrue(window.isPending(50));
+
+        // Nothing in common.
+        changes.clear();
+        window.beginTransaction();
+        window.clear();
+        window.append(generate(1000, 10));
+        assertTrue(window.commitTransaction(listener));
+        assertEquals("[-0+180, +0+10]", changes.toString());
+
+        // Empty transaction, and no transaction.
+        changes.clear();
+        window.beginTransaction();
+        assertFalse(window.commitTransaction(listener));
+        assertFalse(window.commitTransaction(listener));
+        assertTrue(changes.isEmpty());
+    }
+
+    @Test
+    public void windowHighlight_isCorrect() throws Exception {
+        NumberCellWindow window = new NumberCellWindow(100000);
+        window.append(generate(100, 100));
+        window.append(NumberCellBlock.pending(200, 100));
+        // 6 * 37, shares a large factor with 37, 74, 111...
+        NumberCell selected = generate(222, 1).getCell(0);
+
+        NumberCellHighlight highlight = new NumberCellHighlight(selected, 150, 100);
+        int highlighted = window.markHighlight(highlight);
+
+        int expected = 0;
+        for (long value = 100; value < 300; value++) {
+            // Only generated numbers in range are highlighted.
+            boolean isExpected = value >= 150 && value < 200 && Utils.gcd(222, value) > 1;
+            assertEquals("Number " + value + " has wrong highlight.", isExpected, highlight.isHighlighted(value));
+            if (isExpected)
+                expected++;
+        }
+        assertEquals(expected, highlighted);
+        assertTrue(highlight.isHighlighted(185));
+
+        // Pending block is marked once filled.
+        window.fill(generate(200, 100));
+        assertEquals(34, window.markHighlight(highlight) - highlighted);
+        assertTrue(highlight.isHighlighted(222));
+        assertFalse(highlight.isHighlighted(223));
+        assertFalse(highlight.isHighlighted(250));
+    }
+}
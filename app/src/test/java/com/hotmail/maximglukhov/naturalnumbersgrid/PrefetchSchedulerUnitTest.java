@@ -0,0 +1,64 @@
+package com.hotmail.maximglukhov.naturalnumbersgrid;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PrefetchSchedulerUnitTest {
+
+    /*
+     * Creates scheduler for a grid of 10 columns, 100 pixels rows and 100 visible cells.
+     */
+    private static PrefetchScheduler createScheduler() {
+        PrefetchScheduler scheduler = new PrefetchScheduler();
+        scheduler.setGeometry(10, 100, 100);
+        scheduler.setBatchBounds(100, 10000);
+        return scheduler;
+    }
+
+    @Test
+    public void slowBrowsing_isCorrect() throws Exception {
+        PrefetchScheduler scheduler = createScheduler();
+
+        // 1 pixel every 16ms, less than a row per second.
+        for (int i = 0; i < 20; i++)
+            scheduler.onScrolled(1, i * 16);
+
+        assertEquals(100, scheduler.getBatchSize());
+        assertEquals(100, scheduler.getPrefetchDistance());
+    }
+
+    @Test
+    public void fling_isCorrect() throws Exception {
+        PrefetchScheduler scheduler = createScheduler();
+
+        // 10000 pixels/second are 100 rows (1000 cells) per second.
+        scheduler.onFling(10000, 0);
+
+        assertEquals(1.0f, scheduler.getCellVelocity(), 0.0001f);
+        assertEquals(1000, scheduler.getBatchSize());
+        // Generating 1000 cells at default throughput takes 50ms, twice the cells passed in that time.
+        assertEquals(100, scheduler.getPrefetchDistance());
+
+        // Slow generator must start much earlier.
+        for (int i = 0; i < 50; i++)
+            scheduler.onBatchGenerated(1000, 1000);
+        assertTrue(scheduler.getPrefetchDistance() >= 1900);
+
+        scheduler.onScrollStopped();
+        assertEquals(100, scheduler.getBatchSize());
+    }
+
+    @Test
+    public void batchBounds_isCorrect() throws Exception {
+        PrefetchScheduler scheduler = createScheduler();
+
+        scheduler.onFling(-1000000, 0);
+
+        // Scrolling up, batch is capped and rounded to full rows.
+        assertTrue(scheduler.getCellVelocity() < 0);
+        assertEquals(10000, scheduler.getBatchSize());
+        assertEquals(0, scheduler.getPrefetchDistance() % 10);
+    }
+}
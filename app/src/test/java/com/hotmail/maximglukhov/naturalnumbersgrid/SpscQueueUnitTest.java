@@ -0,0 +1,58 @@
+package com.hotmail.maximglukhov.naturalnumbersgrid;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SpscQueueUnitTest {
+
+    @Test
+    public void queue_isCorrect() throws Exception {
+        SpscQueue<Integer> queue = new SpscQueue<>();
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+
+        for (int i = 0; i < 5; i++)
+            queue.offer(i);
+        assertFalse(queue.isEmpty());
+
+        for (int i = 0; i < 5; i++)
+            assertEquals(Integer.valueOf(i), queue.poll());
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void concurrentHandoff_isCorrect() throws Exception {
+        final SpscQueue<Integer> queue = new SpscQueue<>();
+        final int count = 100000;
+
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < count; i++)
+                    queue.offer(i);
+            }
+        });
+        producer.start();
+
+        // Every element arrives once, in order.
+        int expected = 0;
+        while (expected < count) {
+            Integer element = queue.poll();
+            if (element == null) {
+                Thread.yield();
+                continue;
+            }
+
+            assertEquals(expected, element.intValue());
+            expected++;
+        }
+
+        producer.join();
+        assertTrue(queue.isEmpty());
+    }
+}
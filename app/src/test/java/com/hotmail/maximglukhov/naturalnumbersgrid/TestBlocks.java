@@ -0,0 +1,26 @@
+package com.hotmail.maximglukhov.naturalnumbersgrid;
+
+/**
+ * <p>Shared fixtures for tests working with generated blocks.</p>
+ */
+final class TestBlocks {
+
+    /*
+     * Generator shared by all tests. Test windows are below its parallel cutoff, so they're generated on calling
+     * thread and no worker is ever started.
+     */
+    private static final NumberCellGenerator GENERATOR = new NumberCellGenerator();
+
+    private TestBlocks() {
+    }
+
+    /**
+     * <p>Generates block of given range.</p>
+     * @param start first number in block.
+     * @param count amount of numbers in block.
+     * @return generated block.
+     */
+    static NumberCellBlock generate(long start, int count) {
+        return GENERATOR.generate(start, count);
+    }
+}
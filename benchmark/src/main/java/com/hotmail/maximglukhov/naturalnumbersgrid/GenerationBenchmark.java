@@ -0,0 +1,81 @@
+package com.hotmail.maximglukhov.naturalnumbersgrid;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Benchmark for generating a full batch of cells with {@link NumberCellGenerator}, the engine behind
+ * NumberCellGeneratorTask: window is sieved and factorized segment by segment, in parallel for large batches.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GenerationBenchmark {
+
+    /*
+     * Number batch starts at.
+     */
+    @Param({"1000", "1000000", "1000000000", "1000000000000", "1000000000000000", "1000000000000000000"})
+    public long magnitude;
+
+    /*
+     * Amount of numbers in batch.
+     */
+    @Param({"256", "4096", "32768"})
+    public int batchSize;
+
+    /*
+     * True to generate numbers from start upwards (scrolling down), false downwards (scrolling up).
+     */
+    @Param({"true", "false"})
+    public boolean direction;
+
+    /*
+     * Window actually generated, as generator task computes it from start and direction.
+     */
+    private long mLow;
+    private int mCount;
+
+    /*
+     * Generator shared between invocations like generator task's, base primes are only built on first use.
+     */
+    private NumberCellGenerator mGenerator;
+
+    @Setup
+    public void setup() {
+        if (direction) {
+            mLow = magnitude;
+            mCount = batchSize;
+        } else {
+            mLow = Math.max(0, magnitude - batchSize + 1);
+            mCount = (int) (magnitude - mLow + 1);
+        }
+
+        mGenerator = new NumberCellGenerator();
+    }
+
+    @TearDown
+    public void tearDown() {
+        mGenerator.release();
+    }
+
+    @Benchmark
+    public NumberCellBlock generateBatch() {
+        return mGenerator.generate(mLow, mCount);
+    }
+}
@@ -0,0 +1,71 @@
+package com.hotmail.maximglukhov.naturalnumbersgrid;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Benchmarks for {@link NumberCell} construction, per cell: a standalone cell testing its own primality and
+ * factorizing itself, and a cell materialized from an already generated {@link NumberCellBlock}.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NumberCellBenchmark {
+
+    /*
+     * Amount of cells created by every invocation.
+     */
+    private static final int CELL_COUNT = 1024;
+
+    /*
+     * First cell's number.
+     */
+    @Param({"1000", "1000000", "1000000000", "1000000000000", "1000000000000000", "1000000000000000000"})
+    public long magnitude;
+
+    private NumberCellBlock mBlock;
+
+    @Setup
+    public void setup() {
+        boolean[] primes = new boolean[CELL_COUNT];
+        new SegmentedSieve().sieve(magnitude, CELL_COUNT, primes);
+
+        mBlock = new NumberCellBlock(magnitude, CELL_COUNT);
+        mBlock.setPrimality(primes);
+        mBlock.factorize();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CELL_COUNT)
+    public void createCell(Blackhole blackhole) {
+        for (int i = 0; i < CELL_COUNT; i++) {
+            NumberCell cell = new NumberCell(magnitude + i);
+            cell.updatePrimality();
+            cell.factorize();
+            blackhole.consume(cell);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CELL_COUNT)
+    public void getBlockCell(Blackhole blackhole) {
+        for (int i = 0; i < CELL_COUNT; i++)
+            blackhole.consume(mBlock.getCell(i));
+    }
+}
@@ -0,0 +1,89 @@
+package com.hotmail.maximglukhov.naturalnumbersgrid;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Benchmarks for {@link Utils} number checks, per number, over consecutive numbers of given magnitude.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UtilsBenchmark {
+
+    /*
+     * Amount of consecutive numbers checked by every invocation.
+     */
+    private static final int NUMBER_COUNT = 1024;
+
+    /*
+     * First number checked.
+     */
+    @Param({"1000", "1000000", "1000000000", "1000000000000", "1000000000000000", "1000000000000000000"})
+    public long magnitude;
+
+    /*
+     * Offset of selected number within checked numbers. Every magnitude is a power of 10, so the selected number
+     * is divisible by 2 and 5 at every magnitude: always composite, with the same small factors.
+     */
+    private static final int SELECTED_OFFSET = 510;
+
+    private long[] mNumbers;
+    private long mSelected;
+
+    @Setup
+    public void setup() {
+        mNumbers = new long[NUMBER_COUNT];
+        for (int i = 0; i < NUMBER_COUNT; i++)
+            mNumbers[i] = magnitude + i;
+        mSelected = magnitude + SELECTED_OFFSET;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUMBER_COUNT)
+    public int isPrime() {
+        int count = 0;
+        for (long n : mNumbers) {
+            if (Utils.isPrime(n))
+                count++;
+        }
+
+        return count;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUMBER_COUNT)
+    public void factorize(Blackhole blackhole) {
+        for (long n : mNumbers)
+            blackhole.consume(Utils.factorize(n));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUMBER_COUNT)
+    public int hasCommonFactor() {
+        // Every number against a fixed composite, the way visible cells are checked against a selected cell.
+        int count = 0;
+        for (long n : mNumbers) {
+            if (Utils.hasCommonFactor(mSelected, n))
+                count++;
+        }
+
+        return count;
+    }
+}
@@ -0,0 +1,111 @@
+package com.hotmail.maximglukhov.naturalnumbersgrid;
+
+import java.util.NoSuchElementException;
+
+/**
+ * <p>Primitive iterator lazily enumerating divisors of a number from its prime factorization,
+ * excluding 1 and the number itself.
+ * <br>Divisors are produced in no particular order, without boxing and without allocating per divisor.</p>
+ */
+public class DivisorIterator {
+
+    /*
+     * Prime factorization to enumerate divisors for.
+     */
+    private final long[] mPrimes;
+    private final byte[] mExponents;
+    private final int mStart;
+    private final int mCount;
+
+    /*
+     * Current exponent for every prime factor (like digits of an odometer).
+     */
+    private final byte[] mCurrent;
+
+    /*
+     * Next divisor to return, or 0 if no divisors are left.
+     */
+    private long mNext;
+
+    /**
+     * <p>Constructor for divisor iterator.</p>
+     * @param primes distinct prime factors.
+     * @param exponents exponent of every prime factor.
+     * @param start index of first prime factor in arrays.
+     * @param count amount of distinct prime factors.
+     */
+    public DivisorIterator(long[] primes, byte[] exponents, int start, int count) {
+        mPrimes     = primes;
+        mExponents  = exponents;
+        mStart      = start;
+        mCount      = count;
+        mCurrent    = new byte[count];
+
+        // Start from 1 (excluded) and advance to first actual divisor.
+        mNext = 1;
+        advance();
+    }
+
+    /**
+     * <p>Checks if there are more divisors.</p>
+     * @return true if {@link #nextLong()} will return another divisor.
+     */
+    public boolean hasNext() {
+        return mNext != 0;
+    }
+
+    /**
+     * <p>Gets next divisor.</p>
+     * @return next divisor.
+     * @throws NoSuchElementException if no divisors are left.
+     */
+    public long nextLong() {
+        if (mNext == 0)
+            throw new NoSuchElementException();
+
+        long divisor = mNext;
+        advance();
+        return divisor;
+    }
+
+    /*
+     * Helper method to move to next divisor, skipping the number itself (last combination).
+     */
+    private void advance() {
+        long divisor = mNext;
+        int i = 0;
+        while (i < mCount && mCurrent[i] == mExponents[mStart + i]) {
+            // Roll this digit back to 0 and carry to next prime.
+            for (int j = 0; j < mCurrent[i]; j++)
+                divisor /= mPrimes[mStart + i];
+            mCurrent[i] = 0;
+            i++;
+        }
+
+        if (i == mCount) {
+            mNext = 0;
+            return;
+        }
+
+        mCurrent[i]++;
+        divisor *= mPrimes[mStart + i];
+
+        // Last combination (all exponents at maximum) is the number itself.
+        if (isLastCombination())
+            mNext = 0;
+        else
+            mNext = divisor;
+    }
+
+    /*
+     * Helper method to check if all exponents are at maximum.
+     */
+    private boolean isLastCombination() {
+        for (int i = 0; i < mCount; i++) {
+            if (mCurrent[i] != mExponents[mStart + i])
+                return false;
+        }
+
+        return true;
+    }
+}
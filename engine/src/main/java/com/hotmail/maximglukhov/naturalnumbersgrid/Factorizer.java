@@ -0,0 +1,312 @@
+package com.hotmail.maximglukhov.naturalnumbersgrid;
+
+import android.support.annotation.IntRange;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * <p>Factorization engine for natural numbers.
+ * <br>Numbers up to table bound are factorized in O(log n) using a shared {@link SmallestPrimeFactorTable}.
+ * Larger numbers are trial divided by primes of shared {@link SmallPrimeTable}, and whatever remains is either
+ * proven prime with {@link Utils#isPrime(long)} or split with Brent's variant of Pollard's rho, recursively.</p>
+ */
+public class Factorizer {
+
+    /*
+     * Defines default bound for smallest prime factor table.
+     */
+    public static final int DEFAULT_TABLE_BOUND = 1 << 20;
+
+    /*
+     * Defines maximum bound for smallest prime factor table (table memory is 2 bytes per number).
+     */
+    public static final int MAX_TABLE_BOUND = 1 << 26;
+
+    /**
+     * <p>Maximum amount of distinct prime factors any (positive) long can have.
+     * <br>Arrays passed to {@link #factorize(long, long[], int[])} should be at least this long.</p>
+     */
+    public static final int MAX_PRIME_FACTORS = 15;
+
+    /*
+     * Defines limit for trial division before switching to Pollard's rho.
+     */
+    private static final int TRIAL_DIVISION_LIMIT = 1024;
+
+    /*
+     * Defines amount of steps to accumulate before taking a gcd in Pollard-Brent.
+     */
+    private static final int POLLARD_BATCH_SIZE = 128;
+
+    /*
+     * Shared smallest prime factor table, created on first use.
+     */
+    private static volatile SmallestPrimeFactorTable sTable;
+
+    /*
+     * Bound to create table with.
+     */
+    private static int sTableBound = DEFAULT_TABLE_BOUND;
+
+    private Factorizer() {}
+
+    /**
+     * <p>Sets bound for smallest prime factor table. Rebuilds table on next use if bound has changed.</p>
+     * @param bound highest number to cover by table.
+     */
+    public static synchronized void setTableBound(
+            @IntRange(from = SmallestPrimeFactorTable.MIN_BOUND, to = MAX_TABLE_BOUND) int bound) {
+        if (bound < SmallestPrimeFactorTable.MIN_BOUND)
+            bound = SmallestPrimeFactorTable.MIN_BOUND;
+
+        if (bound > MAX_TABLE_BOUND)
+            bound = MAX_TABLE_BOUND;
+
+        if (bound != sTableBound) {
+            sTableBound = bound;
+            sTable = null;
+        }
+    }
+
+    /**
+     * <p>Gets shared smallest prime factor table, building it if required.</p>
+     * @return smallest prime factor table.
+     */
+    public static SmallestPrimeFactorTable getTable() {
+        SmallestPrimeFactorTable table = sTable;
+        if (table == null) {
+            synchronized (Factorizer.class) {
+                table = sTable;
+                if (table == null) {
+                    table = new SmallestPrimeFactorTable(sTableBound);
+                    sTable = table;
+                }
+            }
+        }
+
+        return table;
+    }
+
+    /**
+     * <p>Calculates prime factorization for given number.
+     * <br>Primes are written in increasing order, each with its exponent at the same index.</p>
+     * @param n number to factor.
+     * @param primes array to write distinct prime factors to.
+     * @param exponents array to write exponent of every prime factor to.
+     * @return amount of distinct prime factors written (0 for numbers below 2).
+     */
+    public static int factorize(long n, long[] primes, int[] exponents) {
+        if (n < 2)
+            return 0;
+
+        SmallestPrimeFactorTable table = getTable();
+        int count = 0;
+
+        // Trial division by small primes until remaining cofactor fits in table.
+        SmallPrimeTable smallPrimes = SmallPrimeTable.get(TRIAL_DIVISION_LIMIT);
+        int residue = (n > table.getBound()) ? (int) (n % PrimeWheel.MODULUS) : 0;
+        for (int i = 0; i < smallPrimes.getCount() && n > table.getBound(); i++) {
+            int p = smallPrimes.getPrime(i);
+            if (p > TRIAL_DIVISION_LIMIT || p > n / p)
+                break;
+
+            // Wheel primes (first in table) divide n only if they divide its residue, no need to divide n.
+            boolean isDivisor = (i < PrimeWheel.WHEEL_PRIMES.length) ? (residue % p) == 0 : (n % p) == 0;
+            if (isDivisor) {
+                int exponent = 0;
+                do {
+                    n /= p;
+                    exponent++;
+                } while ((n % p) == 0);
+
+                primes[count]       = p;
+                exponents[count]    = exponent;
+                count++;
+            }
+        }
+
+        // Remaining cofactor has no prime factors below trial division limit.
+        count = factorizeCofactor(n, table, primes, exponents, count);
+
+        // Pollard's rho finds factors in no particular order.
+        sort(primes, exponents, count);
+
+        return count;
+    }
+
+    /**
+     * <p>Enumerates all divisors of a number from its prime factorization, excluding 1 and the number itself.</p>
+     * @param primes distinct prime factors.
+     * @param exponents exponent of every prime factor.
+     * @param count amount of distinct prime factors.
+     * @return set containing all divisors (excluding 1 and n).
+     */
+    public static Set<Long> getDivisors(long[] primes, int[] exponents, int count) {
+        Set<Long> divisors = new HashSet<>();
+        if (count == 0)
+            return divisors;
+
+        // Iterate over all exponent combinations like an odometer, keeping current divisor up to date.
+        int[] current = new int[count];
+        long divisor = 1;
+        while (true) {
+            int i = 0;
+            while (i < count && current[i] == exponents[i]) {
+                // Roll this digit back to 0 and carry to next prime.
+                for (int j = 0; j < exponents[i]; j++)
+                    divisor /= primes[i];
+                current[i] = 0;
+                i++;
+            }
+
+            if (i == count)
+                break;
+
+            current[i]++;
+            divisor *= primes[i];
+            divisors.add(divisor);
+        }
+
+        // Last divisor enumerated is n itself.
+        divisors.remove(expand(primes, exponents, count));
+
+        return divisors;
+    }
+
+    /**
+     * <p>Calculates all factors for given number, excluding 1 and n.</p>
+     * @param n number to factor.
+     * @return set containing all divisors (excluding 1 and n).
+     */
+    public static Set<Long> getDivisors(long n) {
+        long[] primes = new long[MAX_PRIME_FACTORS];
+        int[] exponents = new int[MAX_PRIME_FACTORS];
+        int count = factorize(n, primes, exponents);
+        return getDivisors(primes, exponents, count);
+    }
+
+    /*
+     * Helper method to rebuild a number from its prime factorization.
+     */
+    private static long expand(long[] primes, int[] exponents, int count) {
+        long n = 1;
+        for (int i = 0; i < count; i++) {
+            for (int j = 0; j < exponents[i]; j++)
+                n *= primes[i];
+        }
+
+        return n;
+    }
+
+    /*
+     * Helper method to add prime factors of given cofactor to factorization, recursively splitting it until
+     * all parts are primes or fit in table. Returns updated amount of distinct prime factors.
+     */
+    private static int factorizeCofactor(long n, SmallestPrimeFactorTable table,
+                                         long[] primes, int[] exponents, int count) {
+        if (n < 2)
+            return count;
+
+        if (n <= table.getBound()) {
+            // Divide by smallest prime factor until nothing remains.
+            int m = (int) n;
+            while (m > 1) {
+                int p = table.smallestPrimeFactor(m);
+                m /= p;
+                count = addPrime(p, primes, exponents, count);
+            }
+
+            return count;
+        }
+
+        if (Utils.isPrime(n))
+            return addPrime(n, primes, exponents, count);
+
+        long divisor = pollardBrent(n);
+        count = factorizeCofactor(divisor, table, primes, exponents, count);
+        return factorizeCofactor(n / divisor, table, primes, exponents, count);
+    }
+
+    /*
+     * Helper method to add a prime factor (once) to factorization. Returns updated amount of distinct primes.
+     */
+    private static int addPrime(long p, long[] primes, int[] exponents, int count) {
+        for (int i = 0; i < count; i++) {
+            if (primes[i] == p) {
+                exponents[i]++;
+                return count;
+            }
+        }
+
+        primes[count]       = p;
+        exponents[count]    = 1;
+        return count + 1;
+    }
+
+    /*
+     * Helper method to sort prime factors (and their exponents) in increasing order.
+     */
+    private static void sort(long[] primes, int[] exponents, int count) {
+        // Insertion sort, there are at most MAX_PRIME_FACTORS elements.
+        for (int i = 1; i < count; i++) {
+            long p = primes[i];
+            int exponent = exponents[i];
+            int j = i - 1;
+            while (j >= 0 && primes[j] > p) {
+                primes[j + 1]       = primes[j];
+                exponents[j + 1]    = exponents[j];
+                j--;
+            }
+            primes[j + 1]       = p;
+            exponents[j + 1]    = exponent;
+        }
+    }
+
+    /*
+     * Helper method finding a non-trivial divisor of an odd composite using Brent's variant of Pollard's rho.
+     * Iterates x -> x^2 + c in Montgomery form, accumulating differences and taking a gcd once per batch.
+     */
+    private static long pollardBrent(long n) {
+        MontgomeryModulus modulus = new MontgomeryModulus(n);
+
+        for (long c = 1; ; c++) {
+            long addend = modulus.toMontgomery(c % n);
+            long y = modulus.toMontgomery(2 % n);
+            long x = y;
+            long ys = y;
+            long q = modulus.one();
+            long g = 1;
+
+            for (long r = 1; g == 1; r <<= 1) {
+                x = y;
+                for (long i = 0; i < r; i++)
+                    y = modulus.add(modulus.multiply(y, y), addend);
+
+                for (long k = 0; k < r && g == 1; k += POLLARD_BATCH_SIZE) {
+                    ys = y;
+                    long steps = Math.min(POLLARD_BATCH_SIZE, r - k);
+                    for (long i = 0; i < steps; i++) {
+                        y = modulus.add(modulus.multiply(y, y), addend);
+                        q = modulus.multiply(q, Math.abs(x - y));
+                    }
+                    // Montgomery form only multiplies by R, which is coprime to n, so gcd is unaffected.
+                    g = Utils.gcd(q, n);
+                }
+            }
+
+            if (g == n) {
+                // Batch overshot (product became 0 mod n), replay it one step at a time.
+                do {
+                    ys = modulus.add(modulus.multiply(ys, ys), addend);
+                    g = Utils.gcd(Math.abs(x - ys), n);
+                } while (g == 1);
+            }
+
+            if (g != n)
+                return g;
+
+            // Cycle found no divisor, retry with different polynomial.
+        }
+    }
+}
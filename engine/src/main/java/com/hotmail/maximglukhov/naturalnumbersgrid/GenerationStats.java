@@ -0,0 +1,70 @@
+package com.hotmail.maximglukhov.naturalnumbersgrid;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Time spent by a {@link NumberCellGenerator} generating a window, split between sieving and factorizing.</p>
+ * <p>Times are summed over every segment of the window, so they add up to thread time rather than elapsed time
+ * when segments were generated in parallel.</p>
+ */
+public class GenerationStats {
+
+    /*
+     * Time spent sieving and factorizing, in nanoseconds.
+     */
+    private final AtomicLong mSieveNanos = new AtomicLong();
+    private final AtomicLong mFactorizeNanos = new AtomicLong();
+
+    /*
+     * Amount of generated segments.
+     */
+    private final AtomicLong mSegmentCount = new AtomicLong();
+
+    /*
+     * Adds times of a generated segment. Called from generating threads.
+     */
+    void addSegment(long sieveNanos, long factorizeNanos) {
+        mSieveNanos.addAndGet(sieveNanos);
+        mFactorizeNanos.addAndGet(factorizeNanos);
+        mSegmentCount.incrementAndGet();
+    }
+
+    /**
+     * <p>Gets time spent marking primes (including reading and writing primality cache).</p>
+     * @return sieve time in nanoseconds.
+     */
+    public long getSieveNanos() {
+        return mSieveNanos.get();
+    }
+
+    /**
+     * <p>Gets time spent factorizing numbers.</p>
+     * @return factorization time in nanoseconds.
+     */
+    public long getFactorizeNanos() {
+        return mFactorizeNanos.get();
+    }
+
+    /**
+     * <p>Gets amount of generated segments.</p>
+     * @return amount of segments.
+     */
+    public long getSegmentCount() {
+        return mSegmentCount.get();
+    }
+
+    /**
+     * <p>Clears all times, for reusing stats.</p>
+     */
+    public void reset() {
+        mSieveNanos.set(0);
+        mFactorizeNanos.set(0);
+        mSegmentCount.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "sieve=" + mSieveNanos.get() + "ns factorize=" + mFactorizeNanos.get() + "ns segments="
+                + mSegmentCount.get();
+    }
+}
@@ -0,0 +1,146 @@
+package com.hotmail.maximglukhov.naturalnumbersgrid;
+
+import android.support.annotation.FloatRange;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>Low-overhead histogram of non-negative values (e.g. durations in nanoseconds).</p>
+ * <p>Values are counted in logarithmic buckets, {@value #SUB_BUCKET_COUNT} per power of two, so recording is
+ * a few atomic increments with no allocation, and percentiles are accurate to within 1/{@value #SUB_BUCKET_COUNT}
+ * of their value.<br>Any amount of threads may record at the same time.</p>
+ */
+public class Histogram {
+
+    /*
+     * Defines amount of buckets per power of two (as bits).
+     */
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    /*
+     * Defines amount of buckets covering every non-negative long.
+     */
+    private static final int BUCKET_COUNT = indexOf(Long.MAX_VALUE) + 1;
+
+    /*
+     * Amount of values in every bucket.
+     */
+    private final AtomicLongArray mBuckets = new AtomicLongArray(BUCKET_COUNT);
+
+    /*
+     * Amount of values, their sum and maximum.
+     */
+    private final AtomicLong mCount = new AtomicLong();
+    private final AtomicLong mSum = new AtomicLong();
+    private final AtomicLong mMax = new AtomicLong();
+
+    /**
+     * <p>Records a value.<br>Negative values are recorded as 0.</p>
+     * @param value value to record.
+     */
+    public void record(long value) {
+        if (value < 0)
+            value = 0;
+
+        mBuckets.incrementAndGet(indexOf(value));
+        mCount.incrementAndGet();
+        mSum.addAndGet(value);
+
+        long max = mMax.get();
+        while (value > max && !mMax.compareAndSet(max, value))
+            max = mMax.get();
+    }
+
+    /**
+     * <p>Gets amount of recorded values.</p>
+     * @return amount of values.
+     */
+    public long getCount() {
+        return mCount.get();
+    }
+
+    /**
+     * <p>Gets mean of recorded values.</p>
+     * @return mean, or 0 if empty.
+     */
+    public long getMean() {
+        long count = mCount.get();
+        return count == 0 ? 0 : mSum.get() / count;
+    }
+
+    /**
+     * <p>Gets maximum recorded value.</p>
+     * @return maximum, or 0 if empty.
+     */
+    public long getMax() {
+        return mMax.get();
+    }
+
+    /**
+     * <p>Gets value at given percentile, i.e. the highest value of the bucket holding it.</p>
+     * @param percentile percentile, e.g. 50 for median.
+     * @return value at percentile (never above maximum), or 0 if empty.
+     */
+    public long getPercentile(@FloatRange(from = 0, to = 100) double percentile) {
+        long count = mCount.get();
+        if (count == 0)
+            return 0;
+
+        // Rank of value at percentile, from 1 to count.
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += mBuckets.get(i);
+            if (seen >= rank)
+                return Math.min(getBucketMax(i), mMax.get());
+        }
+
+        // Values were recorded while scanning.
+        return mMax.get();
+    }
+
+    /**
+     * <p>Removes all recorded values.<br>Values recorded meanwhile may be partially removed.</p>
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++)
+            mBuckets.set(i, 0);
+
+        mCount.set(0);
+        mSum.set(0);
+        mMax.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "n=" + getCount() + " p50=" + getPercentile(50) + " p95=" + getPercentile(95) + " max=" + getMax();
+    }
+
+    /*
+     * Helper method to get bucket of given value: values below SUB_BUCKET_COUNT have their own buckets, higher
+     * values share SUB_BUCKET_COUNT buckets per power of two, by the bits following their highest bit.
+     */
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT)
+            return (int) value;
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKET_COUNT - 1);
+        return ((shift + 1) << SUB_BUCKET_BITS) | subBucket;
+    }
+
+    /*
+     * Helper method to get highest value counted in given bucket.
+     */
+    private static long getBucketMax(int index) {
+        if (index < SUB_BUCKET_COUNT)
+            return index;
+
+        int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        long low = (long) (SUB_BUCKET_COUNT | (index & (SUB_BUCKET_COUNT - 1))) << shift;
+        return low + ((1L << shift) - 1);
+    }
+}
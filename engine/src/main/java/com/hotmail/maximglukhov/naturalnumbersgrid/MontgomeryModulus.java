@@ -0,0 +1,176 @@
+package com.hotmail.maximglukhov.naturalnumbersgrid;
+
+/**
+ * <p>Modular arithmetic for a fixed odd modulus using Montgomery form.
+ * <br>Allows overflow-safe multiplication modulo any odd number up to {@link Long#MAX_VALUE} without division
+ * and without 128-bit integer support, by calculating the high 64 bits of products manually.</p>
+ * <p>Values passed to {@link #multiply(long, long)} and {@link #pow(long, long)} must be in Montgomery form
+ * (see {@link #toMontgomery(long)}).</p>
+ */
+public final class MontgomeryModulus {
+
+    /*
+     * Odd modulus (n > 1).
+     */
+    private final long mModulus;
+
+    /*
+     * -n^-1 mod 2^64.
+     */
+    private final long mNegativeInverse;
+
+    /*
+     * R mod n (R = 2^64), which is 1 in Montgomery form.
+     */
+    private final long mOne;
+
+    /*
+     * R^2 mod n, used for converting into Montgomery form.
+     */
+    private final long mRSquared;
+
+    /**
+     * <p>Constructor for Montgomery modulus.</p>
+     * @param modulus odd modulus, larger than 1.
+     */
+    public MontgomeryModulus(long modulus) {
+        if (modulus < 3 || (modulus & 1) == 0)
+            throw new IllegalArgumentException("Modulus must be odd and larger than 1: " + modulus);
+
+        mModulus = modulus;
+
+        // Newton's iteration doubles correct bits of inverse every step (n is its own inverse for 3 bits).
+        long inverse = modulus;
+        for (int i = 0; i < 5; i++)
+            inverse *= 2 - modulus * inverse;
+        mNegativeInverse = -inverse;
+
+        // R mod n = 2 * (2^63 mod n) mod n.
+        long half = ((Long.MAX_VALUE % modulus) + 1) % modulus;
+        mOne = add(half, half);
+
+        // R^2 mod n = R * 2^64 mod n, by doubling 64 times.
+        long rSquared = mOne;
+        for (int i = 0; i < 64; i++)
+            rSquared = add(rSquared, rSquared);
+        mRSquared = rSquared;
+    }
+
+    /**
+     * <p>Gets modulus.</p>
+     * @return modulus.
+     */
+    public long getModulus() {
+        return mModulus;
+    }
+
+    /**
+     * <p>Gets 1 in Montgomery form.</p>
+     * @return 1 in Montgomery form.
+     */
+    public long one() {
+        return mOne;
+    }
+
+    /**
+     * <p>Converts a number into Montgomery form.</p>
+     * @param a number (0 <= a < modulus).
+     * @return a in Montgomery form.
+     */
+    public long toMontgomery(long a) {
+        return multiply(a, mRSquared);
+    }
+
+    /**
+     * <p>Converts a number back from Montgomery form.</p>
+     * @param a number in Montgomery form.
+     * @return a as regular number.
+     */
+    public long fromMontgomery(long a) {
+        return multiply(a, 1);
+    }
+
+    /**
+     * <p>Adds two numbers modulo modulus (works in and out of Montgomery form).</p>
+     * @param a first number (0 <= a < modulus).
+     * @param b second number (0 <= b < modulus).
+     * @return (a + b) mod modulus.
+     */
+    public long add(long a, long b) {
+        // Both are below 2^63 so the sum can't overflow as unsigned.
+        long sum = a + b;
+        if (!unsignedLess(sum, mModulus))
+            sum -= mModulus;
+
+        return sum;
+    }
+
+    /**
+     * <p>Multiplies two numbers in Montgomery form.</p>
+     * @param a first number in Montgomery form.
+     * @param b second number in Montgomery form.
+     * @return a * b in Montgomery form.
+     */
+    public long multiply(long a, long b) {
+        // 128-bit product.
+        long low = a * b;
+        long high = unsignedMultiplyHigh(a, b);
+
+        // Montgomery reduction: add m * n to make low 64 bits zero, then shift right by 64 bits.
+        long m = low * mNegativeInverse;
+        long result = high + unsignedMultiplyHigh(m, mModulus) + (low != 0 ? 1 : 0);
+        if (!unsignedLess(result, mModulus))
+            result -= mModulus;
+
+        return result;
+    }
+
+    /**
+     * <p>Raises a number in Montgomery form to given power.</p>
+     * @param base base in Montgomery form.
+     * @param exponent non-negative exponent.
+     * @return base^exponent in Montgomery form.
+     */
+    public long pow(long base, long exponent) {
+        long result = mOne;
+        while (exponent > 0) {
+            if ((exponent & 1) != 0)
+                result = multiply(result, base);
+            base = multiply(base, base);
+            exponent >>>= 1;
+        }
+
+        return result;
+    }
+
+    /**
+     * <p>Calculates high 64 bits of the unsigned 128-bit product of two numbers.</p>
+     * @param x first number (treated as unsigned).
+     * @param y second number (treated as unsigned).
+     * @return high 64 bits of product.
+     */
+    public static long unsignedMultiplyHigh(long x, long y) {
+        // Signed high product (schoolbook multiplication on 32-bit halves).
+        long x1 = x >> 32;
+        long x2 = x & 0xFFFFFFFFL;
+        long y1 = y >> 32;
+        long y2 = y & 0xFFFFFFFFL;
+
+        long z2 = x2 * y2;
+        long t = x1 * y2 + (z2 >>> 32);
+        long z1 = t & 0xFFFFFFFFL;
+        long z0 = t >> 32;
+        z1 += x2 * y1;
+        long high = x1 * y1 + z0 + (z1 >> 32);
+
+        // Correct signed result to unsigned.
+        return high + ((x >> 63) & y) + ((y >> 63) & x);
+    }
+
+    /*
+     * Helper method for unsigned comparison.
+     */
+    private static boolean unsignedLess(long a, long b) {
+        return (a + Long.MIN_VALUE) < (b + Long.MIN_VALUE);
+    }
+}
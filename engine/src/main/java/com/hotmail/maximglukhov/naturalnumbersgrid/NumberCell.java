@@ -0,0 +1,292 @@
+package com.hotmail.maximglukhov.naturalnumbersgrid;
+
+import android.support.annotation.IntRange;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * <p>Data class for grid (RecyclerView) cells, displaying all natural numbers.</p>
+ * <p>Factors are stored compactly as prime factorization (primitive prime/exponent arrays). All other factors are
+ * derived from it on demand, see {@link #divisorIterator()} and {@link #getFactors()}.</p>
+ */
+public class NumberCell {
+
+    /*
+     * Shared arrays for values without prime factors (0,1).
+     */
+    private static final long[] EMPTY_PRIME_FACTORS = new long[0];
+    private static final byte[] EMPTY_EXPONENTS = new byte[0];
+
+    /*
+     * Shared exponents array for values with a single prime factor (primes).
+     */
+    private static final byte[] SINGLE_EXPONENT = new byte[] { 1 };
+
+    /*
+     * Per thread scratch arrays for factorization results, to avoid allocating them for every cell.
+     */
+    private static final ThreadLocal<FactorizationScratch> sScratch =
+            new ThreadLocal<FactorizationScratch>() {
+                @Override
+                protected FactorizationScratch initialValue() {
+                    return new FactorizationScratch();
+                }
+            };
+
+    /*
+     * Cell integer value.
+     */
+    private final long mValue;
+
+    /*
+     * Defining if this value is a prime number.
+     */
+    private boolean mIsPrime;
+
+    /*
+     * Distinct prime factors for the value assigned to this cell, in increasing order, and their exponents.
+     * Arrays may be shared with other cells (see NumberCellBlock), this cell's factors are at
+     * [mFactorsStart, mFactorsStart + mFactorCount).
+     */
+    private long[] mPrimeFactors;
+    private byte[] mExponents;
+    private int mFactorsStart;
+    private int mFactorCount;
+
+    /*
+     * Prime signature for the value assigned to this cell (see PrimeSignature).
+     */
+    private long mPrimeSignature;
+
+    /**
+     * <p>Constructor for NumberCell.</p>
+     * @param value value to assign to this cell.
+     */
+    public NumberCell(@IntRange(from = 0) final long value) {
+        mValue = value < 0 ? 0 : value;
+
+        mPrimeFactors = EMPTY_PRIME_FACTORS;
+        mExponents = EMPTY_EXPONENTS;
+        mPrimeSignature = PrimeSignature.FLAG_COMPLETE;
+    }
+
+    /**
+     * <p>Constructor for NumberCell with already known primality (e.g. by {@link SegmentedSieve}).</p>
+     * @param value value to assign to this cell.
+     * @param isPrime primality of given value.
+     */
+    public NumberCell(@IntRange(from = 0) final long value, boolean isPrime) {
+        this(value);
+
+        mIsPrime = isPrime;
+    }
+
+    /**
+     * <p>Constructor for a NumberCell view over factor columns of a {@link NumberCellBlock}.</p>
+     * @param value value to assign to this cell.
+     * @param isPrime primality of given value.
+     * @param primeFactors prime factors column.
+     * @param exponents exponents column.
+     * @param factorsStart index of this cell's first prime factor in columns.
+     * @param factorCount amount of distinct prime factors.
+     * @param primeSignature prime signature of given value.
+     */
+    NumberCell(long value, boolean isPrime, long[] primeFactors, byte[] exponents,
+               int factorsStart, int factorCount, long primeSignature) {
+        mValue          = value;
+        mIsPrime        = isPrime;
+        mPrimeFactors   = primeFactors;
+        mExponents      = exponents;
+        mFactorsStart   = factorsStart;
+        mFactorCount    = factorCount;
+        mPrimeSignature = primeSignature;
+    }
+
+    /**
+     * <p>Tests if the value assigned to this cell is a prime using {@link Utils#isPrime(long)}.
+     * <br>Updates primality property according to test result.</p>
+     */
+    public void updatePrimality() {
+        mIsPrime = Utils.isPrime(mValue);
+    }
+
+    /**
+     * <p>Calculates prime factorization for value assigned to this cell, using {@link Factorizer}.
+     * <br>All factors (excluding 1 and the value itself) are derived from it.</p>
+     */
+    public void factorize() {
+        if (!isPrime()) {
+            FactorizationScratch scratch = sScratch.get();
+            int count = Factorizer.factorize(mValue, scratch.primes, scratch.exponents);
+
+            if (count == 0) {
+                mPrimeFactors = EMPTY_PRIME_FACTORS;
+                mExponents = EMPTY_EXPONENTS;
+            } else {
+                mPrimeFactors = Arrays.copyOf(scratch.primes, count);
+                mExponents = new byte[count];
+                for (int i = 0; i < count; i++)
+                    mExponents[i] = (byte) scratch.exponents[i];
+            }
+        } else {
+            mPrimeFactors = new long[] { mValue };
+            mExponents = SINGLE_EXPONENT;
+        }
+
+        mFactorsStart = 0;
+        mFactorCount = mPrimeFactors.length;
+        mPrimeSignature = PrimeSignature.of(mPrimeFactors, mFactorCount);
+    }
+
+    /**
+     * <p>Gets all factors for value assigned to this cell (excluding 1 and the value itself).
+     * <br>May not be updated if {@link #updatePrimality()} and {@link #factorize()} were never called.
+     * <br>Returns empty set for prime numbers.</p>
+     * @return read-only set view of all factors, backed by this cell's prime factorization.
+     */
+    public Set<Long> getFactors() {
+        return new FactorSet();
+    }
+
+    /**
+     * <p>Gets primitive iterator over all factors for value assigned to this cell (excluding 1 and the value
+     * itself).</p>
+     * @return iterator over all factors.
+     */
+    public DivisorIterator divisorIterator() {
+        return new DivisorIterator(mPrimeFactors, mExponents, mFactorsStart, mFactorCount);
+    }
+
+    /**
+     * <p>Gets amount of factors for value assigned to this cell (excluding 1 and the value itself).</p>
+     * @return amount of factors.
+     */
+    public int getFactorCount() {
+        if (mFactorCount == 0)
+            return 0;
+
+        int count = 1;
+        for (int i = 0; i < mFactorCount; i++)
+            count *= mExponents[mFactorsStart + i] + 1;
+
+        // Exclude 1 and the value itself.
+        return count - 2;
+    }
+
+    /**
+     * <p>Gets distinct prime factors for value assigned to this cell, in increasing order.
+     * <br>May not be updated if {@link #factorize()} was never called. A prime's only prime factor is itself.</p>
+     * @return array of distinct prime factors (empty for 0 and 1). Must not be modified.
+     */
+    public long[] getPrimeFactors() {
+        if (mFactorsStart == 0 && mFactorCount == mPrimeFactors.length)
+            return mPrimeFactors;
+
+        // Cell is a view over shared columns, copy its own range.
+        return Arrays.copyOfRange(mPrimeFactors, mFactorsStart, mFactorsStart + mFactorCount);
+    }
+
+    /**
+     * <p>Gets exponents for every prime factor in {@link #getPrimeFactors()}.</p>
+     * @return array of exponents. Must not be modified.
+     */
+    public byte[] getExponents() {
+        if (mFactorsStart == 0 && mFactorCount == mExponents.length)
+            return mExponents;
+
+        return Arrays.copyOfRange(mExponents, mFactorsStart, mFactorsStart + mFactorCount);
+    }
+
+    /**
+     * <p>Gets prime signature for value assigned to this cell.
+     * <br>May not be updated if {@link #factorize()} was never called.</p>
+     * @return prime signature.
+     */
+    public long getPrimeSignature() {
+        return mPrimeSignature;
+    }
+
+    /**
+     * <p>Checks if value assigned to this cell shares a factor larger than 1 with given cell's value.
+     * <br>Resolves with a single AND for most values, see {@link PrimeSignature}.</p>
+     * @param other cell to compare with.
+     * @return true if values share a factor larger than 1, false otherwise.
+     */
+    public boolean hasCommonFactor(NumberCell other) {
+        return PrimeSignature.hasCommonFactor(mValue, mPrimeSignature,
+                other.mValue, other.mPrimeSignature);
+    }
+
+    /**
+     * <p>Gets the current primality status for this value.<br>May not be updated if {@link #updatePrimality()} was never called.</p>
+     * @return true if considered a prime, false otherwise.
+     */
+    public boolean isPrime() {
+        return mIsPrime;
+    }
+
+    /**
+     * <p>Gets assigned value to this cell.</p>
+     * @return assigned value.
+     */
+    public long getValue() {
+        return mValue;
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(mValue) + "(prime=" + mIsPrime + ')';
+    }
+
+    /*
+     * Read-only set view over factors of this cell.
+     */
+    private class FactorSet extends AbstractSet<Long> {
+
+        @Override
+        public Iterator<Long> iterator() {
+            final DivisorIterator divisors = divisorIterator();
+            return new Iterator<Long>() {
+                @Override
+                public boolean hasNext() {
+                    return divisors.hasNext();
+                }
+
+                @Override
+                public Long next() {
+                    return divisors.nextLong();
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return getFactorCount();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Long) || mFactorCount == 0)
+                return false;
+
+            long factor = (Long) o;
+            return factor > 1 && factor < mValue && (mValue % factor) == 0;
+        }
+    }
+
+    /*
+     * Scratch arrays for factorization results.
+     */
+    private static class FactorizationScratch {
+        final long[] primes = new long[Factorizer.MAX_PRIME_FACTORS];
+        final int[] exponents = new int[Factorizer.MAX_PRIME_FACTORS];
+    }
+}
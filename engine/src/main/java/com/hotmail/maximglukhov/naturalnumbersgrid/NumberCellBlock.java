@@ -0,0 +1,469 @@
+package com.hotmail.maximglukhov.naturalnumbersgrid;
+
+import android.support.annotation.IntRange;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * <p>Block of consecutive natural numbers [start, start + count), stored column by column (struct of arrays):
+ * a primality bitset, and primitive prime factor/exponent/signature columns.
+ * <br>Cell data is resolved by index arithmetic. {@link NumberCell} views are only materialized on demand with
+ * {@link #getCell(int)}, sharing the block's columns.</p>
+ * <p>Blocks are immutable once factorized. Trimming with {@link #slice(int, int)} shares all columns.</p>
+ * <p>A pending block (see {@link #pending(long, int)}) only holds its numbers, standing in for a block not
+ * generated yet.</p>
+ */
+public class NumberCellBlock {
+
+    /*
+     * Flag for prime numbers in serialized form (see writeTo), lower bits hold amount of prime factors.
+     */
+    private static final int SERIALIZED_PRIME_FLAG = 0x80;
+    private static final int SERIALIZED_COUNT_MASK = 0x7F;
+
+    /*
+     * Initial capacity for prime factor columns, per number (most numbers have very few distinct primes).
+     */
+    private static final int INITIAL_FACTORS_PER_NUMBER = 3;
+
+    /*
+     * First number in block.
+     */
+    private final long mStart;
+
+    /*
+     * Amount of numbers in block.
+     */
+    private final int mCount;
+
+    /*
+     * Index of this block's first number in columns (non-zero for slices).
+     */
+    private final int mOffset;
+
+    /*
+     * Primality bitset, bit i is set if number at column index i is a prime.
+     */
+    private final long[] mPrimeBits;
+
+    /*
+     * Prime factors of number at column index i are at [mFactorOffsets[i], mFactorOffsets[i + 1]) in prime
+     * factors and exponents columns.
+     */
+    private final int[] mFactorOffsets;
+    private long[] mPrimeFactors;
+    private byte[] mExponents;
+
+    /*
+     * Prime signature for every number (see PrimeSignature).
+     */
+    private final long[] mSignatures;
+
+    /*
+     * Whether block only holds numbers, with no columns.
+     */
+    private final boolean mIsPending;
+
+    /**
+     * <p>Constructor for an empty block. Primality and factors must be filled in with
+     * {@link #setPrimality(boolean[])} and {@link #factorize()} before use.</p>
+     * @param start first number in block.
+     * @param count amount of numbers in block.
+     */
+    public NumberCellBlock(@IntRange(from = 0) long start, @IntRange(from = 0) int count) {
+        mStart          = start;
+        mCount          = count;
+        mOffset         = 0;
+        mPrimeBits      = new long[(count + 63) >>> 6];
+        mFactorOffsets  = new int[count + 1];
+        mPrimeFactors   = new long[Math.max(1, count * INITIAL_FACTORS_PER_NUMBER)];
+        mExponents      = new byte[mPrimeFactors.length];
+        mSignatures     = new long[count];
+        mIsPending      = false;
+    }
+
+    /*
+     * Constructor for a pending block, with no columns.
+     */
+    private NumberCellBlock(long start, int count, boolean pending) {
+        mStart          = start;
+        mCount          = count;
+        mOffset         = 0;
+        mPrimeBits      = new long[0];
+        mFactorOffsets  = new int[0];
+        mPrimeFactors   = new long[0];
+        mExponents      = new byte[0];
+        mSignatures     = new long[0];
+        mIsPending      = pending;
+    }
+
+    /*
+     * Constructor for a slice, sharing all columns with given block.
+     */
+    private NumberCellBlock(NumberCellBlock block, int from, int to) {
+        mStart          = block.mStart + from;
+        mCount          = to - from;
+        mOffset         = block.mOffset + from;
+        mPrimeBits      = block.mPrimeBits;
+        mFactorOffsets  = block.mFactorOffsets;
+        mPrimeFactors   = block.mPrimeFactors;
+        mExponents      = block.mExponents;
+        mSignatures     = block.mSignatures;
+        mIsPending      = block.mIsPending;
+    }
+
+    /**
+     * <p>Creates a pending block, standing in for numbers which are not generated yet. It holds no
+     * primality or factors: only its numbers can be read, and it can be sliced.</p>
+     * @param start first number in block.
+     * @param count amount of numbers in block.
+     * @return pending block.
+     */
+    public static NumberCellBlock pending(@IntRange(from = 0) long start, @IntRange(from = 0) int count) {
+        return new NumberCellBlock(start, count, true);
+    }
+
+    /**
+     * <p>Sets primality for every number in block.</p>
+     * @param primes primes[i] is true if (start + i) is a prime. Must hold at least count elements.
+     */
+    public void setPrimality(boolean[] primes) {
+        for (int i = 0; i < mCount; i++) {
+            if (primes[i])
+                mPrimeBits[i >>> 6] |= 1L << i;
+        }
+    }
+
+    /**
+     * <p>Calculates prime factorization for every number in block, using {@link Factorizer}.
+     * <br>Primality must be set beforehand, primes are not factorized.</p>
+     */
+    public void factorize() {
+        factorize(new long[Factorizer.MAX_PRIME_FACTORS], new int[Factorizer.MAX_PRIME_FACTORS]);
+    }
+
+    /**
+     * <p>Calculates prime factorization for every number in block, using given scratch arrays.</p>
+     * @param primes scratch array for prime factors, at least {@link Factorizer#MAX_PRIME_FACTORS} long.
+     * @param exponents scratch array for exponents, at least {@link Factorizer#MAX_PRIME_FACTORS} long.
+     */
+    public void factorize(long[] primes, int[] exponents) {
+        int position = 0;
+        for (int i = 0; i < mCount; i++) {
+            mFactorOffsets[i] = position;
+
+            long value = mStart + i;
+            int count;
+            if (isPrime(i)) {
+                // A prime's only prime factor is itself.
+                primes[0]       = value;
+                exponents[0]    = 1;
+                count           = 1;
+            } else {
+                count = Factorizer.factorize(value, primes, exponents);
+            }
+
+            ensureFactorsCapacity(position + count);
+            for (int j = 0; j < count; j++) {
+                mPrimeFactors[position + j] = primes[j];
+                mExponents[position + j]    = (byte) exponents[j];
+            }
+
+            mSignatures[i] = PrimeSignature.of(primes, count);
+            position += count;
+        }
+
+        mFactorOffsets[mCount] = position;
+    }
+
+    /**
+     * <p>Gets first number in block.</p>
+     * @return first number.
+     */
+    public long getStart() {
+        return mStart;
+    }
+
+    /**
+     * <p>Gets last number in block.</p>
+     * @return last number.
+     */
+    public long getEnd() {
+        return mStart + mCount - 1;
+    }
+
+    /**
+     * <p>Gets amount of numbers in block.</p>
+     * @return amount of numbers.
+     */
+    public int getCount() {
+        return mCount;
+    }
+
+    /**
+     * <p>Gets number at given index.</p>
+     * @param index index in block.
+     * @return number.
+     */
+    public long getValue(int index) {
+        return mStart + index;
+    }
+
+    /**
+     * <p>Checks primality of number at given index.</p>
+     * @param index index in block.
+     * @return true if prime, false otherwise.
+     */
+    public boolean isPrime(int index) {
+        int i = mOffset + index;
+        return (mPrimeBits[i >>> 6] & (1L << i)) != 0;
+    }
+
+    /**
+     * <p>Gets prime signature of number at given index.</p>
+     * @param index index in block.
+     * @return prime signature.
+     */
+    public long getPrimeSignature(int index) {
+        return mSignatures[mOffset + index];
+    }
+
+    /**
+     * <p>Gets amount of distinct prime factors of number at given index.</p>
+     * @param index index in block.
+     * @return amount of distinct prime factors (0 for 0 and 1).
+     */
+    public int getPrimeFactorCount(int index) {
+        int i = mOffset + index;
+        return mFactorOffsets[i + 1] - mFactorOffsets[i];
+    }
+
+    /**
+     * <p>Gets a prime factor of number at given index, without materializing a cell.</p>
+     * @param index index in block.
+     * @param factor index of prime factor, in increasing order.
+     * @return prime factor.
+     */
+    public long getPrimeFactor(int index, int factor) {
+        return mPrimeFactors[mFactorOffsets[mOffset + index] + factor];
+    }
+
+    /**
+     * <p>Gets exponent of a prime factor of number at given index.</p>
+     * @param index index in block.
+     * @param factor index of prime factor, in increasing order.
+     * @return exponent of prime factor.
+     */
+    public int getExponent(int index, int factor) {
+        return mExponents[mFactorOffsets[mOffset + index] + factor];
+    }
+
+    /**
+     * <p>Materializes a {@link NumberCell} view for number at given index. The cell shares this block's
+     * columns.</p>
+     * @param index index in block.
+     * @return cell for number at index.
+     */
+    public NumberCell getCell(int index) {
+        if (mIsPending)
+            throw new IllegalStateException("Block " + this + " is pending");
+
+        int i = mOffset + index;
+        int factorsStart = mFactorOffsets[i];
+        return new NumberCell(mStart + index, isPrime(index), mPrimeFactors, mExponents,
+                factorsStart, mFactorOffsets[i + 1] - factorsStart, mSignatures[i]);
+    }
+
+    /**
+     * <p>Checks if this is a pending block, whose numbers are not generated yet.</p>
+     * @return true if pending, false otherwise.
+     */
+    public boolean isPending() {
+        return mIsPending;
+    }
+
+    /**
+     * <p>Creates a block for numbers at [from, to) of this block, sharing all columns.</p>
+     * @param from first index (inclusive).
+     * @param to last index (exclusive).
+     * @return sliced block.
+     */
+    public NumberCellBlock slice(int from, int to) {
+        if (from == 0 && to == mCount)
+            return this;
+
+        return new NumberCellBlock(this, from, to);
+    }
+
+    /**
+     * <p>Joins consecutive blocks into a single block (e.g. segments generated in parallel).</p>
+     * @param blocks factorized blocks, in increasing order with no gaps between them.
+     * @return joined block.
+     */
+    public static NumberCellBlock concat(NumberCellBlock[] blocks) {
+        if (blocks.length == 1)
+            return blocks[0];
+
+        return join(blocks);
+    }
+
+    /**
+     * <p>Gets block holding columns of its own numbers only. A slice covering less than half of the columns it
+     * shares is copied, so the rest of them can be released once its original block is dropped. Other blocks
+     * (and pending blocks, which hold no columns) are returned as is.</p>
+     * @return compact block.
+     */
+    public NumberCellBlock compact() {
+        if (mIsPending || mCount >= mSignatures.length / 2)
+            return this;
+
+        return join(new NumberCellBlock[] {this});
+    }
+
+    /*
+     * Helper method to copy consecutive blocks into a new block, holding only their columns.
+     */
+    private static NumberCellBlock join(NumberCellBlock[] blocks) {
+        int count = 0;
+        int factorCount = 0;
+        for (NumberCellBlock block : blocks) {
+            count += block.mCount;
+            factorCount += block.mFactorOffsets[block.mOffset + block.mCount]
+                    - block.mFactorOffsets[block.mOffset];
+        }
+
+        NumberCellBlock joined = new NumberCellBlock(blocks[0].mStart, count);
+        joined.ensureFactorsCapacity(factorCount);
+
+        int index = 0;
+        int position = 0;
+        for (NumberCellBlock block : blocks) {
+            int factorsFrom = block.mFactorOffsets[block.mOffset];
+            int factorsTo = block.mFactorOffsets[block.mOffset + block.mCount];
+
+            // Copy factor columns as a whole, shifting offsets to their new position.
+            System.arraycopy(block.mPrimeFactors, factorsFrom, joined.mPrimeFactors, position,
+                    factorsTo - factorsFrom);
+            System.arraycopy(block.mExponents, factorsFrom, joined.mExponents, position,
+                    factorsTo - factorsFrom);
+            System.arraycopy(block.mSignatures, block.mOffset, joined.mSignatures, index, block.mCount);
+
+            for (int i = 0; i < block.mCount; i++) {
+                joined.mFactorOffsets[index + i] =
+                        block.mFactorOffsets[block.mOffset + i] - factorsFrom + position;
+                if (block.isPrime(i))
+                    joined.mPrimeBits[(index + i) >>> 6] |= 1L << (index + i);
+            }
+
+            index += block.mCount;
+            position += factorsTo - factorsFrom;
+        }
+
+        joined.mFactorOffsets[count] = position;
+
+        return joined;
+    }
+
+    /**
+     * <p>Writes block in a compact binary form: a byte per number holding its primality and amount of
+     * prime factors, followed by its prime factors and exponents (omitted for primes).</p>
+     * @param out output to write to.
+     * @throws IOException if writing fails.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        if (mIsPending)
+            throw new IllegalStateException("Block " + this + " is pending");
+
+        out.writeLong(mStart);
+        out.writeInt(mCount);
+
+        for (int i = 0; i < mCount; i++) {
+            int from = mFactorOffsets[mOffset + i];
+            int to = mFactorOffsets[mOffset + i + 1];
+            if (isPrime(i)) {
+                out.writeByte(SERIALIZED_PRIME_FLAG);
+                continue;
+            }
+
+            out.writeByte(to - from);
+            for (int j = from; j < to; j++) {
+                out.writeLong(mPrimeFactors[j]);
+                out.writeByte(mExponents[j]);
+            }
+        }
+    }
+
+    /**
+     * <p>Reads a block written by {@link #writeTo(DataOutput)}.</p>
+     * @param in input to read from.
+     * @return factorized block.
+     * @throws IOException if reading fails or data is invalid.
+     */
+    public static NumberCellBlock readFrom(DataInput in) throws IOException {
+        long start = in.readLong();
+        int count = in.readInt();
+        if (start < 0 || count < 0 || Long.MAX_VALUE - start < Math.max(0, count - 1))
+            throw new IOException("Invalid block range: " + start + "+" + count);
+
+        NumberCellBlock block = new NumberCellBlock(start, count);
+        long[] primes = new long[Factorizer.MAX_PRIME_FACTORS];
+
+        int position = 0;
+        for (int i = 0; i < count; i++) {
+            block.mFactorOffsets[i] = position;
+
+            int flags = in.readUnsignedByte();
+            int factorCount = flags & SERIALIZED_COUNT_MASK;
+            if (factorCount > Factorizer.MAX_PRIME_FACTORS)
+                throw new IOException("Invalid factor count: " + factorCount);
+
+            block.ensureFactorsCapacity(position + Math.max(1, factorCount));
+            if ((flags & SERIALIZED_PRIME_FLAG) != 0) {
+                // A prime's only prime factor is itself.
+                block.mPrimeBits[i >>> 6] |= 1L << i;
+                primes[0] = start + i;
+                block.mPrimeFactors[position] = primes[0];
+                block.mExponents[position] = 1;
+                factorCount = 1;
+            } else {
+                for (int j = 0; j < factorCount; j++) {
+                    primes[j] = in.readLong();
+                    block.mPrimeFactors[position + j] = primes[j];
+                    block.mExponents[position + j] = in.readByte();
+                }
+            }
+
+            block.mSignatures[i] = PrimeSignature.of(primes, factorCount);
+            position += factorCount;
+        }
+
+        block.mFactorOffsets[count] = position;
+
+        return block;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + mStart + "-" + getEnd() + "]";
+    }
+
+    /*
+     * Helper method to grow factor columns (only during factorization, before block is shared).
+     */
+    private void ensureFactorsCapacity(int capacity) {
+        if (capacity <= mPrimeFactors.length)
+            return;
+
+        int newCapacity = Math.max(capacity, mPrimeFactors.length * 2);
+
+        long[] primeFactors = new long[newCapacity];
+        System.arraycopy(mPrimeFactors, 0, primeFactors, 0, mPrimeFactors.length);
+        mPrimeFactors = primeFactors;
+
+        byte[] exponents = new byte[newCapacity];
+        System.arraycopy(mExponents, 0, exponents, 0, mExponents.length);
+        mExponents = exponents;
+    }
+}
@@ -0,0 +1,439 @@
+package com.hotmail.maximglukhov.naturalnumbersgrid;
+
+import android.support.annotation.IntRange;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * <p>Generates {@link NumberCellBlock}s for windows of natural numbers: primality is marked with a
+ * {@link SegmentedSieve} and every number is factorized.</p>
+ * <p>Large windows (see {@link #setParallelCutoff(int)}) are split into segments, which are sieved and factorized
+ * in parallel on a worker pool, then joined in order.</p>
+ * <p>If a cache is set (see {@link #setPrimeCache(PrimeBitmapCache)}), primality is read from a persistent
+ * {@link PrimeBitmapCache} first, and only segments missing from it are sieved (and then added to it).</p>
+ * <p>Calls are blocking and may come from several threads at once, every thread uses its own scratch buffers.</p>
+ * <p>Sieving and factorizing of every segment can be timed (see {@link GenerationStats}) and reported as trace
+ * sections (see {@link #setTracer(Tracer)}).</p>
+ */
+public class NumberCellGenerator {
+
+    /**
+     * <p>Default minimum window size for splitting generation across worker threads.</p>
+     */
+    public static final int DEFAULT_PARALLEL_CUTOFF = 8192;
+
+    /*
+     * Defines amount of segments per worker, more segments than workers balance uneven factorization costs.
+     */
+    private static final int SEGMENTS_PER_WORKER = 2;
+
+    /*
+     * Defines maximum segment size, cancellation is checked between segments.
+     */
+    private static final int MAX_SEGMENT_SIZE = 4096;
+
+    /**
+     * <p>Trace section names for sieving and factorizing a segment.</p>
+     */
+    public static final String SECTION_SIEVE = "NumberCellGenerator.sieve";
+    public static final String SECTION_FACTORIZE = "NumberCellGenerator.factorize";
+
+    /**
+     * <p>Interface definition for checking if a generation was cancelled.</p>
+     */
+    public interface Cancellation {
+        /**
+         * <p>Checks if generation was cancelled. Called between segments, from any thread.</p>
+         * @return true if cancelled, false otherwise.
+         */
+        boolean isCancelled();
+    }
+
+    /**
+     * <p>Interface definition for a callback to be invoked as soon as every segment of a window is generated.</p>
+     */
+    public interface SegmentListener {
+        /**
+         * <p>Callback for a generated segment. Called from thread calling generate, in increasing order (segments
+         * generated in parallel are handed out as soon as all segments before them are done).</p>
+         * @param segment generated segment.
+         */
+        void onSegmentReady(NumberCellBlock segment);
+    }
+
+    /**
+     * <p>Interface definition for reporting trace sections, e.g. to platform tracing.</p>
+     */
+    public interface Tracer {
+        /**
+         * <p>Begins a section on calling thread. Called from any thread.</p>
+         * @param name section name.
+         */
+        void beginSection(String name);
+
+        /**
+         * <p>Ends last section begun on calling thread.</p>
+         */
+        void endSection();
+    }
+
+    /*
+     * Per thread reusable state (for calling threads and every worker thread).
+     */
+    private static final ThreadLocal<WorkerState> sWorkerState = new ThreadLocal<WorkerState>() {
+        @Override
+        protected WorkerState initialValue() {
+            return new WorkerState();
+        }
+    };
+
+    /*
+     * Sieve marking primes for every generated window. Shared between threads to keep its base primes table.
+     */
+    private final SegmentedSieve mSieve;
+
+    /*
+     * Worker pool for generating large windows in parallel.
+     */
+    private final ExecutorService mWorkers;
+    private final int mWorkerCount;
+
+    /*
+     * Minimum window size for generating in parallel.
+     */
+    private volatile int mParallelCutoff = DEFAULT_PARALLEL_CUTOFF;
+
+    /*
+     * Persistent primality cache, or null.
+     */
+    private volatile PrimeBitmapCache mPrimeCache;
+
+    /*
+     * Tracer reporting sections, or null.
+     */
+    private volatile Tracer mTracer;
+
+    /**
+     * <p>Constructor for generator with a worker for every available processor.</p>
+     */
+    public NumberCellGenerator() {
+        this(Runtime.getRuntime().availableProcessors(), Executors.defaultThreadFactory());
+    }
+
+    /**
+     * <p>Constructor for generator.</p>
+     * @param workerCount amount of worker threads.
+     * @param threadFactory factory for worker threads.
+     */
+    public NumberCellGenerator(@IntRange(from = 1) int workerCount, ThreadFactory threadFactory) {
+        mSieve          = new SegmentedSieve();
+        mWorkerCount    = Math.max(1, workerCount);
+        mWorkers        = Executors.newFixedThreadPool(mWorkerCount, threadFactory);
+    }
+
+    /**
+     * <p>Generates a block for given window.</p>
+     * @param low first number in window.
+     * @param count amount of numbers in window.
+     * @return generated block.
+     */
+    public NumberCellBlock generate(@IntRange(from = 0) long low, @IntRange(from = 1) int count) {
+        return generate(low, count, null);
+    }
+
+    /**
+     * <p>Generates a block for given window, unless cancelled meanwhile.</p>
+     * @param low first number in window.
+     * @param count amount of numbers in window.
+     * @param cancellation cancellation checked between segments, or null.
+     * @return generated block, or null if cancelled.
+     */
+    public NumberCellBlock generate(@IntRange(from = 0) long low, @IntRange(from = 1) int count,
+                                    Cancellation cancellation) {
+        return generate(low, count, cancellation, null);
+    }
+
+    /**
+     * <p>Generates a block for given window, unless cancelled meanwhile, adding time spent to given stats.</p>
+     * @param low first number in window.
+     * @param count amount of numbers in window.
+     * @param cancellation cancellation checked between segments, or null.
+     * @param stats stats to add sieve and factorization times to, or null.
+     * @return generated block, or null if cancelled.
+     */
+    public NumberCellBlock generate(@IntRange(from = 0) long low, @IntRange(from = 1) int count,
+                                    Cancellation cancellation, GenerationStats stats) {
+        return generate(low, count, cancellation, stats, null);
+    }
+
+    /**
+     * <p>Generates a block for given window, unless cancelled meanwhile, handing every segment to given listener
+     * as soon as it's generated (e.g. for showing them progressively).</p>
+     * @param low first number in window.
+     * @param count amount of numbers in window.
+     * @param cancellation cancellation checked between segments, or null.
+     * @param stats stats to add sieve and factorization times to, or null.
+     * @param listener listener for generated segments, or null.
+     * @return generated block, or null if cancelled (or if calling thread is interrupted while waiting for
+     * segments generated in parallel).
+     */
+    public NumberCellBlock generate(@IntRange(from = 0) long low, @IntRange(from = 1) int count,
+                                    Cancellation cancellation, GenerationStats stats,
+                                    SegmentListener listener) {
+        // Generate cells in increasing order, regardless of direction.
+        if (count >= mParallelCutoff && mWorkerCount > 1)
+            return generateParallel(low, count, cancellation, stats, listener);
+
+        return generateSequential(low, count, cancellation, stats, listener);
+    }
+
+    /**
+     * <p>Sets minimum window size for splitting generation across worker threads.</p>
+     * @param cutoff minimum window size to generate in parallel.
+     */
+    public void setParallelCutoff(@IntRange(from = 1) int cutoff) {
+        mParallelCutoff = Math.max(1, cutoff);
+    }
+
+    /**
+     * <p>Gets minimum window size for splitting generation across worker threads.</p>
+     * @return minimum window size to generate in parallel.
+     */
+    public int getParallelCutoff() {
+        return mParallelCutoff;
+    }
+
+    /**
+     * <p>Gets amount of worker threads.</p>
+     * @return amount of workers.
+     */
+    public int getWorkerCount() {
+        return mWorkerCount;
+    }
+
+    /**
+     * <p>Sets persistent primality cache. Cache is not closed by generator.</p>
+     * @param cache primality cache, or null for no cache.
+     */
+    public void setPrimeCache(PrimeBitmapCache cache) {
+        mPrimeCache = cache;
+    }
+
+    /**
+     * <p>Gets persistent primality cache.</p>
+     * @return primality cache, or null if not set.
+     */
+    public PrimeBitmapCache getPrimeCache() {
+        return mPrimeCache;
+    }
+
+    /**
+     * <p>Sets tracer reporting sieve and factorization sections of every segment.</p>
+     * @param tracer tracer, or null for no tracing.
+     */
+    public void setTracer(Tracer tracer) {
+        mTracer = tracer;
+    }
+
+    /**
+     * <p>Releases worker threads. Generator can't generate anymore after being released.</p>
+     */
+    public void release() {
+        mWorkers.shutdown();
+    }
+
+    /*
+     * Helper method to generate a block for given window on current thread, segment by segment.
+     * Returns null if cancelled meanwhile.
+     */
+    private NumberCellBlock generateSequential(long low, int count, Cancellation cancellation,
+                                               GenerationStats stats, SegmentListener listener) {
+        NumberCellBlock[] blocks = new NumberCellBlock[(count + MAX_SEGMENT_SIZE - 1) / MAX_SEGMENT_SIZE];
+        for (int i = 0; i < blocks.length; i++) {
+            if (isCancelled(cancellation))
+                return null;
+
+            int from = i * MAX_SEGMENT_SIZE;
+            blocks[i] = generateSegment(low + from, Math.min(MAX_SEGMENT_SIZE, count - from), stats);
+            if (listener != null)
+                listener.onSegmentReady(blocks[i]);
+        }
+
+        if (blocks.length == 1)
+            return blocks[0];
+
+        return NumberCellBlock.concat(blocks);
+    }
+
+    /*
+     * Helper method to generate a block for given window by splitting it into segments, generating them
+     * on worker pool and joining results in order. Returns null if cancelled meanwhile, or if calling thread
+     * is interrupted while waiting for segments.
+     */
+    private NumberCellBlock generateParallel(long low, int count, final Cancellation cancellation,
+                                             final GenerationStats stats, SegmentListener listener) {
+        int segmentCount = mWorkerCount * SEGMENTS_PER_WORKER;
+        int segmentSize = Math.min((count + segmentCount - 1) / segmentCount, MAX_SEGMENT_SIZE);
+
+        // Futures are kept in submission order, which keeps segments in increasing order.
+        List<Future<NumberCellBlock>> futures = new ArrayList<>(segmentCount);
+        for (int from = 0; from < count; from += segmentSize) {
+            final long segmentLow = low + from;
+            final int segmentCells = Math.min(segmentSize, count - from);
+            futures.add(mWorkers.submit(new Callable<NumberCellBlock>() {
+                @Override
+                public NumberCellBlock call() throws Exception {
+                    // Skip remaining segments once cancelled.
+                    if (isCancelled(cancellation))
+                        return null;
+                    return generateSegment(segmentLow, segmentCells, stats);
+                }
+            }));
+        }
+
+        try {
+            NumberCellBlock[] blocks = new NumberCellBlock[futures.size()];
+            boolean isComplete = true;
+            for (int i = 0; i < blocks.length; i++) {
+                blocks[i] = futures.get(i).get();
+                // Segment skipped once cancelled, window can't be joined (even if no longer cancelled by now).
+                if (blocks[i] == null)
+                    isComplete = false;
+                // Hand out on this thread as soon as segment and all before it are done.
+                if (listener != null && isComplete)
+                    listener.onSegmentReady(blocks[i]);
+            }
+
+            return isComplete ? NumberCellBlock.concat(blocks) : null;
+        } catch (InterruptedException e) {
+            cancelAll(futures);
+            // Calling thread was asked to stop, keep interrupt status and give up like a cancelled window.
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            cancelAll(futures);
+            throw new RuntimeException("Failed generating range " + low + "+" + count, e.getCause());
+        }
+    }
+
+    /*
+     * Helper method to generate a block for given window: marks primes for entire window in one pass, then
+     * factorizes every number. Safe to call from several threads, each uses its own reusable state.
+     */
+    private NumberCellBlock generateSegment(long low, int count, GenerationStats stats) {
+        WorkerState state = sWorkerState.get();
+        Tracer tracer = mTracer;
+        boolean[] primes = state.getPrimesBuffer(count);
+
+        long sieveStart = System.nanoTime();
+        beginSection(tracer, SECTION_SIEVE);
+        try {
+            sieve(state, low, count, primes);
+        } finally {
+            endSection(tracer);
+        }
+
+        long factorizeStart = System.nanoTime();
+        NumberCellBlock block = new NumberCellBlock(low, count);
+        beginSection(tracer, SECTION_FACTORIZE);
+        try {
+            block.setPrimality(primes);
+            block.factorize(state.primeFactors, state.exponents);
+        } finally {
+            endSection(tracer);
+        }
+
+        if (stats != null)
+            stats.addSegment(factorizeStart - sieveStart, System.nanoTime() - factorizeStart);
+
+        return block;
+    }
+
+    /*
+     * Helper method to mark primes for given window, reading cached segments and sieving (then caching)
+     * missing ones.
+     */
+    private void sieve(WorkerState state, long low, int count, boolean[] primes) {
+        PrimeBitmapCache cache = mPrimeCache;
+        if (cache == null) {
+            mSieve.sieve(low, count, primes);
+            return;
+        }
+
+        long last = PrimeBitmapCache.segmentOf(low + count - 1);
+        for (long segment = PrimeBitmapCache.segmentOf(low); segment <= last; segment++) {
+            if (cache.readSegment(segment, low, count, primes))
+                continue;
+
+            // Sieve entire segment, so it can be cached.
+            long segmentStart = segment * PrimeBitmapCache.SEGMENT_SIZE;
+            int segmentLength = PrimeBitmapCache.segmentLength(segment);
+            boolean[] segmentPrimes = state.getSegmentBuffer();
+            mSieve.sieve(segmentStart, segmentLength, segmentPrimes);
+            cache.writeSegment(segment, segmentPrimes);
+
+            // Copy part of segment inside window.
+            long from = Math.max(low, segmentStart);
+            long to = Math.min(low + count - 1, segmentStart + segmentLength - 1);
+            System.arraycopy(segmentPrimes, (int) (from - segmentStart), primes, (int) (from - low),
+                    (int) (to - from + 1));
+        }
+    }
+
+    /*
+     * Helper methods to report sections to tracer, if any.
+     */
+    private static void beginSection(Tracer tracer, String name) {
+        if (tracer != null)
+            tracer.beginSection(name);
+    }
+
+    private static void endSection(Tracer tracer) {
+        if (tracer != null)
+            tracer.endSection();
+    }
+
+    /*
+     * Helper method to check cancellation, if any.
+     */
+    private static boolean isCancelled(Cancellation cancellation) {
+        return cancellation != null && cancellation.isCancelled();
+    }
+
+    /*
+     * Helper method to cancel segments not generated yet, interrupting running ones.
+     */
+    private static void cancelAll(List<Future<NumberCellBlock>> futures) {
+        for (Future<NumberCellBlock> future : futures)
+            future.cancel(true);
+    }
+
+    /*
+     * Reusable per thread state: sieve buffer and factorization scratch arrays.
+     */
+    private static class WorkerState {
+        private boolean[] mPrimes = new boolean[0];
+        private boolean[] mSegmentPrimes;
+        final long[] primeFactors = new long[Factorizer.MAX_PRIME_FACTORS];
+        final int[] exponents = new int[Factorizer.MAX_PRIME_FACTORS];
+
+        boolean[] getPrimesBuffer(int count) {
+            if (mPrimes.length < count)
+                mPrimes = new boolean[count];
+            return mPrimes;
+        }
+
+        boolean[] getSegmentBuffer() {
+            if (mSegmentPrimes == null)
+                mSegmentPrimes = new boolean[PrimeBitmapCache.SEGMENT_SIZE];
+            return mSegmentPrimes;
+        }
+    }
+}
@@ -0,0 +1,378 @@
+package com.hotmail.maximglukhov.naturalnumbersgrid;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.zip.CRC32;
+
+/**
+ * <p>Persistent cache of sieved primality, stored as wheel-30 compressed bitmap in a memory-mapped file.</p>
+ * <p>Numbers are split into aligned segments of {@link #SEGMENT_SIZE} numbers. Every segment is stored in one
+ * slot of the file, one byte for every 30 numbers (a bit for each residue coprime to 30, primes 2,3,5 are
+ * implied). Reads and writes go straight through the mapped buffer, without copying the file.</p>
+ * <p>File layout:
+ * <br>- Header: magic, version, segment size and slot count, followed by their checksum.
+ * <br>- Coverage index: an entry for every slot, holding segment stored in it and checksum of its bitmap.
+ * <br>- Slots: bitmap of every segment.
+ * <br>An index entry is only written after its slot's bitmap, and cleared before the slot is reused. On opening,
+ * entries whose checksum doesn't match their bitmap (e.g. partially written before the process died) are cleared,
+ * and a file with unexpected header is recreated. Once all slots are used, slots are reused in turn.</p>
+ * <p>Thread safe.</p>
+ */
+public class PrimeBitmapCache implements Closeable {
+
+    /**
+     * <p>Amount of numbers in every cached segment (multiple of 30).</p>
+     */
+    public static final int SEGMENT_SIZE = 30 * 1024;
+
+    /**
+     * <p>Default amount of slots (cached segments), about 4MB of bitmaps.</p>
+     */
+    public static final int DEFAULT_SLOT_COUNT = 4096;
+
+    /*
+     * File format identification.
+     */
+    private static final int MAGIC = 0x4E4E4750;
+    private static final int VERSION = 1;
+
+    /*
+     * Header layout: magic, version, segment size, slot count, CRC32 of previous fields.
+     */
+    private static final int HEADER_SIZE = 32;
+    private static final int HEADER_FIELDS_SIZE = 16;
+    private static final int HEADER_CRC_OFFSET = 16;
+
+    /*
+     * Index entry layout: segment + 1 (0 for empty slot), CRC32 of slot bitmap, entry check.
+     */
+    private static final int ENTRY_SIZE = 16;
+    private static final int ENTRY_CRC_OFFSET = 8;
+    private static final int ENTRY_CHECK_OFFSET = 12;
+    private static final int ENTRY_CHECK_SALT = 0x5EED5EED;
+
+    /*
+     * Bytes in every slot.
+     */
+    private static final int SLOT_SIZE = SEGMENT_SIZE / 30;
+
+    /*
+     * Residues modulo 30 coprime to 30, bit i of a bitmap byte stands for RESIDUES[i].
+     */
+    private static final int[] RESIDUES = { 1, 7, 11, 13, 17, 19, 23, 29 };
+
+    /*
+     * Lookup table from residue modulo 30 to its bit (0 for residues not coprime to 30).
+     */
+    private static final byte[] RESIDUE_BITS = new byte[30];
+
+    static {
+        for (int i = 0; i < RESIDUES.length; i++)
+            RESIDUE_BITS[RESIDUES[i]] = (byte) (1 << i);
+    }
+
+    private final RandomAccessFile mFile;
+    private final MappedByteBuffer mBuffer;
+    private final int mSlotCount;
+
+    /*
+     * Offset of first slot in file.
+     */
+    private final int mSlotsOffset;
+
+    /*
+     * Slot of every cached segment.
+     */
+    private final HashMap<Long, Integer> mSlots;
+
+    /*
+     * Slots not used yet.
+     */
+    private final ArrayDeque<Integer> mFreeSlots;
+
+    /*
+     * Next slot to reuse once all slots are used.
+     */
+    private int mNextReusedSlot;
+
+    /*
+     * Scratch buffer for calculating checksums.
+     */
+    private final byte[] mSlotBytes = new byte[SLOT_SIZE];
+    private final CRC32 mCrc = new CRC32();
+
+    /*
+     * Constructor for cache over an opened file, see open().
+     */
+    private PrimeBitmapCache(RandomAccessFile file, int slotCount) throws IOException {
+        mFile           = file;
+        mSlotCount      = slotCount;
+        mSlotsOffset    = HEADER_SIZE + slotCount * ENTRY_SIZE;
+        mSlots          = new HashMap<>();
+        mFreeSlots      = new ArrayDeque<>();
+
+        long fileSize = (long) mSlotsOffset + (long) slotCount * SLOT_SIZE;
+        boolean isValid = (file.length() == fileSize);
+        if (!isValid)
+            file.setLength(fileSize);
+
+        mBuffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+
+        if (isValid && isHeaderValid())
+            loadIndex();
+        else
+            reset();
+    }
+
+    /**
+     * <p>Opens cache file, creating it if missing and repairing it if partially written.
+     * <br>Reads entire file for verification, should not be called on UI thread.</p>
+     * @param file cache file.
+     * @param slotCount maximum amount of cached segments.
+     * @return opened cache.
+     * @throws IOException if file can't be opened or mapped.
+     */
+    public static PrimeBitmapCache open(File file, int slotCount) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            return new PrimeBitmapCache(randomAccessFile, Math.max(1, slotCount));
+        } catch (IOException e) {
+            randomAccessFile.close();
+            throw e;
+        }
+    }
+
+    /**
+     * <p>Gets segment containing given number.</p>
+     * @param value number.
+     * @return segment index.
+     */
+    public static long segmentOf(long value) {
+        return value / SEGMENT_SIZE;
+    }
+
+    /**
+     * <p>Gets amount of numbers in given segment (last segment ends at Long.MAX_VALUE).</p>
+     * @param segment segment index.
+     * @return amount of numbers.
+     */
+    public static int segmentLength(long segment) {
+        long start = segment * SEGMENT_SIZE;
+        return (Long.MAX_VALUE - start < SEGMENT_SIZE) ? (int) (Long.MAX_VALUE - start + 1) : SEGMENT_SIZE;
+    }
+
+    /**
+     * <p>Reads primality of numbers in window [low, low + length) covered by given segment.</p>
+     * @param segment segment to read.
+     * @param low first number in window.
+     * @param length amount of numbers in window.
+     * @param primes primes[i] is set to (low + i) primality, for numbers in segment.
+     * @return true if segment is cached, false otherwise (primes are left untouched).
+     */
+    public synchronized boolean readSegment(long segment, long low, int length, boolean[] primes) {
+        Integer slot = mSlots.get(segment);
+        if (slot == null)
+            return false;
+
+        long segmentStart = segment * SEGMENT_SIZE;
+        long from = Math.max(low, segmentStart);
+        long to = Math.min(low + length - 1, segmentStart + segmentLength(segment) - 1);
+
+        // Work with offsets to avoid overflow near Long.MAX_VALUE.
+        int slotOffset = mSlotsOffset + slot * SLOT_SIZE;
+        int first = (int) (from - segmentStart);
+        int last = (int) (to - segmentStart);
+        int index = (int) (from - low);
+        for (int offset = first; offset <= last; offset++, index++) {
+            int bit = RESIDUE_BITS[offset % 30];
+            primes[index] = (bit != 0)
+                    ? (mBuffer.get(slotOffset + offset / 30) & bit) != 0
+                    : (segment == 0 && (offset == 2 || offset == 3 || offset == 5));
+        }
+
+        return true;
+    }
+
+    /**
+     * <p>Stores primality of an entire segment.</p>
+     * @param segment segment to write.
+     * @param primes primes[i] is primality of (segment start + i), for every number in segment.
+     */
+    public synchronized void writeSegment(long segment, boolean[] primes) {
+        if (mSlots.containsKey(segment))
+            return;
+
+        int slot = acquireSlot();
+        int slotOffset = mSlotsOffset + slot * SLOT_SIZE;
+
+        // Compress bitmap, dropping every number divisible by 2,3,5.
+        int length = segmentLength(segment);
+        for (int i = 0; i < SLOT_SIZE; i++) {
+            int bits = 0;
+            int base = i * 30;
+            for (int r = 0; r < RESIDUES.length; r++) {
+                int offset = base + RESIDUES[r];
+                if (offset < length && primes[offset])
+                    bits |= 1 << r;
+            }
+
+            mSlotBytes[i] = (byte) bits;
+        }
+
+        ByteBuffer slotBuffer = mBuffer.duplicate();
+        slotBuffer.position(slotOffset);
+        slotBuffer.put(mSlotBytes, 0, SLOT_SIZE);
+
+        // Publish slot only after its bitmap is written.
+        writeEntry(slot, segment + 1, checksum(mSlotBytes));
+        mSlots.put(segment, slot);
+    }
+
+    /**
+     * <p>Checks if given segment is cached.</p>
+     * @param segment segment index.
+     * @return true if cached, false otherwise.
+     */
+    public synchronized boolean contains(long segment) {
+        return mSlots.containsKey(segment);
+    }
+
+    /**
+     * <p>Gets amount of cached segments.</p>
+     * @return amount of cached segments.
+     */
+    public synchronized int getSegmentCount() {
+        return mSlots.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        mBuffer.force();
+        mFile.close();
+    }
+
+    /*
+     * Helper method to check file header.
+     */
+    private boolean isHeaderValid() {
+        if (mBuffer.getInt(0) != MAGIC || mBuffer.getInt(4) != VERSION
+                || mBuffer.getInt(8) != SEGMENT_SIZE || mBuffer.getInt(12) != mSlotCount)
+            return false;
+
+        return mBuffer.getInt(HEADER_CRC_OFFSET) == headerChecksum();
+    }
+
+    /*
+     * Helper method to initialize an empty cache file.
+     */
+    private void reset() {
+        for (int slot = 0; slot < mSlotCount; slot++)
+            writeEntry(slot, 0, 0);
+
+        mBuffer.putInt(0, MAGIC);
+        mBuffer.putInt(4, VERSION);
+        mBuffer.putInt(8, SEGMENT_SIZE);
+        mBuffer.putInt(12, mSlotCount);
+        mBuffer.putInt(HEADER_CRC_OFFSET, headerChecksum());
+
+        mSlots.clear();
+        mFreeSlots.clear();
+        for (int slot = 0; slot < mSlotCount; slot++)
+            mFreeSlots.add(slot);
+    }
+
+    /*
+     * Helper method to load coverage index, verifying every entry against its slot and clearing broken ones.
+     */
+    private void loadIndex() {
+        ByteBuffer slotBuffer = mBuffer.duplicate();
+        for (int slot = 0; slot < mSlotCount; slot++) {
+            int entryOffset = HEADER_SIZE + slot * ENTRY_SIZE;
+            long key = mBuffer.getLong(entryOffset);
+            if (key == 0) {
+                mFreeSlots.add(slot);
+                continue;
+            }
+
+            int crc = mBuffer.getInt(entryOffset + ENTRY_CRC_OFFSET);
+            boolean isValid = key > 0 && mBuffer.getInt(entryOffset + ENTRY_CHECK_OFFSET) == entryCheck(key, crc)
+                    && !mSlots.containsKey(key - 1);
+            if (isValid) {
+                slotBuffer.position(mSlotsOffset + slot * SLOT_SIZE);
+                slotBuffer.get(mSlotBytes, 0, SLOT_SIZE);
+                isValid = (checksum(mSlotBytes) == crc);
+            }
+
+            if (isValid) {
+                mSlots.put(key - 1, slot);
+            } else {
+                // Repair: slot is free again.
+                writeEntry(slot, 0, 0);
+                mFreeSlots.add(slot);
+            }
+        }
+    }
+
+    /*
+     * Helper method to get a slot for a new segment, reusing an old one if there are no free slots.
+     */
+    private int acquireSlot() {
+        if (!mFreeSlots.isEmpty())
+            return mFreeSlots.poll();
+
+        int slot = mNextReusedSlot;
+        mNextReusedSlot = (mNextReusedSlot + 1) % mSlotCount;
+
+        // Unpublish old segment before overwriting its bitmap.
+        long key = mBuffer.getLong(HEADER_SIZE + slot * ENTRY_SIZE);
+        writeEntry(slot, 0, 0);
+        if (key != 0)
+            mSlots.remove(key - 1);
+
+        return slot;
+    }
+
+    /*
+     * Helper method to write index entry for given slot.
+     */
+    private void writeEntry(int slot, long key, int crc) {
+        int entryOffset = HEADER_SIZE + slot * ENTRY_SIZE;
+        mBuffer.putLong(entryOffset, key);
+        mBuffer.putInt(entryOffset + ENTRY_CRC_OFFSET, crc);
+        mBuffer.putInt(entryOffset + ENTRY_CHECK_OFFSET, key == 0 ? 0 : entryCheck(key, crc));
+    }
+
+    /*
+     * Helper method to calculate check value of index entry, detecting partially written entries.
+     */
+    private static int entryCheck(long key, int crc) {
+        return (int) (key ^ (key >>> 32)) ^ crc ^ ENTRY_CHECK_SALT;
+    }
+
+    /*
+     * Helper method to calculate checksum of header fields.
+     */
+    private int headerChecksum() {
+        byte[] fields = new byte[HEADER_FIELDS_SIZE];
+        ByteBuffer headerBuffer = mBuffer.duplicate();
+        headerBuffer.position(0);
+        headerBuffer.get(fields);
+        return checksum(fields);
+    }
+
+    /*
+     * Helper method to calculate CRC32 of given bytes.
+     */
+    private int checksum(byte[] bytes) {
+        mCrc.reset();
+        mCrc.update(bytes, 0, bytes.length);
+        return (int) mCrc.getValue();
+    }
+}
@@ -0,0 +1,82 @@
+package com.hotmail.maximglukhov.naturalnumbersgrid;
+
+/**
+ * <p>Compact prime signature of a number: a bit mask of which of the first 63 primes (2 to 307) divide it.
+ * <br>The highest bit ({@link #FLAG_COMPLETE}) is set when all prime factors of the number are in the mask,
+ * which allows answering most "shares a factor" questions with a single AND, falling back to
+ * {@link Utils#gcd(long, long)} only when both numbers have large prime factors.</p>
+ */
+public final class PrimeSignature {
+
+    /**
+     * <p>Flag set in signature when all prime factors of the number are covered by the mask.</p>
+     */
+    public static final long FLAG_COMPLETE = Long.MIN_VALUE;
+
+    /*
+     * Primes covered by signature mask, bit i stands for SMALL_PRIMES[i].
+     */
+    private static final int[] SMALL_PRIMES = {
+            2, 3, 5, 7, 11, 13, 17, 19, 23, 29, 31, 37, 41, 43, 47, 53, 59, 61, 67, 71, 73, 79, 83, 89, 97,
+            101, 103, 107, 109, 113, 127, 131, 137, 139, 149, 151, 157, 163, 167, 173, 179, 181, 191, 193,
+            197, 199, 211, 223, 227, 229, 233, 239, 241, 251, 257, 263, 269, 271, 277, 281, 283, 293, 307
+    };
+
+    /*
+     * Largest prime covered by signature mask.
+     */
+    private static final int MAX_SMALL_PRIME = 307;
+
+    /*
+     * Lookup table from prime to its bit index in mask (-1 for non-primes).
+     */
+    private static final byte[] BIT_INDEX = new byte[MAX_SMALL_PRIME + 1];
+
+    static {
+        for (int i = 0; i < BIT_INDEX.length; i++)
+            BIT_INDEX[i] = -1;
+        for (int i = 0; i < SMALL_PRIMES.length; i++)
+            BIT_INDEX[SMALL_PRIMES[i]] = (byte) i;
+    }
+
+    private PrimeSignature() {}
+
+    /**
+     * <p>Calculates prime signature from distinct prime factors.</p>
+     * @param primeFactors distinct prime factors of the number (empty for 0 and 1).
+     * @param count amount of prime factors to use from array.
+     * @return prime signature.
+     */
+    public static long of(long[] primeFactors, int count) {
+        long signature = FLAG_COMPLETE;
+        for (int i = 0; i < count; i++) {
+            long p = primeFactors[i];
+            if (p <= MAX_SMALL_PRIME)
+                signature |= 1L << BIT_INDEX[(int) p];
+            else
+                signature &= ~FLAG_COMPLETE;
+        }
+
+        return signature;
+    }
+
+    /**
+     * <p>Checks if two numbers share a factor larger than 1 (0 is considered to have no factors).</p>
+     * @param a first number.
+     * @param signatureA prime signature of first number.
+     * @param b second number.
+     * @param signatureB prime signature of second number.
+     * @return true if numbers share a factor larger than 1, false otherwise.
+     */
+    public static boolean hasCommonFactor(long a, long signatureA, long b, long signatureB) {
+        // Common small prime.
+        if ((signatureA & signatureB & ~FLAG_COMPLETE) != 0)
+            return true;
+
+        // If either number has only small primes, any common prime would have shown up in the masks.
+        if ((signatureA & FLAG_COMPLETE) != 0 || (signatureB & FLAG_COMPLETE) != 0)
+            return false;
+
+        return Utils.hasCommonFactor(a, b);
+    }
+}
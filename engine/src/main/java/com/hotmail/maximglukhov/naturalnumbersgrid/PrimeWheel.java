@@ -0,0 +1,93 @@
+package com.hotmail.maximglukhov.naturalnumbersgrid;
+
+import android.support.annotation.IntRange;
+
+/**
+ * <p>Wheel of modulus 210 (2 * 3 * 5 * 7), iterating only numbers coprime to 210 - 48 out of every 210 numbers.
+ * <br>Used as trial division candidates, skipping multiples of the wheel primes without dividing by them.</p>
+ * <p>Not thread safe, every thread should use its own iterator.</p>
+ */
+public class PrimeWheel {
+
+    /**
+     * <p>Wheel modulus, product of {@link #WHEEL_PRIMES}.</p>
+     */
+    public static final int MODULUS = 210;
+
+    /**
+     * <p>Primes wheel is built from. These are never returned as candidates.</p>
+     */
+    public static final int[] WHEEL_PRIMES = {2, 3, 5, 7};
+
+    /*
+     * Residues modulo 210 coprime to 210, in increasing order.
+     */
+    private static final int[] RESIDUES;
+
+    /*
+     * Index of smallest residue not below r, for every r in [0, 210]. Index 48 wraps to next turn.
+     */
+    private static final byte[] NEXT_RESIDUE;
+
+    static {
+        int[] residues = new int[48];
+        int count = 0;
+        for (int r = 1; r < MODULUS; r++) {
+            if (r % 2 != 0 && r % 3 != 0 && r % 5 != 0 && r % 7 != 0)
+                residues[count++] = r;
+        }
+        RESIDUES = residues;
+
+        NEXT_RESIDUE = new byte[MODULUS + 1];
+        int index = 0;
+        for (int r = 0; r <= MODULUS; r++) {
+            while (index < RESIDUES.length && RESIDUES[index] < r)
+                index++;
+            NEXT_RESIDUE[r] = (byte) index;
+        }
+    }
+
+    /*
+     * Start of current wheel turn (multiple of 210) and index of current residue.
+     */
+    private long mBase;
+    private int mIndex;
+
+    /**
+     * <p>Constructor for wheel iterator.</p>
+     * @param start first candidate returned is the smallest number coprime to 210 which is not below start.
+     */
+    public PrimeWheel(@IntRange(from = 0) long start) {
+        mBase = start - start % MODULUS;
+        mIndex = NEXT_RESIDUE[(int) (start - mBase)];
+        if (mIndex == RESIDUES.length) {
+            mBase += MODULUS;
+            mIndex = 0;
+        }
+    }
+
+    /**
+     * <p>Gets next candidate and advances wheel.</p>
+     * @return next number coprime to 210 (1 is returned for a wheel started at 0 or 1).
+     */
+    public long next() {
+        long candidate = mBase + RESIDUES[mIndex];
+        if (++mIndex == RESIDUES.length) {
+            mBase += MODULUS;
+            mIndex = 0;
+        }
+
+        return candidate;
+    }
+
+    /**
+     * <p>Checks if given number is coprime to 210, i.e. not divisible by any of {@link #WHEEL_PRIMES},
+     * with a single division.</p>
+     * @param n number to check.
+     * @return true if coprime to 210, false otherwise.
+     */
+    public static boolean isCoprime(@IntRange(from = 0) long n) {
+        int r = (int) (n % MODULUS);
+        return RESIDUES[NEXT_RESIDUE[r] % RESIDUES.length] == r;
+    }
+}
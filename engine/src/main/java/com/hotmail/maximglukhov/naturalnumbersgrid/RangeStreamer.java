@@ -0,0 +1,222 @@
+package com.hotmail.maximglukhov.naturalnumbersgrid;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * <p>Command line runner streaming primality and prime factorization for a range of numbers, one line per number:
+ * <br>{@code <number>\t<1 if prime, 0 otherwise>\t<factorization, e.g. 2^3*5>}</p>
+ * <p>Range is split into batches which are generated and formatted on every core at once, and written in order.
+ * Meant for bulk precomputation, and for profiling the engine with standard JVM tools.</p>
+ */
+public class RangeStreamer {
+
+    /*
+     * Defines default amount of numbers in every batch.
+     */
+    private static final int DEFAULT_BATCH_SIZE = 65536;
+
+    /*
+     * Defines amount of batches in flight per thread, keeps every thread busy while output is written.
+     */
+    private static final int BATCHES_PER_THREAD = 2;
+
+    private static final String USAGE =
+            "Usage: RangeStreamer <start> <count> [options]\n"
+            + "  -o <file>     write to file instead of stdout\n"
+            + "  -t <threads>  amount of threads (default: available processors)\n"
+            + "  -b <size>     amount of numbers per batch (default: " + DEFAULT_BATCH_SIZE + ")\n"
+            + "  -c <file>     persistent primality cache file\n";
+
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+
+    /*
+     * Range to stream.
+     */
+    private final long mStart;
+    private final long mCount;
+
+    /*
+     * Amount of threads and numbers per batch.
+     */
+    private final int mThreadCount;
+    private final int mBatchSize;
+
+    private final NumberCellGenerator mGenerator;
+
+    /**
+     * <p>Constructor for range streamer.</p>
+     * @param start first number.
+     * @param count amount of numbers (stops at Long.MAX_VALUE).
+     * @param threadCount amount of threads generating batches.
+     * @param batchSize amount of numbers per batch.
+     */
+    public RangeStreamer(long start, long count, int threadCount, int batchSize) {
+        mStart          = Math.max(0, start);
+        // Range stops at Long.MAX_VALUE, computed without overflowing for start 0.
+        mCount          = Math.min(Math.max(0, count) - 1, Long.MAX_VALUE - mStart) + 1;
+        mThreadCount    = Math.max(1, threadCount);
+        mBatchSize      = Math.max(1, batchSize);
+
+        // Every batch is generated on a single thread, batches run in parallel.
+        mGenerator = new NumberCellGenerator(1, Executors.defaultThreadFactory());
+        mGenerator.setParallelCutoff(Integer.MAX_VALUE);
+    }
+
+    /**
+     * <p>Sets persistent primality cache.</p>
+     * @param cache primality cache, or null.
+     */
+    public void setPrimeCache(PrimeBitmapCache cache) {
+        mGenerator.setPrimeCache(cache);
+    }
+
+    /**
+     * <p>Streams entire range to given output, in increasing order.</p>
+     * @param out output to write to. Not closed.
+     * @throws IOException if writing fails.
+     */
+    public void stream(OutputStream out) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(mThreadCount);
+        ArrayDeque<Future<byte[]>> batches = new ArrayDeque<>();
+        long submitted = 0;
+
+        try {
+            while (submitted < mCount || !batches.isEmpty()) {
+                // Keep every thread busy with batches ahead of the one being written.
+                while (submitted < mCount && batches.size() < mThreadCount * BATCHES_PER_THREAD) {
+                    final long low = mStart + submitted;
+                    final int count = (int) Math.min(mBatchSize, mCount - submitted);
+                    batches.addLast(executor.submit(new Callable<byte[]>() {
+                        @Override
+                        public byte[] call() throws Exception {
+                            return format(mGenerator.generate(low, count));
+                        }
+                    }));
+                    submitted += count;
+                }
+
+                out.write(batches.removeFirst().get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while streaming", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed generating batch", e.getCause());
+        } finally {
+            executor.shutdownNow();
+            mGenerator.release();
+        }
+
+        out.flush();
+    }
+
+    /**
+     * <p>Formats a block, one line per number.</p>
+     * @param block block to format.
+     * @return formatted lines.
+     */
+    public static byte[] format(NumberCellBlock block) {
+        StringBuilder builder = new StringBuilder(block.getCount() * 24);
+        for (int i = 0; i < block.getCount(); i++) {
+            builder.append(block.getValue(i)).append('\t').append(block.isPrime(i) ? '1' : '0').append('\t');
+
+            int factorCount = block.getPrimeFactorCount(i);
+            for (int j = 0; j < factorCount; j++) {
+                if (j > 0)
+                    builder.append('*');
+                builder.append(block.getPrimeFactor(i, j));
+
+                int exponent = block.getExponent(i, j);
+                if (exponent > 1)
+                    builder.append('^').append(exponent);
+            }
+
+            builder.append('\n');
+        }
+
+        return builder.toString().getBytes(ASCII);
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.print(USAGE);
+            System.exit(2);
+        }
+
+        File outputFile = null;
+        File cacheFile = null;
+        int threadCount = Runtime.getRuntime().availableProcessors();
+        int batchSize = DEFAULT_BATCH_SIZE;
+        long start;
+        long count;
+
+        try {
+            start = Long.parseLong(args[0]);
+            count = Long.parseLong(args[1]);
+            for (int i = 2; i < args.length; i += 2) {
+                if (i + 1 >= args.length)
+                    throw new IllegalArgumentException("Missing value for " + args[i]);
+
+                String value = args[i + 1];
+                switch (args[i]) {
+                    case "-o":
+                        outputFile = new File(value);
+                        break;
+                    case "-t":
+                        threadCount = Integer.parseInt(value);
+                        break;
+                    case "-b":
+                        batchSize = Integer.parseInt(value);
+                        break;
+                    case "-c":
+                        cacheFile = new File(value);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        RangeStreamer streamer = new RangeStreamer(start, count, threadCount, batchSize);
+        PrimeBitmapCache cache = null;
+        OutputStream out = null;
+        try {
+            if (cacheFile != null) {
+                cache = PrimeBitmapCache.open(cacheFile, PrimeBitmapCache.DEFAULT_SLOT_COUNT);
+                streamer.setPrimeCache(cache);
+            }
+
+            out = new BufferedOutputStream(
+                    outputFile != null ? new FileOutputStream(outputFile) : System.out, 1 << 16);
+            streamer.stream(out);
+        } catch (IOException e) {
+            System.err.println("Failed streaming range: " + e.getMessage());
+            System.exit(1);
+        } finally {
+            try {
+                if (out != null)
+                    out.close();
+                if (cache != null)
+                    cache.close();
+            } catch (IOException e) {
+                System.err.println("Failed closing: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.hotmail.maximglukhov.naturalnumbersgrid;
+
+import android.support.annotation.IntRange;
+
+/**
+ * <p>Segmented Sieve of Eratosthenes marking primes for a whole window of natural numbers in one pass.
+ * <br>Keeps a table of base primes (all primes up to the square root of the highest sieved number), which is
+ * reused between windows and only grows when a window reaches higher than any window before it.</p>
+ * <p>Base primes table is capped at {@link #MAX_BASE_LIMIT}. Windows reaching above its square are sieved
+ * with capped table first, and numbers surviving the sieve are verified with {@link Utils#isPrime(long)}.</p>
+ * <p>A single sieve may be shared by several threads sieving different windows at the same time.</p>
+ */
+public class SegmentedSieve {
+
+    /*
+     * Initial limit for base primes table.
+     */
+    private static final int INITIAL_BASE_LIMIT = 1024;
+
+    /**
+     * <p>Maximum limit for base primes table. Sieving is exact for windows up to its square.</p>
+     */
+    public static final int MAX_BASE_LIMIT = 1 << 21;
+
+    /*
+     * Current base primes table. Replaced as a whole when grown, so readers always see a consistent table.
+     */
+    private volatile BasePrimes mBasePrimes;
+
+    /**
+     * <p>Constructor for segmented sieve.</p>
+     */
+    public SegmentedSieve() {
+        mBasePrimes = createBasePrimes(INITIAL_BASE_LIMIT);
+    }
+
+    /**
+     * <p>Marks primality for every number in window [low, low + length).</p>
+     * @param low first number in window.
+     * @param length amount of numbers in window.
+     * @param primes array to write results to, primes[i] is set to true if (low + i) is a prime.
+     *               Must hold at least length elements.
+     */
+    public void sieve(@IntRange(from = 0) long low, @IntRange(from = 0) int length,
+                      boolean[] primes) {
+        if (length <= 0)
+            return;
+
+        long high = low + length - 1;
+
+        // Make sure we have all base primes needed to cross out composites in window.
+        BasePrimes basePrimes = ensureBasePrimes(Utils.sqrt(high));
+
+        // Start by assuming all numbers are primes.
+        for (int i = 0; i < length; i++)
+            primes[i] = true;
+
+        // 0,1 are not primes.
+        for (long n = low; n < 2 && n <= high; n++)
+            primes[(int) (n - low)] = false;
+
+        for (int i = 0; i < basePrimes.count; i++) {
+            long p = basePrimes.primes[i];
+            long square = p * p;
+            if (square > high)
+                break;
+
+            // Find index of first multiple of p in window, skipping p itself (and anything below p^2, which
+            // is already crossed out by smaller primes). Work with indices to avoid overflow near Long.MAX_VALUE.
+            long index = (square >= low) ? square - low : (p - low % p) % p;
+            for (; index < length; index += p)
+                primes[(int) index] = false;
+        }
+
+        // Numbers above square of base limit may survive the sieve without being primes, verify them.
+        long exactLimit = (long) basePrimes.limit * basePrimes.limit;
+        if (high > exactLimit) {
+            int first = (int) Math.max(0, exactLimit + 1 - low);
+            for (int i = first; i < length; i++) {
+                if (primes[i])
+                    primes[i] = Utils.isPrime(low + i);
+            }
+        }
+    }
+
+    /**
+     * <p>Gets the limit up to which base primes are currently known.</p>
+     * @return base primes limit.
+     */
+    public int getBaseLimit() {
+        return mBasePrimes.limit;
+    }
+
+    /*
+     * Helper method to ensure base primes table covers given limit. Returns table to use.
+     */
+    private BasePrimes ensureBasePrimes(long limit) {
+        BasePrimes basePrimes = mBasePrimes;
+        if (limit <= basePrimes.limit || basePrimes.limit == MAX_BASE_LIMIT)
+            return basePrimes;
+
+        synchronized (this) {
+            // Another thread might have grown the table while waiting.
+            basePrimes = mBasePrimes;
+            if (limit <= basePrimes.limit)
+                return basePrimes;
+
+            // Grow geometrically to avoid re-sieving base primes for every window while scrolling.
+            long newLimit = Math.max(limit, (long) basePrimes.limit * 2);
+            basePrimes = createBasePrimes((int) Math.min(newLimit, MAX_BASE_LIMIT));
+            mBasePrimes = basePrimes;
+            return basePrimes;
+        }
+    }
+
+    /*
+     * Helper method to build base primes table with a simple sieve up to given limit.
+     */
+    private static BasePrimes createBasePrimes(int limit) {
+        boolean[] composite = new boolean[limit + 1];
+        int count = 0;
+        int[] primes = new int[Math.max(16, estimatePrimeCount(limit))];
+
+        for (int n = 2; n <= limit; n++) {
+            if (composite[n])
+                continue;
+
+            if (count == primes.length) {
+                int[] grown = new int[primes.length * 2];
+                System.arraycopy(primes, 0, grown, 0, count);
+                primes = grown;
+            }
+            primes[count++] = n;
+
+            for (long multiple = (long) n * n; multiple <= limit; multiple += n)
+                composite[(int) multiple] = true;
+        }
+
+        return new BasePrimes(primes, count, limit);
+    }
+
+    /*
+     * Helper method to estimate an upper bound for amount of primes up to given limit (Rosser's theorem).
+     */
+    private static int estimatePrimeCount(int limit) {
+        if (limit < 17)
+            return 6;
+
+        return (int) (1.26 * limit / Math.log(limit)) + 1;
+    }
+
+    /*
+     * Immutable table of base primes, sorted in increasing order. Only the first count entries are valid.
+     * All primes up to (and including) limit are stored.
+     */
+    private static class BasePrimes {
+        final int[] primes;
+        final int count;
+        final int limit;
+
+        BasePrimes(int[] primes, int count, int limit) {
+            this.primes = primes;
+            this.count  = count;
+            this.limit  = limit;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.hotmail.maximglukhov.naturalnumbersgrid;
+
+import android.support.annotation.IntRange;
+
+/**
+ * <p>Shared table of small primes for trial division, grown lazily up to the highest limit requested so far.</p>
+ * <p>Table is extended with {@link PrimeWheel} candidates, each tested against primes already in table.
+ * Tables are immutable and replaced as a whole when grown, so any amount of threads may read and extend the
+ * shared table at the same time.</p>
+ */
+public class SmallPrimeTable {
+
+    /*
+     * Initial limit for shared table.
+     */
+    private static final int INITIAL_LIMIT = 256;
+
+    /**
+     * <p>Maximum limit for table.</p>
+     */
+    public static final int MAX_LIMIT = 1 << 16;
+
+    /*
+     * Current shared table.
+     */
+    private static volatile SmallPrimeTable sTable = grow(null, INITIAL_LIMIT);
+
+    /*
+     * All primes up to (and including) limit, in increasing order.
+     */
+    private final int[] mPrimes;
+    private final int mLimit;
+
+    private SmallPrimeTable(int[] primes, int limit) {
+        mPrimes = primes;
+        mLimit  = limit;
+    }
+
+    /**
+     * <p>Gets shared table covering at least given limit (up to {@link #MAX_LIMIT}), growing it if required.</p>
+     * @param limit highest prime required.
+     * @return table covering limit.
+     */
+    public static SmallPrimeTable get(@IntRange(from = 0, to = MAX_LIMIT) int limit) {
+        SmallPrimeTable table = sTable;
+        if (limit <= table.mLimit || table.mLimit == MAX_LIMIT)
+            return table;
+
+        synchronized (SmallPrimeTable.class) {
+            // Another thread might have grown the table while waiting.
+            table = sTable;
+            if (limit <= table.mLimit)
+                return table;
+
+            // Grow geometrically, requests usually creep up slowly.
+            table = grow(table, (int) Math.min(MAX_LIMIT, Math.max(limit, (long) table.mLimit * 2)));
+            sTable = table;
+            return table;
+        }
+    }
+
+    /**
+     * <p>Gets prime at given index.</p>
+     * @param index index of prime (0 for 2).
+     * @return prime at index.
+     */
+    public int getPrime(int index) {
+        return mPrimes[index];
+    }
+
+    /**
+     * <p>Gets amount of primes in table.</p>
+     * @return amount of primes.
+     */
+    public int getCount() {
+        return mPrimes.length;
+    }
+
+    /**
+     * <p>Gets limit up to which all primes are in table.</p>
+     * @return table limit.
+     */
+    public int getLimit() {
+        return mLimit;
+    }
+
+    /*
+     * Helper method to create table extending given table (may be null) up to given limit.
+     */
+    private static SmallPrimeTable grow(SmallPrimeTable table, int limit) {
+        int[] primes = new int[estimatePrimeCount(limit)];
+        int count;
+        long start;
+        if (table == null) {
+            count = PrimeWheel.WHEEL_PRIMES.length;
+            System.arraycopy(PrimeWheel.WHEEL_PRIMES, 0, primes, 0, count);
+            // 1 is the first wheel candidate, but not a prime.
+            start = 2;
+        } else {
+            count = table.mPrimes.length;
+            System.arraycopy(table.mPrimes, 0, primes, 0, count);
+            start = table.mLimit + 1;
+        }
+
+        // Only candidates coprime to 210 are tested, and only against primes which aren't wheel primes.
+        PrimeWheel wheel = new PrimeWheel(start);
+        for (long n = wheel.next(); n <= limit; n = wheel.next()) {
+            boolean isPrime = true;
+            for (int i = PrimeWheel.WHEEL_PRIMES.length; i < count; i++) {
+                int p = primes[i];
+                if (p * p > n)
+                    break;
+                if (n % p == 0) {
+                    isPrime = false;
+                    break;
+                }
+            }
+
+            if (isPrime)
+                primes[count++] = (int) n;
+        }
+
+        int[] trimmed = new int[count];
+        System.arraycopy(primes, 0, trimmed, 0, count);
+        return new SmallPrimeTable(trimmed, limit);
+    }
+
+    /*
+     * Helper method to estimate an upper bound for amount of primes up to given limit (Rosser's theorem).
+     */
+    private static int estimatePrimeCount(int limit) {
+        if (limit < 17)
+            return 6;
+
+        return (int) (1.26 * limit / Math.log(limit)) + 1;
+    }
+}
@@ -0,0 +1,93 @@
+package com.hotmail.maximglukhov.naturalnumbersgrid;
+
+import android.support.annotation.IntRange;
+
+/**
+ * <p>Table holding smallest prime factor for every number up to a fixed bound, built with a linear sieve.
+ * <br>Allows factorizing any number within bound in O(log n) by repeatedly dividing by its smallest prime
+ * factor.</p>
+ */
+public class SmallestPrimeFactorTable {
+
+    /*
+     * Minimum table bound.
+     */
+    public static final int MIN_BOUND = 2;
+
+    /*
+     * Smallest prime factor for every composite number up to bound.
+     * Primes (and 0,1) are stored as 0 - that way every entry fits in a char, as a composite's smallest prime
+     * factor can't be larger than its square root.
+     */
+    private final char[] mSmallestFactors;
+
+    /*
+     * Highest number covered by the table.
+     */
+    private final int mBound;
+
+    /**
+     * <p>Constructor for smallest prime factor table.</p>
+     * @param bound highest number to cover.
+     */
+    public SmallestPrimeFactorTable(@IntRange(from = MIN_BOUND) int bound) {
+        if (bound < MIN_BOUND)
+            bound = MIN_BOUND;
+
+        mBound = bound;
+        mSmallestFactors = new char[bound + 1];
+
+        // Linear sieve: every composite is crossed out exactly once, by its smallest prime factor.
+        int[] primes = new int[16];
+        int primeCount = 0;
+        for (int i = 2; i <= bound; i++) {
+            int smallest = mSmallestFactors[i];
+            if (smallest == 0) {
+                // Not crossed out, so it's a prime.
+                smallest = i;
+                if (primeCount == primes.length) {
+                    int[] grown = new int[primes.length * 2];
+                    System.arraycopy(primes, 0, grown, 0, primeCount);
+                    primes = grown;
+                }
+                primes[primeCount++] = i;
+            }
+
+            for (int j = 0; j < primeCount; j++) {
+                int p = primes[j];
+                long multiple = (long) p * i;
+                if (p > smallest || multiple > bound)
+                    break;
+
+                mSmallestFactors[(int) multiple] = (char) p;
+            }
+        }
+    }
+
+    /**
+     * <p>Gets the highest number covered by this table.</p>
+     * @return table bound.
+     */
+    public int getBound() {
+        return mBound;
+    }
+
+    /**
+     * <p>Gets smallest prime factor for given number.</p>
+     * @param n number within table bound (at least 2).
+     * @return smallest prime factor, or n itself if n is a prime.
+     */
+    public int smallestPrimeFactor(@IntRange(from = 2) int n) {
+        int smallest = mSmallestFactors[n];
+        return smallest == 0 ? n : smallest;
+    }
+
+    /**
+     * <p>Checks if given number is a prime.</p>
+     * @param n number within table bound.
+     * @return true if prime, false otherwise.
+     */
+    public boolean isPrime(@IntRange(from = 0) int n) {
+        return n >= 2 && mSmallestFactors[n] == 0;
+    }
+}
@@ -0,0 +1,246 @@
+package com.hotmail.maximglukhov.naturalnumbersgrid;
+
+import java.util.HashSet;
+import java.util.Set;
+
+public class Utils {
+
+    /*
+     * Limit for small primes in quick divisibility pre-filter.
+     */
+    private static final int SMALL_PRIMES_LIMIT = 47;
+
+    /*
+     * Every composite below this bound has a prime factor up to SMALL_PRIMES_LIMIT (53 is the next prime).
+     */
+    private static final long SMALL_PRIMES_BOUND = 53 * 53;
+
+    /*
+     * Miller-Rabin witnesses which are deterministic for every number below 2^64.
+     */
+    private static final long[] MILLER_RABIN_WITNESSES = {
+            2, 325, 9375, 28178, 450775, 9780504, 1795265022
+    };
+
+    /**
+     * <p>Checks if a given number is prime.
+     * <br>Rules out multiples of 2, 3, 5, 7 with {@link PrimeWheel} and divides by small primes first, and uses
+     * deterministic Miller-Rabin test (O(log^3 n)) for the rest.
+     * Works for the entire range of long.</p>
+     *
+     * @param n Number to check.
+     * @return True if prime, false otherwise.
+     */
+    public static boolean isPrime(long n) {
+        // 0,1 are not primes.
+        if (n < 2)
+            return false;
+
+        // A single division rules out multiples of 2, 3, 5, 7 (other than the primes themselves).
+        if (!PrimeWheel.isCoprime(n))
+            return n == 2 || n == 3 || n == 5 || n == 7;
+
+        // Any number divisible by a small prime (other than the prime itself) is not a prime.
+        SmallPrimeTable smallPrimes = SmallPrimeTable.get(SMALL_PRIMES_LIMIT);
+        for (int i = PrimeWheel.WHEEL_PRIMES.length; i < smallPrimes.getCount(); i++) {
+            int p = smallPrimes.getPrime(i);
+            if (p > SMALL_PRIMES_LIMIT)
+                break;
+            if (n == p)
+                return true;
+            if ((n % p) == 0)
+                return false;
+        }
+
+        if (n < SMALL_PRIMES_BOUND)
+            return true;
+
+        return millerRabin(n);
+    }
+
+    /*
+     * Helper method for deterministic Miller-Rabin test. Expects an odd number larger than 2.
+     */
+    private static boolean millerRabin(long n) {
+        MontgomeryModulus modulus = new MontgomeryModulus(n);
+        long one = modulus.one();
+        long minusOne = n - one;
+
+        // Write n - 1 as d * 2^s with d odd.
+        int s = Long.numberOfTrailingZeros(n - 1);
+        long d = (n - 1) >>> s;
+
+        for (long witness : MILLER_RABIN_WITNESSES) {
+            long a = witness % n;
+            if (a == 0)
+                continue;
+
+            long x = modulus.pow(modulus.toMontgomery(a), d);
+            if (x == one || x == minusOne)
+                continue;
+
+            boolean isWitness = true;
+            for (int r = 1; r < s; r++) {
+                x = modulus.multiply(x, x);
+                if (x == minusOne) {
+                    isWitness = false;
+                    break;
+                }
+            }
+
+            // Witness proves n is composite.
+            if (isWitness)
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * <p>Calculates integer square root (floor) of given number.</p>
+     * @param n number to calculate square root for.
+     * @return largest number r such that r * r <= n (0 for negative numbers).
+     */
+    public static long sqrt(long n) {
+        if (n < 1)
+            return 0;
+
+        // Estimate with floating point, then fix rounding errors for large numbers.
+        long r = (long) Math.sqrt(n);
+        while (r > 0 && (r > 3037000499L || r * r > n))
+            r--;
+        while (r < 3037000499L && (r + 1) * (r + 1) <= n)
+            r++;
+
+        return r;
+    }
+
+    /**
+     * <p>Calculates greatest common divisor of two numbers using binary GCD (shifts and subtractions only).</p>
+     * @param a first number (non-negative).
+     * @param b second number (non-negative).
+     * @return greatest common divisor (gcd(0, b) is b).
+     */
+    public static long gcd(long a, long b) {
+        if (a == 0)
+            return b;
+        if (b == 0)
+            return a;
+
+        // Common power of 2.
+        int shift = Long.numberOfTrailingZeros(a | b);
+        a >>= Long.numberOfTrailingZeros(a);
+
+        while (b != 0) {
+            b >>= Long.numberOfTrailingZeros(b);
+            // Keep a <= b, both odd.
+            if (a > b) {
+                long tmp = b;
+                b = a;
+                a = tmp;
+            }
+            b -= a;
+        }
+
+        return a << shift;
+    }
+
+    /**
+     * <p>Reverses array's order of items.</p>
+     * @param array array to reverse.
+     */
+    public static void reverseArray(Object[] array) {
+        int halfLength = array.length / 2;
+        // Iterate only to half length to achieve actual reverse using swap.
+        for (int i = 0; i < halfLength; i++) {
+            swap(array, i, array.length - i - 1);
+        }
+
+    }
+
+    /**
+     * <p>Swaps two values in given array by their indices.</p>
+     * @param array array to swap values for.
+     * @param first first index.
+     * @param second second index.
+     */
+    public static void swap(Object[] array, int first, int second) {
+        Object tmp = array[first];
+        array[first] = array[second];
+        array[second] = tmp;
+    }
+
+    /**
+     * <p>Builds string for given array.</p>
+     * @param arr array to build string for.
+     * @return string containing all if array's elements.
+     */
+    public static String getStringForArray(Object[] arr) {
+        StringBuilder stringBuilder = new StringBuilder('[');
+        // Iterate through all elements.
+        for (Object element : arr) {
+            // Append only non-null elements.
+            if (arr != null) {
+                stringBuilder.append(element);
+                stringBuilder.append(',');
+            }
+        }
+        // Remove last comma.
+        stringBuilder.deleteCharAt(stringBuilder.length() - 1);
+
+        stringBuilder.append(']');
+
+        return stringBuilder.toString();
+    }
+
+    /**
+     * <p>Factorizes given number and returns all factors (excluding 1 and n).
+     * <br>Uses {@link Factorizer} prime factorization, so only actual divisors are ever tried.</p>
+     * @param n number to factor.
+     * @return set containing all factors of given number.
+     */
+    public static Set<Long> factorize(long n) {
+        if (n < 3)
+            return new HashSet<>();
+
+        return Factorizer.getDivisors(n);
+    }
+
+    /**
+     * <p>Checks if two numbers share at least one factor larger than 1, using {@link #gcd(long, long)}.
+     * <br>0 is considered to have no factors (matching {@link #factorize(long)}).</p>
+     * @param a first number.
+     * @param b second number.
+     * @return true if at least one common factor is found. Returns false if no common factors at all.
+     */
+    public static boolean hasCommonFactor(long a, long b) {
+        if (a <= 0 || b <= 0)
+            return false;
+
+        return gcd(a, b) > 1;
+    }
+
+    /**
+     * <p>Compares given sets of factors. Checks if at least one common factor is found among the two sets.
+     * <br>Returns true if at least one common factor is found. Returns false if no common factors at all.</p>
+     * @param factors1 first set.
+     * @param factors2 second set.
+     * @return true if at least one common factor is found. Returns false if no common factors at all.
+     */
+    public static boolean hasCommonFactor(Set<Long> factors1, Set<Long> factors2) {
+        if (factors1 == null || factors2 == null)
+            return false;
+
+        for (long factor : factors1) {
+            if (factors2.contains(factor))
+                return true;
+        }
+
+        for (long factor : factors2) {
+            if (factors1.contains(factor))
+                return true;
+        }
+
+        return false;
+    }
+}
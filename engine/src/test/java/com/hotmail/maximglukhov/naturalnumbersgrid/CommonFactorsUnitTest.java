@@ -64,4 +64,56 @@ public class CommonFactorsUnitTest {
 
         assertEquals(false, Utils.hasCommonFactor(factors1, factors2));
     }
+
+    @Test
+    public void gcd_isCorrect() throws Exception {
+        assertEquals(12, Utils.gcd(36, 48));
+        assertEquals(1, Utils.gcd(17, 31));
+        assertEquals(7, Utils.gcd(0, 7));
+        assertEquals(2147483647L, Utils.gcd(2147483647L * 2147483629L, 2147483647L * 3));
+    }
+
+    @Test
+    public void commonFactorsCells_isCorrect() throws Exception {
+        // Compare prime signature check against set intersection (a number is a factor of itself here).
+        NumberCell[] cells = new NumberCell[400];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = new NumberCell(i);
+            cells[i].updatePrimality();
+            cells[i].factorize();
+        }
+
+        for (NumberCell selected : cells) {
+            Set<Long> selectedFactors = withValue(selected);
+            for (NumberCell cell : cells) {
+                assertEquals(selected.getValue() + " and " + cell.getValue() + " common factor check failed.",
+                        Utils.hasCommonFactor(selectedFactors, withValue(cell)),
+                        selected.hasCommonFactor(cell));
+            }
+        }
+    }
+
+    @Test
+    public void commonFactorsLargePrimes_isCorrect() throws Exception {
+        // Both numbers only share a prime larger than signature mask.
+        NumberCell cell1 = new NumberCell(1009L * 1013L);
+        NumberCell cell2 = new NumberCell(1013L * 2);
+        NumberCell cell3 = new NumberCell(1019L * 1021L);
+        cell1.factorize();
+        cell2.factorize();
+        cell3.factorize();
+
+        assertEquals(true, cell1.hasCommonFactor(cell2));
+        assertEquals(false, cell1.hasCommonFactor(cell3));
+    }
+
+    /*
+     * Helper method to get all factors of a cell, including the value itself (excluding 0 and 1).
+     */
+    private static Set<Long> withValue(NumberCell cell) {
+        Set<Long> factors = new HashSet<>(cell.getFactors());
+        if (cell.getValue() > 1)
+            factors.add(cell.getValue());
+        return factors;
+    }
 }
@@ -2,9 +2,11 @@ package com.hotmail.maximglukhov.naturalnumbersgrid;
 
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 public class FactorsUnitTest {
@@ -84,6 +86,80 @@ public class FactorsUnitTest {
         assertEquals(true, setEquals(factors, correctFactors));
     }
 
+    @Test
+    public void factorsAboveTableBound_isCorrect() throws Exception {
+        // 2^3 * 3 * 1048583 (a prime above default table bound).
+        Set<Long> factors = Utils.factorize(25165992L);
+        Set<Long> correctFactors = new HashSet<>();
+        correctFactors.add(2L);
+        correctFactors.add(3L);
+        correctFactors.add(4L);
+        correctFactors.add(6L);
+        correctFactors.add(8L);
+        correctFactors.add(12L);
+        correctFactors.add(24L);
+        correctFactors.add(1048583L);
+        correctFactors.add(2097166L);
+        correctFactors.add(3145749L);
+        correctFactors.add(4194332L);
+        correctFactors.add(6291498L);
+        correctFactors.add(8388664L);
+        correctFactors.add(12582996L);
+
+        assertEquals(true, setEquals(factors, correctFactors));
+    }
+
+    @Test
+    public void primeFactorization_isCorrect() throws Exception {
+        long[] primes = new long[Factorizer.MAX_PRIME_FACTORS];
+        int[] exponents = new int[Factorizer.MAX_PRIME_FACTORS];
+
+        // 720720 = 2^4 * 3^2 * 5 * 7 * 11 * 13
+        int count = Factorizer.factorize(720720, primes, exponents);
+
+        assertEquals(6, count);
+        assertArrayEquals(new long[] { 2, 3, 5, 7, 11, 13 }, Arrays.copyOf(primes, count));
+        assertEquals(4, exponents[0]);
+        assertEquals(2, exponents[1]);
+    }
+
+    @Test
+    public void factorsLargeSemiprime_isCorrect() throws Exception {
+        // Product of two 31-bit primes, far beyond reach of trial division.
+        Set<Long> factors = Utils.factorize(2147483647L * 2147483629L);
+        Set<Long> correctFactors = new HashSet<>();
+        correctFactors.add(2147483629L);
+        correctFactors.add(2147483647L);
+
+        assertEquals(true, setEquals(factors, correctFactors));
+    }
+
+    @Test
+    public void primeFactorizationMaxValue_isCorrect() throws Exception {
+        long[] primes = new long[Factorizer.MAX_PRIME_FACTORS];
+        int[] exponents = new int[Factorizer.MAX_PRIME_FACTORS];
+
+        // Long.MAX_VALUE = 7^2 * 73 * 127 * 337 * 92737 * 649657
+        int count = Factorizer.factorize(Long.MAX_VALUE, primes, exponents);
+
+        assertEquals(6, count);
+        assertArrayEquals(new long[] { 7, 73, 127, 337, 92737, 649657 }, Arrays.copyOf(primes, count));
+        assertEquals(2, exponents[0]);
+    }
+
+    @Test
+    public void cellFactors_isCorrect() throws Exception {
+        for (long n = 0; n < 2000; n++) {
+            NumberCell cell = new NumberCell(n);
+            cell.updatePrimality();
+            cell.factorize();
+
+            Set<Long> correctFactors = Utils.factorize(n);
+            assertEquals("Factors of " + n + " are wrong.", true, setEquals(cell.getFactors(), correctFactors));
+            assertEquals("Factor count of " + n + " is wrong.", correctFactors.size(), cell.getFactorCount());
+        }
+    }
+
     private boolean setEquals(Set set1, Set set2) {
         if (set1.size() != set2.size())
             return false;
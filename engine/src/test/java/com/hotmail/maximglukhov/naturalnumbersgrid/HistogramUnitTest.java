@@ -0,0 +1,64 @@
+package com.hotmail.maximglukhov.naturalnumbersgrid;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HistogramUnitTest {
+
+    @Test
+    public void percentiles_isCorrect() throws Exception {
+        // Small values have exact buckets.
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 7; i++)
+            histogram.record(i);
+
+        assertEquals(7, histogram.getCount());
+        assertEquals(4, histogram.getMean());
+        assertEquals(7, histogram.getMax());
+        assertEquals(4, histogram.getPercentile(50));
+        assertEquals(1, histogram.getPercentile(0));
+        assertEquals(7, histogram.getPercentile(100));
+
+        // Larger values are within 1/8 of exact percentile.
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(50));
+
+        Random random = new Random(20);
+        long[] values = new long[10000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) (Math.exp(random.nextDouble() * 30));
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        double[] percentiles = {1, 25, 50, 90, 99, 99.9};
+        for (double percentile : percentiles) {
+            long exact = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+            long estimate = histogram.getPercentile(percentile);
+            assertTrue("p" + percentile + " estimate " + estimate + " below " + exact + ".", estimate >= exact);
+            assertTrue("p" + percentile + " estimate " + estimate + " far above " + exact + ".",
+                    estimate <= exact + exact / 8);
+        }
+
+        assertEquals(values[values.length - 1], histogram.getMax());
+        assertEquals(values[values.length - 1], histogram.getPercentile(100));
+    }
+
+    @Test
+    public void extremes_isCorrect() throws Exception {
+        Histogram histogram = new Histogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(2, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(50));
+        assertEquals(Long.MAX_VALUE, histogram.getPercentile(100));
+        assertEquals(Long.MAX_VALUE, histogram.getMax());
+    }
+}
@@ -0,0 +1,118 @@
+package com.hotmail.maximglukhov.naturalnumbersgrid;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class NumberCellBlockUnitTest {
+
+    /*
+     * Creates a fully generated block for given window.
+     */
+    private static NumberCellBlock createBlock(long start, int count) {
+        boolean[] primes = new boolean[count];
+        new SegmentedSieve().sieve(start, count, primes);
+
+        NumberCellBlock block = new NumberCellBlock(start, count);
+        block.setPrimality(primes);
+        block.factorize();
+        return block;
+    }
+
+    /*
+     * Checks that a cell materialized from a block matches a standalone cell.
+     */
+    private static void assertCell(NumberCell cell) {
+        NumberCell expected = new NumberCell(cell.getValue());
+        expected.updatePrimality();
+        expected.factorize();
+
+        assertEquals("Number " + cell.getValue() + " has wrong primality.", expected.isPrime(), cell.isPrime());
+        assertArrayEquals("Number " + cell.getValue() + " has wrong prime factors.",
+                expected.getPrimeFactors(), cell.getPrimeFactors());
+        assertEquals(expected.getFactorCount(), cell.getFactorCount());
+        assertEquals(expected.getPrimeSignature(), cell.getPrimeSignature());
+    }
+
+    @Test
+    public void blockCells_isCorrect() throws Exception {
+        NumberCellBlock block = createBlock(0, 1000);
+
+        assertEquals(999, block.getEnd());
+        for (int i = 0; i < block.getCount(); i++)
+            assertCell(block.getCell(i));
+    }
+
+    @Test
+    public void blockSlice_isCorrect() throws Exception {
+        NumberCellBlock block = createBlock(5000, 300).slice(70, 200);
+
+        assertEquals(5070, block.getStart());
+        assertEquals(130, block.getCount());
+        for (int i = 0; i < block.getCount(); i++)
+            assertCell(block.getCell(i));
+    }
+
+    @Test
+    public void blockCompact_isCorrect() throws Exception {
+        NumberCellBlock block = createBlock(5000, 300);
+
+        // Large slices keep sharing columns, small ones are copied.
+        NumberCellBlock large = block.slice(0, 200);
+        assertSame(large, large.compact());
+        NumberCellBlock small = block.slice(70, 100).compact();
+        // Copy holds its own columns only, so it's compact already.
+        assertSame(small, small.compact());
+
+        assertEquals(5070, small.getStart());
+        assertEquals(30, small.getCount());
+        for (int i = 0; i < small.getCount(); i++)
+            assertCell(small.getCell(i));
+
+        NumberCellBlock pending = NumberCellBlock.pending(0, 300).slice(10, 20);
+        assertSame(pending, pending.compact());
+    }
+
+    @Test
+    public void blockConcat_isCorrect() throws Exception {
+        // Join segments the way parallel generation does, including a slice.
+        NumberCellBlock block = NumberCellBlock.concat(new NumberCellBlock[] {
+                createBlock(100, 64),
+                createBlock(164, 100),
+                createBlock(200, 300).slice(64, 300)
+        });
+
+        assertEquals(100, block.getStart());
+        assertEquals(400, block.getCount());
+        for (int i = 0; i < block.getCount(); i++)
+            assertCell(block.getCell(i));
+    }
+
+    @Test
+    public void blockSerialization_isCorrect() throws Exception {
+        // Slice of a block far from 0, and a block with 0 and 1 (no prime factors).
+        NumberCellBlock[] blocks = {
+                createBlock(1000000000000L - 100, 500).slice(37, 437),
+                createBlock(0, 100)
+        };
+
+        for (NumberCellBlock expected : blocks) {
+            ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
+            expected.writeTo(new DataOutputStream(byteStream));
+            NumberCellBlock block = NumberCellBlock.readFrom(
+                    new DataInputStream(new ByteArrayInputStream(byteStream.toByteArray())));
+
+            assertEquals(expected.getStart(), block.getStart());
+            assertEquals(expected.getCount(), block.getCount());
+            for (int i = 0; i < block.getCount(); i++)
+                assertCell(block.getCell(i));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.hotmail.maximglukhov.naturalnumbersgrid;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class NumberCellGeneratorUnitTest {
+
+    /*
+     * Checks every number in block against standalone checks.
+     */
+    private static void assertBlock(NumberCellBlock block, long start, int count) {
+        assertEquals(start, block.getStart());
+        assertEquals(count, block.getCount());
+        for (int i = 0; i < count; i++) {
+            long n = start + i;
+            assertEquals("Number " + n + " has wrong primality.", Utils.isPrime(n), block.isPrime(i));
+
+            long product = 1;
+            for (int j = 0; j < block.getPrimeFactorCount(i); j++) {
+                for (int k = 0; k < block.getExponent(i, j); k++)
+                    product *= block.getPrimeFactor(i, j);
+            }
+            assertEquals("Number " + n + " has wrong prime factors.", n < 2 ? 1 : n, product);
+        }
+    }
+
+    @Test
+    public void generatorParallel_isCorrect() throws Exception {
+        NumberCellGenerator generator = new NumberCellGenerator(4, Executors.defaultThreadFactory());
+        generator.setParallelCutoff(1000);
+
+        // Segments generated in parallel are joined in order.
+        assertBlock(generator.generate(0, 10000), 0, 10000);
+        assertBlock(generator.generate(1000000000000L, 5000), 1000000000000L, 5000);
+        // Small windows are generated on calling thread.
+        assertBlock(generator.generate(Long.MAX_VALUE - 99, 100), Long.MAX_VALUE - 99, 100);
+
+        // Every segment adds its sieve and factorization times to stats.
+        GenerationStats stats = new GenerationStats();
+        assertBlock(generator.generate(0, 10000, null, stats), 0, 10000);
+        assertEquals(8, stats.getSegmentCount());
+        assertTrue(stats.getSieveNanos() > 0 && stats.getFactorizeNanos() > 0);
+
+        // Every segment is handed out in order on calling thread, covering window once.
+        final AtomicInteger segmentCells = new AtomicInteger();
+        final Thread thread = Thread.currentThread();
+        assertBlock(generator.generate(500, 10000, null, null, new NumberCellGenerator.SegmentListener() {
+            @Override
+            public void onSegmentReady(NumberCellBlock segment) {
+                assertEquals(thread, Thread.currentThread());
+                assertBlock(segment, 500 + segmentCells.get(), segment.getCount());
+                segmentCells.addAndGet(segment.getCount());
+            }
+        }), 500, 10000);
+        assertEquals(10000, segmentCells.get());
+
+        // Cancelled generation returns nothing.
+        assertNull(generator.generate(0, 20000, new NumberCellGenerator.Cancellation() {
+            @Override
+            public boolean isCancelled() {
+                return true;
+            }
+        }));
+
+        // Cancellation lifted while segments are generated still returns nothing, as some were skipped.
+        final AtomicInteger checks = new AtomicInteger();
+        assertNull(generator.generate(1000000000000L, 20000, new NumberCellGenerator.Cancellation() {
+            @Override
+            public boolean isCancelled() {
+                return checks.getAndIncrement() < 4;
+            }
+        }, null, null));
+
+        generator.release();
+    }
+
+    @Test
+    public void rangeStreamer_isCorrect() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new RangeStreamer(0, 1000, 3, 64).stream(out);
+
+        String[] lines = out.toString("US-ASCII").split("\n");
+        assertEquals(1000, lines.length);
+        assertEquals("0\t0\t", lines[0]);
+        assertEquals("1\t0\t", lines[1]);
+        assertEquals("2\t1\t2", lines[2]);
+        assertEquals("360\t0\t2^3*3^2*5", lines[360]);
+        assertEquals("997\t1\t997", lines[997]);
+    }
+}
@@ -0,0 +1,118 @@
+package com.hotmail.maximglukhov.naturalnumbersgrid;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PrimeBitmapCacheUnitTest {
+
+    /*
+     * Sieves entire segment.
+     */
+    private static boolean[] sieveSegment(long segment) {
+        boolean[] primes = new boolean[PrimeBitmapCache.SEGMENT_SIZE];
+        new SegmentedSieve().sieve(segment * PrimeBitmapCache.SEGMENT_SIZE,
+                PrimeBitmapCache.segmentLength(segment), primes);
+        return primes;
+    }
+
+    /*
+     * Reads given window from cache and checks it against sieve.
+     */
+    private static void assertWindow(PrimeBitmapCache cache, long low, int length) {
+        boolean[] expected = new boolean[length];
+        new SegmentedSieve().sieve(low, length, expected);
+
+        boolean[] primes = new boolean[length];
+        long last = PrimeBitmapCache.segmentOf(low + length - 1);
+        for (long segment = PrimeBitmapCache.segmentOf(low); segment <= last; segment++)
+            assertTrue(cache.readSegment(segment, low, length, primes));
+
+        assertArrayEquals("Window " + low + "+" + length + " has wrong primality.", expected, primes);
+    }
+
+    private static File createTempFile() throws Exception {
+        File file = File.createTempFile("primes", ".cache");
+        file.deleteOnExit();
+        return file;
+    }
+
+    @Test
+    public void cacheReadWrite_isCorrect() throws Exception {
+        File file = createTempFile();
+        PrimeBitmapCache cache = PrimeBitmapCache.open(file, 8);
+
+        assertFalse(cache.readSegment(0, 0, 100, new boolean[100]));
+        cache.writeSegment(0, sieveSegment(0));
+        cache.writeSegment(1, sieveSegment(1));
+        long deep = PrimeBitmapCache.segmentOf(1000000000000L);
+        cache.writeSegment(deep, sieveSegment(deep));
+
+        assertWindow(cache, 0, 1000);
+        // Window crossing segments.
+        assertWindow(cache, PrimeBitmapCache.SEGMENT_SIZE - 500, 1000);
+        assertWindow(cache, 1000000000000L, 1000);
+        cache.close();
+
+        // Cached segments are kept between launches.
+        cache = PrimeBitmapCache.open(file, 8);
+        assertEquals(3, cache.getSegmentCount());
+        assertWindow(cache, 1000000000000L, 1000);
+        cache.close();
+    }
+
+    @Test
+    public void cacheLastSegment_isCorrect() throws Exception {
+        PrimeBitmapCache cache = PrimeBitmapCache.open(createTempFile(), 2);
+        long last = PrimeBitmapCache.segmentOf(Long.MAX_VALUE);
+        cache.writeSegment(last, sieveSegment(last));
+
+        assertWindow(cache, Long.MAX_VALUE - 999, 1000);
+        cache.close();
+    }
+
+    @Test
+    public void cacheSlotReuse_isCorrect() throws Exception {
+        PrimeBitmapCache cache = PrimeBitmapCache.open(createTempFile(), 2);
+        for (long segment = 0; segment < 5; segment++)
+            cache.writeSegment(segment, sieveSegment(segment));
+
+        // Only most recent segments fit.
+        assertEquals(2, cache.getSegmentCount());
+        assertTrue(cache.contains(4));
+        assertFalse(cache.contains(0));
+        cache.close();
+    }
+
+    @Test
+    public void cacheRepair_isCorrect() throws Exception {
+        File file = createTempFile();
+        PrimeBitmapCache cache = PrimeBitmapCache.open(file, 4);
+        cache.writeSegment(0, sieveSegment(0));
+        cache.writeSegment(7, sieveSegment(7));
+        cache.close();
+
+        // Corrupt last byte of file (end of second slot), as if bitmap was partially written.
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        long offset = randomAccessFile.length() - 2 * (PrimeBitmapCache.SEGMENT_SIZE / 30) - 1;
+        randomAccessFile.seek(offset);
+        randomAccessFile.write(0x55);
+        randomAccessFile.close();
+
+        cache = PrimeBitmapCache.open(file, 4);
+        assertTrue(cache.contains(0));
+        assertFalse(cache.contains(7));
+        cache.close();
+
+        // Different format (slot count) recreates file.
+        cache = PrimeBitmapCache.open(file, 6);
+        assertEquals(0, cache.getSegmentCount());
+        cache.close();
+    }
+}
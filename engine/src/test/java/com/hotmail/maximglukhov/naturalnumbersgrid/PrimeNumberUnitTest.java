@@ -82,4 +82,41 @@ public class PrimeNumberUnitTest {
     public void primalityCheck12_isCorrect() throws Exception {
         assertEquals("Prime 100000000003 failed primality test.", true, Utils.isPrime(100000000003L));
     }
+
+    @Test
+    public void primalityCheck13_isCorrect() throws Exception {
+        assertEquals("Prime 1000000000000037 failed primality test.", true, Utils.isPrime(1000000000000037L));
+    }
+
+    @Test
+    public void primalityCheck14_isCorrect() throws Exception {
+        assertEquals("Prime 9223372036854775783 failed primality test.", true, Utils.isPrime(9223372036854775783L));
+    }
+
+    /*
+     * The following tests are for composites which fool weaker primality tests.
+     */
+
+    @Test
+    public void compositeCheck1_isCorrect() throws Exception {
+        // Carmichael number.
+        assertEquals("Composite 561 passed primality test.", false, Utils.isPrime(561));
+    }
+
+    @Test
+    public void compositeCheck2_isCorrect() throws Exception {
+        // Strong pseudoprime to bases 2, 3, 5 and 7.
+        assertEquals("Composite 3215031751 passed primality test.", false, Utils.isPrime(3215031751L));
+    }
+
+    @Test
+    public void compositeCheck3_isCorrect() throws Exception {
+        // Square of a prime.
+        assertEquals("Composite 1000000007^2 passed primality test.", false, Utils.isPrime(1000000007L * 1000000007L));
+    }
+
+    @Test
+    public void compositeCheck4_isCorrect() throws Exception {
+        assertEquals("Composite " + Long.MAX_VALUE + " passed primality test.", false, Utils.isPrime(Long.MAX_VALUE));
+    }
 }
@@ -0,0 +1,57 @@
+package com.hotmail.maximglukhov.naturalnumbersgrid;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class SegmentedSieveUnitTest {
+
+    /*
+     * Checks every number in window against Utils.isPrime.
+     */
+    private static void assertWindow(SegmentedSieve sieve, long low, int length) {
+        boolean[] primes = new boolean[length];
+        sieve.sieve(low, length, primes);
+
+        for (int i = 0; i < length; i++) {
+            assertEquals("Number " + (low + i) + " has wrong primality.",
+                    Utils.isPrime(low + i), primes[i]);
+        }
+    }
+
+    @Test
+    public void sieveFromZero_isCorrect() throws Exception {
+        assertWindow(new SegmentedSieve(), 0, 1000);
+    }
+
+    @Test
+    public void sieveSmallWindows_isCorrect() throws Exception {
+        SegmentedSieve sieve = new SegmentedSieve();
+        for (long low = 0; low < 200; low++)
+            assertWindow(sieve, low, 7);
+    }
+
+    @Test
+    public void sieveBackwardsWindows_isCorrect() throws Exception {
+        // Windows requested in decreasing order (scrolling up) must reuse base primes correctly.
+        SegmentedSieve sieve = new SegmentedSieve();
+        for (long low = 100000; low >= 0; low -= 10000)
+            assertWindow(sieve, low, 10000);
+    }
+
+    @Test
+    public void sieveLargeOffset_isCorrect() throws Exception {
+        assertWindow(new SegmentedSieve(), 1000000000000L, 2000);
+    }
+
+    @Test
+    public void sieveAboveBaseLimit_isCorrect() throws Exception {
+        // Deep offset, beyond square of maximum base primes limit.
+        assertWindow(new SegmentedSieve(), 1000000000000000000L, 2000);
+    }
+
+    @Test
+    public void sieveNearMaxValue_isCorrect() throws Exception {
+        assertWindow(new SegmentedSieve(), Long.MAX_VALUE - 999, 1000);
+    }
+}
@@ -0,0 +1,76 @@
+package com.hotmail.maximglukhov.naturalnumbersgrid;
+
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SmallPrimeTableUnitTest {
+
+    /*
+     * Checks primality by dividing by every number, for reference.
+     */
+    private static boolean isPrimeNaive(long n) {
+        if (n < 2)
+            return false;
+
+        for (long i = 2; i * i <= n; i++) {
+            if (n % i == 0)
+                return false;
+        }
+
+        return true;
+    }
+
+    @Test
+    public void wheelCandidates_isCorrect() throws Exception {
+        // Wheel started anywhere returns exactly the numbers coprime to 210, in order.
+        long[] starts = {0, 1, 11, 200, 209, 210, 1000000000000L};
+        for (long start : starts) {
+            PrimeWheel wheel = new PrimeWheel(start);
+            long expected = start;
+            for (int i = 0; i < 500; i++) {
+                while (expected % 2 == 0 || expected % 3 == 0 || expected % 5 == 0 || expected % 7 == 0)
+                    expected++;
+
+                assertEquals("Wrong candidate for wheel started at " + start + ".", expected, wheel.next());
+                assertTrue(PrimeWheel.isCoprime(expected));
+                expected++;
+            }
+        }
+    }
+
+    @Test
+    public void tableGrowth_isCorrect() throws Exception {
+        // Grow shared table from several threads at once.
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        Future<?>[] futures = new Future[8];
+        for (int i = 0; i < futures.length; i++) {
+            final int limit = 1000 * (i + 1);
+            futures[i] = executor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    return SmallPrimeTable.get(limit).getLimit();
+                }
+            });
+        }
+        for (Future<?> future : futures)
+            assertTrue((Integer) future.get() >= 1000);
+        executor.shutdown();
+
+        SmallPrimeTable table = SmallPrimeTable.get(20000);
+        assertTrue(table.getLimit() >= 20000);
+
+        int index = 0;
+        for (int n = 0; n <= table.getLimit(); n++) {
+            if (isPrimeNaive(n))
+                assertEquals("Prime " + n + " missing from table.", n, table.getPrime(index++));
+        }
+        assertEquals(index, table.getCount());
+    }
+}